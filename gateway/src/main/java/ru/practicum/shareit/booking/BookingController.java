@@ -8,11 +8,18 @@ import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
+import ru.practicum.shareit.booking.dto.BookingExportFormat;
 import ru.practicum.shareit.booking.dto.BookingState;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.util.List;
 
 /**
  * Контроллер для взаимодействия с бронированиями (Booking)
@@ -33,17 +40,19 @@ public class BookingController {
      * @param stateParam - тип бронирования (ALL, CURRENT, PAST, FUTURE, WAITING, REJECTED)
      * @param from       - с какого бронирования начать (начиная с самого позднего по дате окончания)
      * @param size       - количество получаемых бронирований
+     * @param after      - курсор последнего бронирования предыдущей страницы (если передан, from не используется)
      * @return - возвращает список бронирований
      */
     @GetMapping
     public ResponseEntity<Object> getBookings(@RequestHeader("X-Sharer-User-Id") long userId,
                                               @RequestParam(name = "state", defaultValue = "all") String stateParam,
                                               @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                              @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+                                              @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                              @RequestParam(name = "after", required = false) String after) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
         log.info("Get bookings with state {}, userId={}, from={}, size={}", stateParam, userId, from, size);
-        return bookingClient.getBookings(userId, state, from, size);
+        return bookingClient.getBookings(userId, state, from, size, after);
     }
 
     /**
@@ -60,6 +69,21 @@ public class BookingController {
         return bookingClient.bookItem(userId, requestDto);
     }
 
+    /**
+     * Метод создает несколько бронирований при запросе POST /bookings/batch
+     *
+     * @param requestDtos - полученный в теле запроса список объектов BookItemRequestDto (не более 100)
+     * @param userId      - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @return - возвращает для каждого бронирования созданный объект BookingDto или текст ошибки
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Object> bookItems(@RequestHeader("X-Sharer-User-Id") long userId,
+                                            @RequestBody @NotEmpty @Size(max = 100)
+                                            List<@Valid BookItemRequestDto> requestDtos) {
+        log.info("Creating {} bookings, userId={}", requestDtos.size(), userId);
+        return bookingClient.bookItems(userId, requestDtos);
+    }
+
     /**
      * Метод возвращает бронирование по id при запросе GET /bookings/{bookingId}
      *
@@ -90,6 +114,24 @@ public class BookingController {
         return bookingClient.setStatus(userId, bookingId, approved);
     }
 
+    /**
+     * Метод устанавливает статус APPROVED или REJECTED для нескольких ожидающих бронирований
+     * при запросе PATCH /bookings/status
+     *
+     * @param userId     - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @param bookingIds - полученный в теле запроса список id бронирований (не более 500)
+     * @param approved   - статус бронирований
+     * @return - возвращает для каждого id бронирования установленный статус или текст ошибки
+     */
+    @PatchMapping("/status")
+    public ResponseEntity<Object> setStatusAll(@RequestHeader("X-Sharer-User-Id") long userId,
+                                               @RequestBody @NotEmpty @Size(max = 500)
+                                               List<@NotNull @Positive Long> bookingIds,
+                                               @RequestParam(name = "approved") boolean approved) {
+        log.info("Set status approved={} for {} bookings, userId={}", approved, bookingIds.size(), userId);
+        return bookingClient.setStatusAll(userId, bookingIds, approved);
+    }
+
     /**
      * Метод возвращает список бронирований для вещей, принадлежащих пользователю, по их типу state при запросе GET /bookings/owner
      *
@@ -97,16 +139,79 @@ public class BookingController {
      * @param stateParam - тип бронирования (ALL, CURRENT, PAST, FUTURE, WAITING, REJECTED)
      * @param from       - с какого бронирования начать (начиная с самого позднего по дате окончания)
      * @param size       - количество получаемых бронирований
+     * @param after      - курсор последнего бронирования предыдущей страницы (если передан, from не используется)
      * @return - возвращает список бронирований
      */
     @GetMapping("/owner")
     public ResponseEntity<Object> getBookingsForOwner(@RequestHeader("X-Sharer-User-Id") long userId,
                                                       @RequestParam(name = "state", defaultValue = "all") String stateParam,
                                                       @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                                      @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+                                                      @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                                      @RequestParam(name = "after", required = false) String after) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
         log.info("Get bookings with state {}, owner={}, from={}, size={}", stateParam, userId, from, size);
-        return bookingClient.getBookingsForOwner(userId, state, from, size);
+        return bookingClient.getBookingsForOwner(userId, state, from, size, after);
+    }
+
+    /**
+     * Метод возвращает количество бронирований пользователя по каждому типу при запросе GET /bookings/summary
+     *
+     * @param userId - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @return - возвращает объект BookingSummaryDto
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<Object> getSummary(@RequestHeader("X-Sharer-User-Id") long userId) {
+        log.info("Get bookings summary, userId={}", userId);
+        return bookingClient.getSummary(userId);
+    }
+
+    /**
+     * Метод возвращает количество бронирований для вещей, принадлежащих пользователю, по каждому типу
+     * при запросе GET /bookings/owner/summary
+     *
+     * @param userId - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @return - возвращает объект BookingSummaryDto
+     */
+    @GetMapping("/owner/summary")
+    public ResponseEntity<Object> getSummaryForOwner(@RequestHeader("X-Sharer-User-Id") long userId) {
+        log.info("Get bookings summary, owner={}", userId);
+        return bookingClient.getSummaryForOwner(userId);
+    }
+
+    /**
+     * Метод выгружает все бронирования пользователя при запросе GET /bookings/export.
+     * Ответ сервера передается клиенту по мере получения
+     *
+     * @param userId      - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @param formatParam - формат выгрузки (NDJSON, CSV)
+     * @param response    - ответ, в который передаются бронирования
+     */
+    @GetMapping("/export")
+    public void export(@RequestHeader("X-Sharer-User-Id") long userId,
+                       @RequestParam(name = "format", defaultValue = "ndjson") String formatParam,
+                       HttpServletResponse response) throws IOException {
+        BookingExportFormat format = BookingExportFormat.from(formatParam)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown format: " + formatParam));
+        log.info("Export bookings in format {}, userId={}", formatParam, userId);
+        bookingClient.export(userId, format, response);
+    }
+
+    /**
+     * Метод выгружает все бронирования для вещей, принадлежащих пользователю, при запросе GET /bookings/owner/export.
+     * Ответ сервера передается клиенту по мере получения
+     *
+     * @param userId      - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @param formatParam - формат выгрузки (NDJSON, CSV)
+     * @param response    - ответ, в который передаются бронирования
+     */
+    @GetMapping("/owner/export")
+    public void exportForOwner(@RequestHeader("X-Sharer-User-Id") long userId,
+                               @RequestParam(name = "format", defaultValue = "ndjson") String formatParam,
+                               HttpServletResponse response) throws IOException {
+        BookingExportFormat format = BookingExportFormat.from(formatParam)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown format: " + formatParam));
+        log.info("Export bookings in format {}, owner={}", formatParam, userId);
+        bookingClient.exportForOwner(userId, format, response);
     }
 }
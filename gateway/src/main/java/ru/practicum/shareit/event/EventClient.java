@@ -0,0 +1,116 @@
+package ru.practicum.shareit.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * Клиент потока событий сервера. Поток передается клиенту шлюза по мере получения через асинхронный HttpClient,
+ * поэтому открытая подписка не занимает ни поток запроса шлюза, ни поток HTTP-клиента
+ */
+
+@Slf4j
+@Service
+public class EventClient {
+    private static final String API_PREFIX = "/events";
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final URI uri;
+    private final long timeout;
+
+    public EventClient(@Value("${shareit-server.url}") String serverUrl,
+                       @Value("${shareit.events.timeout:30m}") Duration timeout) {
+        this.uri = URI.create(serverUrl + API_PREFIX);
+        this.timeout = timeout.toMillis();
+    }
+
+    /**
+     * Метод открывает поток событий пользователя на сервере.
+     * Ответ шлюза готов, когда сервер прислал заголовки: код ответа и тип содержимого берутся из ответа сервера,
+     * а тело (поток событий или текст ошибки) передается по мере получения
+     *
+     * @param userId - id пользователя
+     * @return - возвращает ответ шлюза, тело которого заполняется ответом сервера
+     */
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> subscribe(long userId) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("X-Sharer-User-Id", String.valueOf(userId))
+                .header("Accept", MediaType.TEXT_EVENT_STREAM_VALUE + ", " + MediaType.APPLICATION_JSON_VALUE)
+                .GET()
+                .build();
+        CompletableFuture<ResponseEntity<ResponseBodyEmitter>> response = new CompletableFuture<>();
+        http.sendAsync(request, info -> {
+            ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeout);
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(info.statusCode());
+            info.headers().firstValue("Content-Type").ifPresent(type -> builder.header("Content-Type", type));
+            response.complete(builder.body(emitter));
+            return HttpResponse.BodySubscribers.fromSubscriber(new EmitterSubscriber(emitter));
+        }).whenComplete((result, e) -> {
+            if (e != null && !response.completeExceptionally(e)) {
+                log.info("Поток событий пользователя userId={} прерван: {}", userId, e.getMessage());
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Передает полученные от сервера части тела в ответ шлюза. Следующая часть запрашивается только после
+     * отправки предыдущей, а при отключении клиента шлюза соединение с сервером закрывается
+     */
+    private static class EmitterSubscriber implements Flow.Subscriber<List<ByteBuffer>> {
+        private final ResponseBodyEmitter emitter;
+        private Flow.Subscription subscription;
+
+        private EmitterSubscriber(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            emitter.onCompletion(subscription::cancel);
+            emitter.onTimeout(subscription::cancel);
+            emitter.onError(e -> subscription.cancel());
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    byte[] bytes = new byte[buffer.remaining()];
+                    buffer.get(bytes);
+                    emitter.send(bytes, MediaType.APPLICATION_OCTET_STREAM);
+                }
+                subscription.request(1);
+            } catch (IOException | IllegalStateException e) {
+                subscription.cancel();
+                emitter.completeWithError(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            emitter.completeWithError(e);
+        }
+
+        @Override
+        public void onComplete() {
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.practicum.shareit.event;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Контроллер для подписки на события (новые реквесты, новые бронирования вещей пользователя
+ * и изменения статуса его бронирований)
+ */
+
+@Controller
+@RequestMapping(path = "/events")
+@RequiredArgsConstructor
+@Slf4j
+public class EventController {
+    private final EventClient eventClient;
+
+    /**
+     * Метод открывает поток событий пользователя (text/event-stream) при запросе GET /events
+     *
+     * @param userId - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @return - возвращает поток событий
+     */
+    @GetMapping
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> subscribe(
+            @RequestHeader("X-Sharer-User-Id") long userId) {
+        log.info("Subscribe to events, userId={}", userId);
+        return eventClient.subscribe(userId);
+    }
+}
@@ -11,6 +11,8 @@ import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.Map;
 
 @Service
@@ -35,11 +37,15 @@ public class ItemClient extends BaseClient {
         return patch("/" + itemId, ownerId, itemDto);
     }
 
-    public ResponseEntity<Object> get(long ownerId, Integer from, Integer size) {
-        Map<String, Object> parameters = Map.of(
+    public ResponseEntity<Object> get(long ownerId, Integer from, Integer size, String after) {
+        Map<String, Object> parameters = new HashMap<>(Map.of(
                 "from", from,
                 "size", size
-        );
+        ));
+        if (after != null) {
+            parameters.put("after", after);
+            return get("?from={from}&size={size}&after={after}", ownerId, parameters);
+        }
         return get("?from={from}&size={size}", ownerId, parameters);
     }
 
@@ -47,13 +53,35 @@ public class ItemClient extends BaseClient {
         return get("/" + itemId, ownerId);
     }
 
-    public ResponseEntity<Object> search(long userId, String text, Integer from, Integer size) {
+    public ResponseEntity<Object> getAvailability(long userId, long itemId, LocalDateTime from, LocalDateTime to) {
         Map<String, Object> parameters = Map.of(
+                "from", from,
+                "to", to
+        );
+        return get("/" + itemId + "/availability?from={from}&to={to}", userId, parameters);
+    }
+
+    public ResponseEntity<Object> search(long userId, String text, LocalDateTime start, LocalDateTime end,
+                                         Integer from, Integer size, String after) {
+        Map<String, Object> parameters = new HashMap<>(Map.of(
                 "text", text,
                 "from", from,
                 "size", size
-        );
-        return get("/search?text={text}&from={from}&size={size}", userId, parameters);
+        ));
+        StringBuilder path = new StringBuilder("/search?text={text}&from={from}&size={size}");
+        if (start != null) {
+            parameters.put("start", start);
+            path.append("&start={start}");
+        }
+        if (end != null) {
+            parameters.put("end", end);
+            path.append("&end={end}");
+        }
+        if (after != null) {
+            parameters.put("after", after);
+            path.append("&after={after}");
+        }
+        return get(path.toString(), userId, parameters);
     }
 
     public ResponseEntity<Object> postComment(long userId, CommentDto commentDto, long itemId) {
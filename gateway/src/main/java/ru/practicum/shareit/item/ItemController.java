@@ -2,6 +2,7 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
@@ -12,6 +13,7 @@ import ru.practicum.shareit.item.dto.ItemDto;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.time.LocalDateTime;
 
 /**
  * Контроллер для взаимодействия с вещами (Item)
@@ -61,14 +63,16 @@ public class ItemController {
      * @param userId - полученный из заголовка "X-Sharer-User-Id" id пользователя
      * @param from   - с какой вещи начать
      * @param size   - количество получаемых вещей
+     * @param after  - курсор последней вещи предыдущей страницы (если передан, from не используется)
      * @return - возвращает список вещей
      */
     @GetMapping
     public ResponseEntity<Object> get(@RequestHeader("X-Sharer-User-Id") long userId,
                                       @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                      @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+                                      @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                      @RequestParam(name = "after", required = false) String after) {
         log.info("Get items with owner {}, from {}, size{}", userId, from, size);
-        return itemClient.get(userId, from, size);
+        return itemClient.get(userId, from, size, after);
     }
 
     /**
@@ -85,21 +89,50 @@ public class ItemController {
         return itemClient.getItemById(itemId, userId);
     }
 
+    /**
+     * Метод возвращает свободные периоды вещи при запросе GET /items/{id}/availability
+     *
+     * @param userId - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @param itemId - id вещи
+     * @param from   - начало интервала
+     * @param to     - конец интервала
+     * @return - возвращает упорядоченный список свободных периодов
+     */
+    @GetMapping("/{itemId}/availability")
+    public ResponseEntity<Object> getAvailability(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                  @PathVariable long itemId,
+                                                  @RequestParam(name = "from")
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                  @RequestParam(name = "to")
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.info("Get availability of item {} from {} to {}, userId={}", itemId, from, to, userId);
+        return itemClient.getAvailability(userId, itemId, from, to);
+    }
+
     /**
      * Метод возвращает список вещей, найденных по параметру запроса text при запросе GET /items/search
      *
-     * @param text - поисковый запрос (передается в параметре запроса text)
-     * @param from - с какой вещи начать
-     * @param size - количество получаемых вещей
+     * @param text  - поисковый запрос (передается в параметре запроса text)
+     * @param start - начало периода, в который вещь должна быть свободна (передается вместе с end)
+     * @param end   - конец периода, в который вещь должна быть свободна (передается вместе со start)
+     * @param from  - с какой вещи начать
+     * @param size  - количество получаемых вещей
+     * @param after - курсор последней вещи предыдущей страницы (если передан, from не используется)
      * @return - возвращает список вещей
      */
     @GetMapping("/search")
     public ResponseEntity<Object> search(@RequestHeader("X-Sharer-User-Id") long userId,
                                          @RequestParam(name = "text") String text,
+                                         @RequestParam(name = "start", required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+                                         @RequestParam(name = "end", required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
                                          @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                         @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
-        log.info("Get items with text={}, userId={}, from={}, size={}", text, userId, from, size);
-        return itemClient.search(userId, text, from, size);
+                                         @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                         @RequestParam(name = "after", required = false) String after) {
+        log.info("Get items with text={}, start={}, end={}, userId={}, from={}, size={}", text, start, end, userId,
+                from, size);
+        return itemClient.search(userId, text, start, end, from, size, after);
     }
 
     /**
@@ -10,6 +10,7 @@ import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
+import java.util.HashMap;
 import java.util.Map;
 
 @Service
@@ -34,14 +35,30 @@ public class ItemRequestClient extends BaseClient {
         return get("", userId);
     }
 
-    public ResponseEntity<Object> getAllUsersRequests(long userId, Integer from, Integer size) {
-        Map<String, Object> parameters = Map.of(
+    public ResponseEntity<Object> getAllUsersRequests(long userId, Integer from, Integer size, String after) {
+        Map<String, Object> parameters = new HashMap<>(Map.of(
                 "from", from,
                 "size", size
-        );
+        ));
+        if (after != null) {
+            parameters.put("after", after);
+            return get("/all?from={from}&size={size}&after={after}", userId, parameters);
+        }
         return get("/all?from={from}&size={size}", userId, parameters);
     }
 
+    public ResponseEntity<Object> search(long userId, String text, Integer size, String after) {
+        Map<String, Object> parameters = new HashMap<>(Map.of(
+                "text", text,
+                "size", size
+        ));
+        if (after != null) {
+            parameters.put("after", after);
+            return get("/search?text={text}&size={size}&after={after}", userId, parameters);
+        }
+        return get("/search?text={text}&size={size}", userId, parameters);
+    }
+
     public ResponseEntity<Object> getRequestById(long userId, long requestId) {
         return get("/" + requestId, userId);
     }
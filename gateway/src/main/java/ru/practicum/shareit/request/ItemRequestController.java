@@ -56,14 +56,34 @@ public class ItemRequestController {
      * @param userId - id пользователя
      * @param from   - с какого реквеста начать
      * @param size   - количество получаемых реквестов
+     * @param after  - курсор последнего реквеста предыдущей страницы (если передан, from не используется)
      * @return - возвращает список реквестов
      */
     @GetMapping("/all")
     public ResponseEntity<Object> getAllUsersRequests(@RequestHeader("X-Sharer-User-Id") long userId,
                                                       @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                                      @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+                                                      @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                                      @RequestParam(name = "after", required = false) String after) {
         log.info("Get all requests with userId {}, from {}, size {}", userId, from, size);
-        return itemRequestClient.getAllUsersRequests(userId, from, size);
+        return itemRequestClient.getAllUsersRequests(userId, from, size, after);
+    }
+
+    /**
+     * Метод ищет реквесты других пользователей по словам описания при запросе GET /requests/search
+     *
+     * @param userId - id пользователя
+     * @param text   - поисковый запрос
+     * @param size   - количество получаемых реквестов
+     * @param after  - курсор последнего реквеста предыдущей страницы
+     * @return - возвращает список реквестов
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Object> search(@RequestHeader("X-Sharer-User-Id") long userId,
+                                         @RequestParam(name = "text") String text,
+                                         @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                         @RequestParam(name = "after", required = false) String after) {
+        log.info("Search requests with text {}, userId {}, size {}", text, userId, size);
+        return itemRequestClient.search(userId, text, size, after);
     }
 
     /**
@@ -1,13 +1,17 @@
 package ru.practicum.shareit;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.practicum.shareit.booking.exception.*;
 import ru.practicum.shareit.item.exception.IllegalAccessExceptionItem;
 import ru.practicum.shareit.item.exception.IllegalTryToPostCommentException;
+import ru.practicum.shareit.item.exception.IncompletePeriodException;
+import ru.practicum.shareit.item.exception.InvalidPeriodException;
 import ru.practicum.shareit.item.exception.ItemNotFoundException;
+import ru.practicum.shareit.pagination.exception.InvalidCursorException;
 import ru.practicum.shareit.request.exception.ItemRequestNotFoundException;
 import ru.practicum.shareit.user.exception.UserNotFoundException;
 
@@ -22,12 +26,25 @@ public class ErrorHandler {
     }
 
     @ExceptionHandler({ItemNotAvailableException.class, InvalidDateTimeException.class,
-            ThisStatusAlreadySetException.class, IllegalTryToPostCommentException.class})
+            ThisStatusAlreadySetException.class, IllegalTryToPostCommentException.class,
+            InvalidCursorException.class, InvalidPeriodException.class, IncompletePeriodException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleBadRequestException(Throwable e) {
         return new ErrorResponse(e.getMessage());
     }
 
+    @ExceptionHandler({BookingOverlapException.class, BookingStatusConflictException.class})
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleConflictException(Throwable e) {
+        return new ErrorResponse(e.getMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleOptimisticLockingFailureException(ObjectOptimisticLockingFailureException e) {
+        return new ErrorResponse("Объект был изменен другим запросом, повторите попытку");
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleIllegalArgumentException(IllegalArgumentException e) {
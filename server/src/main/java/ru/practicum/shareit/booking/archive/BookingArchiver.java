@@ -0,0 +1,266 @@
+package ru.practicum.shareit.booking.archive;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Обслуживание секций таблицы bookings (только для PostgreSQL). Таблица секционирована по end_date
+ * (см. schema-postgresql.sql): каждый месяц хранится в своей секции bookings_ГГГГММ, а строки вне месячных секций
+ * попадают в секцию по умолчанию bookings_default. Задача заранее создает секции на shareit.booking.archive.months-ahead
+ * месяцев вперед и переносит в них строки из секции по умолчанию (обычно их нет, кроме первого запуска после
+ * преобразования таблицы). Месяцы, закончившиеся раньше начала месяца, отстоящего от текущей даты
+ * на shareit.booking.archive.retention-days, переносятся в секционированную архивную секцию bookings_archive.
+ * Архивирование только отсоединяет и присоединяет секции и не переносит строки: у каждой месячной секции есть
+ * ограничение на её диапазон, поэтому присоединение не проверяет строки, и блокировка bookings держится
+ * миллисекунды. Ожидание блокировки ограничено shareit.booking.archive.lock-timeout, задача, не дождавшаяся
+ * блокировки, повторяется при следующем запуске. Запросы идут к родительской таблице, поэтому видят бронирования
+ * из всех секций
+ */
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.sql.init.platform", havingValue = "postgresql")
+public class BookingArchiver {
+    static final String BOOKINGS = "bookings";
+    static final String ARCHIVE = "bookings_archive";
+    static final String DEFAULT = "bookings_default";
+    private static final Pattern RANGE = Pattern.compile("FROM \\((.+)\\) TO \\((.+)\\)");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String COLUMNS = "id, start_date, end_date, item_id, booker_id, status, version";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionDays;
+    private final int monthsAhead;
+    private final String lockTimeout;
+
+    public BookingArchiver(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                           @Value("${shareit.booking.archive.retention-days:30}") int retentionDays,
+                           @Value("${shareit.booking.archive.months-ahead:12}") int monthsAhead,
+                           @Value("${shareit.booking.archive.lock-timeout:2s}") String lockTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.retentionDays = retentionDays;
+        this.monthsAhead = monthsAhead;
+        this.lockTimeout = lockTimeout;
+    }
+
+    /**
+     * Метод создает недостающие секции и переносит закончившиеся месяцы в архив.
+     * Выполняется при старте приложения до приема запросов и по расписанию, каждый шаг в своей транзакции
+     */
+    @PostConstruct
+    @Scheduled(cron = "${shareit.booking.archive.cron:0 0 3 * * *}")
+    public void maintain() {
+        LocalDate today = LocalDate.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> createPartitions(today));
+        } catch (DataAccessException e) {
+            log.warn("Не удалось создать секции таблицы bookings", e);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> archive(today));
+        } catch (DataAccessException e) {
+            log.warn("Не удалось перенести закончившиеся бронирования в архив", e);
+        }
+    }
+
+    /**
+     * Метод создает месячные секции от текущего месяца на monthsAhead месяцев вперед и секции для месяцев,
+     * строки которых оказались в секции по умолчанию, и переносит эти строки в новые секции
+     *
+     * @param today - текущая дата
+     */
+    void createPartitions(LocalDate today) {
+        if (!partitioned()) {
+            log.warn("Таблица bookings не секционирована, создание секций пропущено");
+            return;
+        }
+        setLockTimeout();
+        // секция по умолчанию блокируется сразу: присоединение новой секции все равно её заблокирует
+        jdbcTemplate.execute("lock table " + DEFAULT + " in access exclusive mode");
+        List<Partition> partitions = partitions(BOOKINGS);
+        Partition archive = find(partitions, ARCHIVE);
+        if (archive != null) {
+            partitions.addAll(partitions(ARCHIVE));
+        }
+        LocalDate first = today.withDayOfMonth(1);
+        LocalDate horizon = first.plusMonths(monthsAhead + 1L);
+        List<LocalDate> strayMonths = jdbcTemplate.queryForList("select distinct date_trunc('month', end_date)::date " +
+                        "from " + DEFAULT + " where end_date < ?", Date.class, Timestamp.valueOf(horizon.atStartOfDay()))
+                .stream()
+                .map(Date::toLocalDate)
+                .collect(Collectors.toList());
+        for (LocalDate month : monthsToCreate(partitions, strayMonths, first, horizon)) {
+            String name = BOOKINGS + "_" + month.format(SUFFIX);
+            String from = month.atStartOfDay().format(BOUND);
+            String to = month.plusMonths(1).atStartOfDay().format(BOUND);
+            jdbcTemplate.execute(String.format("create table %s (like %s including defaults)", name, BOOKINGS));
+            // ограничение позволяет присоединять секцию к bookings и bookings_archive без проверки её строк
+            jdbcTemplate.execute(String.format("alter table %1$s add constraint %1$s_end_date_check " +
+                    "check (end_date >= '%2$s' and end_date < '%3$s')", name, from, to));
+            int moved = jdbcTemplate.update(String.format("with moved as (delete from %s where end_date >= ? " +
+                            "and end_date < ? returning %s) insert into %s (%s) select %s from moved",
+                    DEFAULT, COLUMNS, name, COLUMNS, COLUMNS), Timestamp.valueOf(month.atStartOfDay()),
+                    Timestamp.valueOf(month.plusMonths(1).atStartOfDay()));
+            String parent = archive != null && month.isBefore(archive.getTo()) ? ARCHIVE : BOOKINGS;
+            jdbcTemplate.execute(String.format("alter table %s attach partition %s for values from ('%s') to ('%s')",
+                    parent, name, from, to));
+            log.info("Создана секция {} бронирований с {} по {}, из секции по умолчанию перенесено {} бронирований",
+                    name, from, to, moved);
+        }
+    }
+
+    /**
+     * Метод переносит месячные секции, закончившиеся до начала месяца, отстоящего от текущей даты на срок хранения,
+     * в архивную секцию. Архивная секция на время переноса отсоединяется и присоединяется обратно
+     * с новой верхней границей, строки при этом не копируются
+     *
+     * @param today - текущая дата
+     */
+    void archive(LocalDate today) {
+        if (!partitioned()) {
+            log.warn("Таблица bookings не секционирована, архивирование бронирований пропущено");
+            return;
+        }
+        LocalDate boundary = today.minusDays(retentionDays).withDayOfMonth(1);
+        List<Partition> partitions = partitions(BOOKINGS);
+        List<Partition> ended = partitions.stream()
+                .filter(partition -> !partition.isDefault() && !ARCHIVE.equals(partition.getName()))
+                .filter(partition -> partition.getTo() != null && !partition.getTo().isAfter(boundary))
+                .sorted(Comparator.comparing(Partition::getFrom, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .collect(Collectors.toList());
+        if (ended.isEmpty()) {
+            return;
+        }
+        setLockTimeout();
+        Partition archive = find(partitions, ARCHIVE);
+        LocalDate upper = boundary;
+        if (archive != null) {
+            jdbcTemplate.execute(String.format("alter table %s detach partition %s", BOOKINGS, ARCHIVE));
+            if (archive.getTo().isAfter(upper)) {
+                upper = archive.getTo();
+            }
+        } else {
+            jdbcTemplate.execute(String.format("create table %s (like %s including defaults) " +
+                    "partition by range (end_date)", ARCHIVE, BOOKINGS));
+        }
+        for (Partition partition : ended) {
+            jdbcTemplate.execute(String.format("alter table %s detach partition %s", BOOKINGS, partition.getName()));
+            jdbcTemplate.execute(String.format("alter table %s attach partition %s for values from (%s) to ('%s')",
+                    ARCHIVE, partition.getName(), partition.getFrom() == null ? "minvalue"
+                            : "'" + partition.getFrom().atStartOfDay().format(BOUND) + "'",
+                    partition.getTo().atStartOfDay().format(BOUND)));
+        }
+        jdbcTemplate.execute(String.format("alter table %s attach partition %s for values from (minvalue) to ('%s')",
+                BOOKINGS, ARCHIVE, upper.atStartOfDay().format(BOUND)));
+        log.info("В архив перенесено {} секций бронирований, закончившихся до {}", ended.size(), upper);
+    }
+
+    /**
+     * Метод возвращает начала месяцев, для которых нужно создать секции: месяцы от first до horizon и месяцы
+     * строк из секции по умолчанию, для которых еще нет секций
+     *
+     * @param partitions  - существующие секции
+     * @param strayMonths - начала месяцев строк из секции по умолчанию
+     * @param first       - начало текущего месяца
+     * @param horizon     - начало первого месяца, для которого секция заранее не создается
+     * @return - возвращает начала месяцев по возрастанию
+     */
+    static SortedSet<LocalDate> monthsToCreate(Collection<Partition> partitions, Collection<LocalDate> strayMonths,
+                                               LocalDate first, LocalDate horizon) {
+        SortedSet<LocalDate> months = new TreeSet<>(strayMonths);
+        for (LocalDate month = first; month.isBefore(horizon); month = month.plusMonths(1)) {
+            months.add(month);
+        }
+        for (Partition partition : partitions) {
+            if (partition.getFrom() != null && partition.getTo() != null) {
+                months.removeIf(month -> !month.isBefore(partition.getFrom()) && month.isBefore(partition.getTo()));
+            }
+        }
+        return months;
+    }
+
+    /**
+     * Метод разбирает описание границ секции
+     *
+     * @param name  - имя секции
+     * @param bound - описание границ, например FOR VALUES FROM ('2024-01-01 00:00:00') TO ('2024-02-01 00:00:00'),
+     *              FOR VALUES FROM (MINVALUE) TO ('2024-01-01 00:00:00') или DEFAULT
+     * @return - возвращает секцию, у которой отсутствующая граница равна null
+     */
+    static Partition partition(String name, String bound) {
+        if ("DEFAULT".equals(bound)) {
+            return new Partition(name, true, null, null);
+        }
+        Matcher matcher = RANGE.matcher(bound);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Неизвестные границы секции " + name + ": " + bound);
+        }
+        return new Partition(name, false, boundValue(matcher.group(1)), boundValue(matcher.group(2)));
+    }
+
+    private static LocalDate boundValue(String value) {
+        if (!value.startsWith("'")) {
+            return null;
+        }
+        return LocalDateTime.parse(value.substring(1, value.length() - 1), BOUND).toLocalDate();
+    }
+
+    private boolean partitioned() {
+        return !jdbcTemplate.queryForList("select 1 from pg_class where relname = ? and relkind = 'p'",
+                Integer.class, BOOKINGS).isEmpty();
+    }
+
+    private void setLockTimeout() {
+        jdbcTemplate.execute("set local lock_timeout = '" + lockTimeout + "'");
+    }
+
+    private List<Partition> partitions(String parent) {
+        return jdbcTemplate.query("select c.relname, pg_get_expr(c.relpartbound, c.oid) from pg_inherits i " +
+                        "join pg_class c on c.oid = i.inhrelid join pg_class p on p.oid = i.inhparent " +
+                        "where p.relname = ? and c.relkind in ('r', 'p')",
+                (rs, rowNum) -> partition(rs.getString(1), rs.getString(2)), parent);
+    }
+
+    private static Partition find(List<Partition> partitions, String name) {
+        return partitions.stream()
+                .filter(partition -> name.equals(partition.getName()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Getter
+    static class Partition {
+        private final String name;
+        private final boolean isDefault;
+        private final LocalDate from;
+        private final LocalDate to;
+
+        Partition(String name, boolean isDefault, LocalDate from, LocalDate to) {
+            this.name = name;
+            this.isDefault = isDefault;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
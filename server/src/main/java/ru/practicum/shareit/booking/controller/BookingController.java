@@ -1,8 +1,14 @@
 package ru.practicum.shareit.booking.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingStatusResultDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.booking.export.BookingExportFormat;
 import ru.practicum.shareit.booking.model.State;
 import ru.practicum.shareit.booking.service.BookingService;
 
@@ -30,6 +36,35 @@ public class BookingController {
         return bookingService.create(bookingDto, userId);
     }
 
+    /**
+     * Метод создает несколько бронирований при запросе POST /bookings/batch
+     *
+     * @param bookingDtos - полученный в теле запроса список объектов BookingDto
+     * @param userId      - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @return - возвращает для каждого бронирования созданный объект Booking (в виде BookingDto) или текст ошибки
+     */
+    @PostMapping("/batch")
+    public List<BookingBatchResultDto> createAll(@RequestBody List<BookingDto> bookingDtos,
+                                                 @RequestHeader("X-Sharer-User-Id") Long userId) {
+        return bookingService.createAll(bookingDtos, userId);
+    }
+
+    /**
+     * Метод устанавливает статус APPROVED или REJECTED для нескольких ожидающих бронирований
+     * при запросе PATCH /bookings/status
+     *
+     * @param userId     - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @param bookingIds - полученный в теле запроса список id бронирований
+     * @param approved   - статус бронирований
+     * @return - возвращает для каждого id бронирования установленный статус или текст ошибки
+     */
+    @PatchMapping("/status")
+    public List<BookingStatusResultDto> setStatusAll(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                     @RequestBody List<Long> bookingIds,
+                                                     @RequestParam boolean approved) {
+        return bookingService.setStatusAll(userId, bookingIds, approved);
+    }
+
     /**
      * Метод устанавливает статус APPROVED или REJECTED для существующего бронирования при запросе PATCH /bookings/{bookingId}
      *
@@ -63,17 +98,22 @@ public class BookingController {
      * @param state  - тип бронирования (ALL, CURRENT, PAST, FUTURE, WAITING, REJECTED)
      * @param from   - с какого бронирования начать (начиная с самого позднего по дате окончания)
      * @param size   - количество получаемых бронирований
-     * @return - возвращает список бронирований
+     * @param after  - курсор последнего бронирования предыдущей страницы (если передан, from не используется)
+     * @return - возвращает список бронирований (и курсор следующей страницы в заголовке X-Next-Cursor)
      */
     @GetMapping
-    public List<BookingDto> getAllBookingsByUser(@RequestHeader("X-Sharer-User-Id") Long userId,
-                                                 @RequestParam(required = false) State state,
-                                                 @RequestParam(defaultValue = "0") int from,
-                                                 @RequestParam(defaultValue = "20") int size) {
+    public ResponseEntity<List<BookingDto>> getAllBookingsByUser(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                                 @RequestParam(required = false) State state,
+                                                                 @RequestParam(defaultValue = "0") int from,
+                                                                 @RequestParam(defaultValue = "20") int size,
+                                                                 @RequestParam(required = false) String after) {
         if (state == null) {
             state = State.ALL;
         }
-        return bookingService.getAllBookingsByUser(userId, state, from, size);
+        if (after != null) {
+            return bookingService.getAllBookingsByUser(userId, state, after, size).toResponseEntity();
+        }
+        return ResponseEntity.ok(bookingService.getAllBookingsByUser(userId, state, from, size));
     }
 
     /**
@@ -83,16 +123,78 @@ public class BookingController {
      * @param state  - тип бронирования (ALL, CURRENT, PAST, FUTURE, WAITING, REJECTED)
      * @param from   - с какого бронирования начать (начиная с самого позднего по дате окончания)
      * @param size   - количество получаемых бронирований
-     * @return - возвращает список бронирований
+     * @param after  - курсор последнего бронирования предыдущей страницы (если передан, from не используется)
+     * @return - возвращает список бронирований (и курсор следующей страницы в заголовке X-Next-Cursor)
      */
     @GetMapping("/owner")
-    public List<BookingDto> getAllBookingsForItemsBelongToUser(@RequestHeader("X-Sharer-User-Id") Long userId,
-                                                               @RequestParam(required = false) State state,
-                                                               @RequestParam(defaultValue = "0") int from,
-                                                               @RequestParam(defaultValue = "20") int size) {
+    public ResponseEntity<List<BookingDto>> getAllBookingsForItemsBelongToUser(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                                               @RequestParam(required = false) State state,
+                                                                               @RequestParam(defaultValue = "0") int from,
+                                                                               @RequestParam(defaultValue = "20") int size,
+                                                                               @RequestParam(required = false) String after) {
         if (state == null) {
             state = State.ALL;
         }
-        return bookingService.getAllBookingsForItemsBelongToUser(userId, state, from, size);
+        if (after != null) {
+            return bookingService.getAllBookingsForItemsBelongToUser(userId, state, after, size).toResponseEntity();
+        }
+        return ResponseEntity.ok(bookingService.getAllBookingsForItemsBelongToUser(userId, state, from, size));
+    }
+
+    /**
+     * Метод возвращает количество бронирований пользователя по каждому типу при запросе GET /bookings/summary
+     *
+     * @param userId - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @return - возвращает объект BookingSummaryDto
+     */
+    @GetMapping("/summary")
+    public BookingSummaryDto getSummaryByUser(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return bookingService.getSummaryByUser(userId);
+    }
+
+    /**
+     * Метод возвращает количество бронирований для вещей, принадлежащих пользователю, по каждому типу
+     * при запросе GET /bookings/owner/summary
+     *
+     * @param userId - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @return - возвращает объект BookingSummaryDto
+     */
+    @GetMapping("/owner/summary")
+    public BookingSummaryDto getSummaryForItemsBelongToUser(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return bookingService.getSummaryForItemsBelongToUser(userId);
+    }
+
+    /**
+     * Метод выгружает все бронирования пользователя при запросе GET /bookings/export.
+     * Ответ записывается по мере чтения бронирований из базы
+     *
+     * @param userId - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @param format - формат выгрузки (NDJSON, CSV)
+     * @return - возвращает поток бронирований, начиная с самого позднего по дате окончания
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportByUser(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                              @RequestParam(defaultValue = "NDJSON")
+                                                              BookingExportFormat format) {
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .body(bookingService.exportByUser(userId, format));
+    }
+
+    /**
+     * Метод выгружает все бронирования для вещей, принадлежащих пользователю, при запросе GET /bookings/owner/export.
+     * Ответ записывается по мере чтения бронирований из базы
+     *
+     * @param userId - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @param format - формат выгрузки (NDJSON, CSV)
+     * @return - возвращает поток бронирований, начиная с самого позднего по дате окончания
+     */
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportForItemsBelongToUser(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                                            @RequestParam(defaultValue = "NDJSON")
+                                                                            BookingExportFormat format) {
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .body(bookingService.exportForItemsBelongToUser(userId, format));
     }
 }
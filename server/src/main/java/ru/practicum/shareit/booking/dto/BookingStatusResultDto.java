@@ -0,0 +1,15 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.booking.model.Status;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingStatusResultDto {
+    private Long bookingId;
+    private Status status;
+    private String error;
+}
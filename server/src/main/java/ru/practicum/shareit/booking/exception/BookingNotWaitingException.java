@@ -0,0 +1,12 @@
+package ru.practicum.shareit.booking.exception;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.shareit.booking.model.Status;
+
+@Slf4j
+public class BookingNotWaitingException extends RuntimeException {
+    public BookingNotWaitingException(long id, Status status) {
+        super(String.format("Бронирование с id=%d уже рассмотрено, текущий статус %s", id, status));
+        log.error("Бронирование с id={} уже рассмотрено, текущий статус {}", id, status);
+    }
+}
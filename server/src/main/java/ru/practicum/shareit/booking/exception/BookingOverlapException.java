@@ -0,0 +1,13 @@
+package ru.practicum.shareit.booking.exception;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+public class BookingOverlapException extends RuntimeException {
+    public BookingOverlapException(long itemId, LocalDateTime start, LocalDateTime end) {
+        super(String.format("Вещь с id=%d уже забронирована на период с %s по %s", itemId, start, end));
+        log.error("Вещь с id={} уже забронирована на период с {} по {}", itemId, start, end);
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.booking.exception;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class BookingStatusConflictException extends RuntimeException {
+    public BookingStatusConflictException(long id) {
+        super(String.format("Статус бронирования с id=%d одновременно меняется другим запросом", id));
+        log.error("Статус бронирования с id={} одновременно меняется другим запросом", id);
+    }
+}
@@ -0,0 +1,20 @@
+package ru.practicum.shareit.booking.export;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+
+/**
+ * Формат выгрузки бронирований
+ */
+
+@Getter
+@RequiredArgsConstructor
+public enum BookingExportFormat {
+    // Одно бронирование (BookingDto) в формате JSON на строку
+    NDJSON(MediaType.parseMediaType("application/x-ndjson")),
+    // Таблица с заголовком, одно бронирование на строку
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"));
+
+    private final MediaType mediaType;
+}
@@ -0,0 +1,111 @@
+package ru.practicum.shareit.booking.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingMapper;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Выгрузка всех бронирований пользователя в поток вывода.
+ * Бронирования читаются из базы курсором порциями по FETCH_SIZE и сразу записываются в поток,
+ * а контекст хранения очищается после каждой порции, поэтому расход памяти не зависит от количества бронирований
+ */
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingExporter {
+    // Должен совпадать с подсказкой org.hibernate.fetchSize в запросах BookingRepository.streamAllBy...
+    static final int FETCH_SIZE = 500;
+    private static final String CSV_HEADER = "id,start,end,status,item_id,item_name,booker_id,booker_name";
+
+    private final BookingRepository bookingRepository;
+    private final ObjectMapper objectMapper;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Метод записывает в поток все бронирования пользователя, начиная с самого позднего по дате окончания
+     *
+     * @param userId - id автора бронирований
+     * @param format - формат выгрузки
+     * @param out    - поток вывода
+     */
+    @Transactional(readOnly = true)
+    public void exportByBooker(Long userId, BookingExportFormat format, OutputStream out) throws IOException {
+        try (Stream<Booking> bookings = bookingRepository.streamAllByBookerId(userId)) {
+            long count = write(bookings, format, out);
+            log.info("Выгружено {} бронирований пользователя с id={}", count, userId);
+        }
+    }
+
+    /**
+     * Метод записывает в поток все бронирования вещей пользователя, начиная с самого позднего по дате окончания
+     *
+     * @param userId - id владельца вещей
+     * @param format - формат выгрузки
+     * @param out    - поток вывода
+     */
+    @Transactional(readOnly = true)
+    public void exportByOwner(Long userId, BookingExportFormat format, OutputStream out) throws IOException {
+        try (Stream<Booking> bookings = bookingRepository.streamAllByOwner(userId)) {
+            long count = write(bookings, format, out);
+            log.info("Выгружено {} бронирований вещей пользователя с id={}", count, userId);
+        }
+    }
+
+    private long write(Stream<Booking> bookings, BookingExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == BookingExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        long count = 0;
+        Iterator<Booking> iterator = bookings.iterator();
+        while (iterator.hasNext()) {
+            Booking booking = iterator.next();
+            writer.write(format == BookingExportFormat.CSV ? toCsv(booking)
+                    : objectMapper.writeValueAsString(BookingMapper.toBookingDto(booking)));
+            writer.write('\n');
+            if (++count % FETCH_SIZE == 0) {
+                entityManager.clear();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static String toCsv(Booking booking) {
+        return booking.getId() + "," + booking.getStart() + "," + booking.getEnd() + "," + booking.getStatus() + "," +
+                booking.getItem().getId() + "," + escape(booking.getItem().getName()) + "," +
+                booking.getBooker().getId() + "," + escape(booking.getBooker().getName());
+    }
+
+    /**
+     * Метод заключает значение в кавычки, если в нем есть запятая, кавычка или перевод строки
+     */
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
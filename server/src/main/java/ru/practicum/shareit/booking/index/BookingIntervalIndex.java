@@ -0,0 +1,226 @@
+package ru.practicum.shareit.booking.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.exception.BookingOverlapException;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.transaction.AfterCommit;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Индекс занятых периодов вещей (бронирования в статусах WAITING и APPROVED, которые еще не закончились).
+ * Для каждой вещи хранится упорядоченный по началу набор непересекающихся отрезков [start, end),
+ * поэтому проверка пересечения нового бронирования стоит O(log n) от числа бронирований вещи.
+ * Бронирования одной вещи обрабатываются под одной блокировкой из фиксированного набора,
+ * разные вещи блокируют друг друга только при совпадении номера блокировки.
+ * Индекс хранится в памяти одного экземпляра сервера и видит лишь бронирования, созданные этим экземпляром,
+ * поэтому он только быстро отсекает пересечения: окончательно пересечение проверяется запросом к базе
+ * под блокировкой строки вещи (BookingServiceImpl)
+ */
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingIntervalIndex {
+    private static final int STRIPES = 64;
+    private static final List<Status> ACTIVE = List.of(Status.WAITING, Status.APPROVED);
+
+    private final BookingRepository bookingRepository;
+    private volatile Map<Long, Timeline> timelines = new ConcurrentHashMap<>();
+    private final Lock[] locks = createLocks();
+
+    /**
+     * Метод заполняет индекс незакончившимися бронированиями при старте приложения, до приема запросов,
+     * поэтому ни одно бронирование не создается до заполнения индекса.
+     * Индекс строится в новой карте, которая заменяет прежнюю целиком
+     */
+    @PostConstruct
+    public void rebuild() {
+        List<Booking> bookings = bookingRepository.findAllByStatusInAndEndIsAfter(ACTIVE, LocalDateTime.now());
+        Map<Long, Timeline> rebuilt = new ConcurrentHashMap<>();
+        for (Booking booking : bookings) {
+            rebuilt.computeIfAbsent(booking.getItem().getId(), key -> new Timeline())
+                    .add(booking.getId(), booking.getStart(), booking.getEnd());
+        }
+        timelines = rebuilt;
+        log.info("Индекс занятых периодов построен, проиндексировано {} бронирований", bookings.size());
+    }
+
+    /**
+     * Метод занимает период бронирования, если он не пересекается с уже занятыми периодами вещи.
+     * Внутри транзакции период освобождается, если она не завершилась успешно
+     *
+     * @param booking - сохраненное бронирование
+     */
+    public void reserve(Booking booking) {
+        Long id = booking.getId();
+        Long itemId = booking.getItem().getId();
+        Lock lock = lock(itemId);
+        lock.lock();
+        try {
+            Timeline timeline = timelines.computeIfAbsent(itemId, key -> new Timeline());
+            timeline.prune(LocalDateTime.now());
+            if (timeline.overlaps(booking.getStart(), booking.getEnd())) {
+                throw new BookingOverlapException(itemId, booking.getStart(), booking.getEnd());
+            }
+            timeline.add(id, booking.getStart(), booking.getEnd());
+        } finally {
+            lock.unlock();
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        remove(itemId, id);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Метод освобождает период бронирования.
+     * Внутри транзакции период освобождается только после её успешного завершения
+     *
+     * @param booking - отклоненное бронирование
+     */
+    public void release(Booking booking) {
+        Long id = booking.getId();
+        Long itemId = booking.getItem().getId();
+        AfterCommit.run(() -> remove(itemId, id));
+    }
+
+    /**
+     * Метод проверяет, свободен ли период у вещи (без занятия периода)
+     *
+     * @param itemId - id вещи
+     * @param start  - начало периода
+     * @param end    - конец периода
+     * @return - возвращает true, если период не пересекается с занятыми периодами вещи
+     */
+    public boolean isFree(Long itemId, LocalDateTime start, LocalDateTime end) {
+        Lock lock = lock(itemId);
+        lock.lock();
+        try {
+            Timeline timeline = timelines.get(itemId);
+            return timeline == null || !timeline.overlaps(start, end);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(Long itemId, Long id) {
+        Lock lock = lock(itemId);
+        lock.lock();
+        try {
+            Timeline timeline = timelines.get(itemId);
+            if (timeline != null) {
+                timeline.remove(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Lock lock(Long itemId) {
+        return locks[Math.floorMod(itemId.hashCode(), STRIPES)];
+    }
+
+    private static Lock[] createLocks() {
+        Lock[] locks = new Lock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    /**
+     * Занятые периоды одной вещи. Пересекающиеся бронирования (например, созданные до появления проверки)
+     * объединяются в один отрезок, поэтому отрезки в дереве не пересекаются и для проверки
+     * достаточно посмотреть на отрезок с ближайшим началом
+     */
+    private static class Timeline {
+        private final TreeMap<LocalDateTime, Span> spans = new TreeMap<>();
+        private final Map<Long, Span> spanByBooking = new HashMap<>();
+
+        private boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            Map.Entry<LocalDateTime, Span> previous = spans.lowerEntry(end);
+            return previous != null && previous.getValue().end.isAfter(start);
+        }
+
+        private void add(Long id, LocalDateTime start, LocalDateTime end) {
+            Span span = new Span(start, end);
+            span.bookings.put(id, new LocalDateTime[]{start, end});
+            Map.Entry<LocalDateTime, Span> previous = spans.lowerEntry(end);
+            while (previous != null && previous.getValue().end.isAfter(start)) {
+                Span merged = spans.remove(previous.getKey());
+                span.merge(merged);
+                start = span.start;
+                previous = spans.lowerEntry(span.end);
+            }
+            spans.put(span.start, span);
+            for (Long bookingId : span.bookings.keySet()) {
+                spanByBooking.put(bookingId, span);
+            }
+        }
+
+        private void remove(Long id) {
+            Span span = spanByBooking.remove(id);
+            if (span == null) {
+                return;
+            }
+            spans.remove(span.start);
+            span.bookings.remove(id);
+            for (Map.Entry<Long, LocalDateTime[]> booking : span.bookings.entrySet()) {
+                add(booking.getKey(), booking.getValue()[0], booking.getValue()[1]);
+            }
+        }
+
+        /**
+         * Метод удаляет отрезки, которые закончились до указанного момента
+         *
+         * @param date - текущие дата и время
+         */
+        private void prune(LocalDateTime date) {
+            Map.Entry<LocalDateTime, Span> first = spans.firstEntry();
+            while (first != null && !first.getValue().end.isAfter(date)) {
+                spans.pollFirstEntry();
+                first.getValue().bookings.keySet().forEach(spanByBooking::remove);
+                first = spans.firstEntry();
+            }
+        }
+    }
+
+    private static class Span {
+        private final Map<Long, LocalDateTime[]> bookings = new HashMap<>();
+        private LocalDateTime start;
+        private LocalDateTime end;
+
+        private Span(LocalDateTime start, LocalDateTime end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private void merge(Span other) {
+            if (other.start.isBefore(start)) {
+                start = other.start;
+            }
+            if (other.end.isAfter(end)) {
+                end = other.end;
+            }
+            bookings.putAll(other.bookings);
+        }
+    }
+}
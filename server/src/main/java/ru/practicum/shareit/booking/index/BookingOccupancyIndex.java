@@ -0,0 +1,202 @@
+package ru.practicum.shareit.booking.index;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.transaction.AfterCommit;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Занятость вещей по дням: для каждой вещи хранится битовая карта, в которой бит равен 1,
+ * если на этот день приходится хотя бы одно бронирование в статусе WAITING или APPROVED.
+ * Карта вещи начинается с первого занятого дня и заканчивается последним, поэтому её размер
+ * зависит от длины занятого периода, а не от количества дней с начала отсчета.
+ * Свободна ли вещь в диапазоне дней, проверяется поиском установленного бита в диапазоне.
+ * Карты строятся до приема запросов и содержат только бронирования, не закончившиеся к моменту построения
+ */
+
+@Slf4j
+@Component
+public class BookingOccupancyIndex {
+    private static final List<Status> ACTIVE = List.of(Status.WAITING, Status.APPROVED);
+    // Примерный размер записи вещи без битовой карты (ключ, объект занятости, BitSet, карта бронирований)
+    private static final long ENTRY_OVERHEAD = 160;
+    // Примерный размер записи одного бронирования в карте бронирований вещи
+    private static final long BOOKING_OVERHEAD = 80;
+
+    private final BookingRepository bookingRepository;
+    private volatile Map<Long, Occupancy> occupancies = new ConcurrentHashMap<>();
+    private final Timer rebuildTimer;
+
+    public BookingOccupancyIndex(BookingRepository bookingRepository, MeterRegistry meterRegistry) {
+        this.bookingRepository = bookingRepository;
+        rebuildTimer = meterRegistry.timer("shareit.booking.occupancy.rebuild");
+        Gauge.builder("shareit.booking.occupancy.items", this, index -> index.occupancies.size())
+                .register(meterRegistry);
+        Gauge.builder("shareit.booking.occupancy.memory", this, BookingOccupancyIndex::memory)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Метод заполняет карты занятости незакончившимися бронированиями при старте приложения (до приема запросов).
+     * Карты строятся заново и заменяют прежние целиком
+     */
+    @PostConstruct
+    public void rebuild() {
+        rebuildTimer.record(() -> {
+            List<Booking> bookings = bookingRepository.findAllByStatusInAndEndIsAfter(ACTIVE, LocalDateTime.now());
+            Map<Long, Occupancy> rebuilt = new ConcurrentHashMap<>();
+            for (Booking booking : bookings) {
+                add(rebuilt, booking.getItem().getId(), booking.getId(), booking.getStart(), booking.getEnd());
+            }
+            occupancies = rebuilt;
+            log.info("Карты занятости построены для {} вещей, проиндексировано {} бронирований",
+                    rebuilt.size(), bookings.size());
+        });
+    }
+
+    /**
+     * Метод отмечает дни бронирования как занятые.
+     * Внутри транзакции дни отмечаются только после её успешного завершения
+     *
+     * @param booking - сохраненное бронирование
+     */
+    public void occupy(Booking booking) {
+        Long itemId = booking.getItem().getId();
+        Long id = booking.getId();
+        LocalDateTime start = booking.getStart();
+        LocalDateTime end = booking.getEnd();
+        AfterCommit.run(() -> add(occupancies, itemId, id, start, end));
+    }
+
+    /**
+     * Метод освобождает дни бронирования (дни, занятые другими бронированиями вещи, остаются занятыми).
+     * Внутри транзакции дни освобождаются только после её успешного завершения
+     *
+     * @param booking - отклоненное бронирование
+     */
+    public void vacate(Booking booking) {
+        Long itemId = booking.getItem().getId();
+        Long id = booking.getId();
+        AfterCommit.run(() -> remove(itemId, id));
+    }
+
+    /**
+     * Метод проверяет, что ни один день периода не занят бронированиями вещи.
+     * Проверка идет по дням, поэтому вещь, занятая только часть дня, считается занятой весь день
+     *
+     * @param itemId - id вещи
+     * @param start  - начало периода
+     * @param end    - конец периода
+     * @return - возвращает true, если все дни периода свободны
+     */
+    public boolean isFree(Long itemId, LocalDateTime start, LocalDateTime end) {
+        Occupancy occupancy = occupancies.get(itemId);
+        return occupancy == null || occupancy.isFree(start.toLocalDate().toEpochDay(), lastDay(start, end));
+    }
+
+    /**
+     * Метод возвращает примерный объем памяти, занятый картами занятости
+     *
+     * @return - возвращает количество байт
+     */
+    public long memory() {
+        long memory = 0;
+        for (Occupancy occupancy : occupancies.values()) {
+            memory += occupancy.memory();
+        }
+        return memory;
+    }
+
+    private static void add(Map<Long, Occupancy> target, Long itemId, Long id, LocalDateTime start,
+                            LocalDateTime end) {
+        target.computeIfAbsent(itemId, key -> new Occupancy())
+                .add(id, start.toLocalDate().toEpochDay(), lastDay(start, end));
+    }
+
+    private void remove(Long itemId, Long id) {
+        occupancies.computeIfPresent(itemId, (key, occupancy) -> occupancy.remove(id, LocalDate.now().toEpochDay())
+                ? null : occupancy);
+    }
+
+    /**
+     * Метод возвращает последний день периода [start, end): если период заканчивается ровно в полночь,
+     * следующий день не занят
+     */
+    private static long lastDay(LocalDateTime start, LocalDateTime end) {
+        LocalDate last = end.toLocalTime().equals(LocalTime.MIDNIGHT) ? end.toLocalDate().minusDays(1)
+                : end.toLocalDate();
+        return Math.max(start.toLocalDate().toEpochDay(), last.toEpochDay());
+    }
+
+    /**
+     * Занятость одной вещи: бит i соответствует дню base + i
+     */
+    private static class Occupancy {
+        private final Map<Long, long[]> bookings = new HashMap<>();
+        private BitSet days = new BitSet();
+        private long base;
+
+        private synchronized void add(Long id, long firstDay, long lastDay) {
+            bookings.put(id, new long[]{firstDay, lastDay});
+            if (bookings.size() > 1 && firstDay >= base) {
+                days.set((int) (firstDay - base), (int) (lastDay - base) + 1);
+            } else {
+                fill();
+            }
+        }
+
+        /**
+         * Метод удаляет бронирование и пересобирает карту без него и без закончившихся бронирований
+         *
+         * @param id    - id бронирования
+         * @param today - текущий день
+         * @return - возвращает true, если у вещи не осталось бронирований
+         */
+        private synchronized boolean remove(Long id, long today) {
+            if (bookings.remove(id) != null) {
+                bookings.values().removeIf(period -> period[1] < today);
+                fill();
+            }
+            return bookings.isEmpty();
+        }
+
+        private synchronized boolean isFree(long firstDay, long lastDay) {
+            if (bookings.isEmpty() || lastDay < base) {
+                return true;
+            }
+            int occupied = days.nextSetBit((int) Math.max(0, firstDay - base));
+            return occupied < 0 || occupied > lastDay - base;
+        }
+
+        private synchronized long memory() {
+            return ENTRY_OVERHEAD + bookings.size() * BOOKING_OVERHEAD + days.size() / Byte.SIZE;
+        }
+
+        private void fill() {
+            base = Long.MAX_VALUE;
+            for (long[] period : bookings.values()) {
+                base = Math.min(base, period[0]);
+            }
+            days = new BitSet();
+            for (long[] period : bookings.values()) {
+                days.set((int) (period[0] - base), (int) (period[1] - base) + 1);
+            }
+        }
+    }
+}
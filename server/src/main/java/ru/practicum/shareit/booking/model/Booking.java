@@ -33,4 +33,7 @@ public class Booking {
     @Enumerated(EnumType.STRING)
     @Column(name = "status")
     private Status status;
+    @Version
+    @Column(name = "version")
+    private Long version;
 }
@@ -1,40 +1,91 @@
 package ru.practicum.shareit.booking.repository;
 
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.Status;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface BookingRepository extends JpaRepository<Booking, Long> {
-    List<Booking> findAllByBookerIdOrderByEndDesc(Long userId, Pageable pageable);
+public interface BookingRepository extends JpaRepository<Booking, Long>, BookingRepositoryCustom {
+    @Override
+    @EntityGraph(attributePaths = {"booker", "item"})
+    Optional<Booking> findById(Long id);
 
-    List<Booking> findAllByBookerIdAndStartIsBeforeAndEndIsAfterOrderByEndDesc(Long userId, LocalDateTime date1, LocalDateTime date2, Pageable pageable);
+    @EntityGraph(attributePaths = {"booker", "item"})
+    Optional<Booking> findFirst1ByItemIdAndStartIsBeforeAndStatusIsNotOrderByEndDesc(Long itemId, LocalDateTime date, Status status);
 
-    List<Booking> findAllByBookerIdAndEndIsBeforeOrderByEndDesc(Long userId, LocalDateTime date);
+    @EntityGraph(attributePaths = {"booker", "item"})
+    Optional<Booking> findFirst1ByItemIdAndStartIsAfterAndStatusIsNotOrderByStartAsc(Long itemId, LocalDateTime date, Status status);
 
-    List<Booking> findAllByBookerIdAndEndIsBeforeOrderByEndDesc(Long userId, LocalDateTime date, Pageable pageable);
+    @Query("select b from Booking b join fetch b.booker join fetch b.item i " +
+            "where i.id in ?1 and b.status <> ?3 and (" +
+            "(b.start < ?2 and b.end = (select max(l.end) from Booking l " +
+            "where l.item.id = i.id and l.start < ?2 and l.status <> ?3)) or " +
+            "(b.start > ?2 and b.start = (select min(n.start) from Booking n " +
+            "where n.item.id = i.id and n.start > ?2 and n.status <> ?3)))")
+    List<Booking> findLastAndNextByItemIdIn(List<Long> itemIds, LocalDateTime date, Status status);
 
-    List<Booking> findAllByBookerIdAndStartIsAfterOrderByEndDesc(Long userId, LocalDateTime date, Pageable pageable);
+    boolean existsByBookerIdAndItemIdAndEndIsBeforeAndStatus(Long bookerId, Long itemId, LocalDateTime date,
+                                                             Status status);
 
-    List<Booking> findAllByBookerIdAndStatusOrderByEndDesc(Long userId, Status status, Pageable pageable);
+    @Query("select case when count(b) > 0 then true else false end from Booking b " +
+            "where b.item.id = ?1 and b.start < ?3 and b.end > ?2 and b.status <> ?5 and b.id <> ?4")
+    boolean existsOverlapping(Long itemId, LocalDateTime start, LocalDateTime end, Long excludedId, Status status);
 
-    List<Booking> findAllByItemOwnerOrderByEndDesc(Long userId, Pageable pageable);
+    @Query("select b.start as start, b.end as end from Booking b " +
+            "where b.item.id = ?1 and b.end > ?2 and b.start < ?3 and b.status <> ?4 order by b.start")
+    List<BookingPeriod> findPeriods(Long itemId, LocalDateTime from, LocalDateTime to, Status status);
 
-    List<Booking> findAllByItemOwnerAndStartIsBeforeAndEndIsAfterOrderByEndDesc(Long userId, LocalDateTime date1, LocalDateTime date2, Pageable pageable);
+    @EntityGraph(attributePaths = {"item"})
+    List<Booking> findAllByStatusInAndEndIsAfter(List<Status> statuses, LocalDateTime date);
 
-    List<Booking> findAllByItemOwnerAndEndIsBeforeOrderByEndDesc(Long userId, LocalDateTime date, Pageable pageable);
+    @Modifying(clearAutomatically = true)
+    @Query("update Booking b set b.status = ?3, b.version = b.version + 1 where b.id = ?1 and b.status = ?2")
+    int updateStatus(Long id, Status expected, Status status);
 
-    List<Booking> findAllByItemOwnerAndStartIsAfterOrderByEndDesc(Long userId, LocalDateTime date, Pageable pageable);
+    @Query("select b from Booking b join fetch b.item join fetch b.booker where b.id in ?1")
+    List<Booking> findAllWithItemAndBookerByIdIn(Collection<Long> ids);
 
-    List<Booking> findAllByItemOwnerAndStatusOrderByEndDesc(Long userId, Status status, Pageable pageable);
+    @QueryHints({@QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    @Query("select b from Booking b join fetch b.booker join fetch b.item " +
+            "where b.booker.id = ?1 order by b.end desc, b.id desc")
+    Stream<Booking> streamAllByBookerId(Long bookerId);
 
-    Optional<Booking> findFirst1ByItemIdAndStartIsBeforeAndStatusIsNotOrderByEndDesc(Long itemId, LocalDateTime date, Status status);
+    @QueryHints({@QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    @Query("select b from Booking b join fetch b.booker join fetch b.item i " +
+            "where i.owner = ?1 order by b.end desc, b.id desc")
+    Stream<Booking> streamAllByOwner(Long ownerId);
 
-    Optional<Booking> findFirst1ByItemIdAndStartIsAfterAndStatusIsNotOrderByStartAsc(Long itemId, LocalDateTime date, Status status);
+    @Query("select b.booker.id as userId, b.status as status, count(b) as count from Booking b " +
+            "group by b.booker.id, b.status")
+    List<BookingStatusCount> countByBookerAndStatus();
+
+    @Query("select i.owner as userId, b.status as status, count(b) as count from Booking b join b.item i " +
+            "group by i.owner, b.status")
+    List<BookingStatusCount> countByOwnerAndStatus();
+
+    @Query("select coalesce(sum(case when b.start < ?2 and b.end > ?2 then 1 else 0 end), 0) as currentCount, " +
+            "coalesce(sum(case when b.start > ?2 then 1 else 0 end), 0) as futureCount, " +
+            "count(b) as unfinishedCount " +
+            "from Booking b where b.booker.id = ?1 and b.end >= ?2")
+    BookingTimeCount countByBookerAndTime(Long bookerId, LocalDateTime date);
+
+    @Query("select coalesce(sum(case when b.start < ?2 and b.end > ?2 then 1 else 0 end), 0) as currentCount, " +
+            "coalesce(sum(case when b.start > ?2 then 1 else 0 end), 0) as futureCount, " +
+            "count(b) as unfinishedCount " +
+            "from Booking b join b.item i where i.owner = ?1 and b.end >= ?2")
+    BookingTimeCount countByOwnerAndTime(Long ownerId, LocalDateTime date);
 }
@@ -0,0 +1,19 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface BookingRepositoryCustom {
+    Slice<Booking> findSlice(Specification<Booking> specification, Pageable pageable);
+
+    List<Booking> insertAll(List<Booking> bookings);
+
+    Set<Long> updateStatusForOwner(Collection<Long> ids, Long ownerId, Status expected, Status status);
+}
@@ -0,0 +1,144 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.hibernate.Session;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class BookingRepositoryCustomImpl implements BookingRepositoryCustom {
+    private static final String INSERT = "insert into bookings (start_date, end_date, item_id, booker_id, status, version) " +
+            "values (?, ?, ?, ?, ?, 0)";
+    private static final String UPDATE_STATUS_FOR_OWNER = "update bookings set status = ?, version = version + 1 " +
+            "where id = ? and status = ? and item_id in (select id from items where owner_id = ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Метод возвращает страницу бронирований, подходящих под условие, вместе с автором и вещью.
+     * Вместо запроса на подсчет общего количества выбирается на одно бронирование больше размера страницы
+     *
+     * @param specification - условие выборки
+     * @param pageable      - номер, размер страницы и порядок сортировки
+     * @return - возвращает страницу бронирований и признак наличия следующей
+     */
+    @Override
+    public Slice<Booking> findSlice(Specification<Booking> specification, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Booking> query = builder.createQuery(Booking.class);
+        Root<Booking> root = query.from(Booking.class);
+        query.select(root)
+                .where(specification.toPredicate(root, query, builder))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+        EntityGraph<Booking> graph = entityManager.createEntityGraph(Booking.class);
+        graph.addAttributeNodes("booker", "item");
+        List<Booking> result = entityManager.createQuery(query)
+                .setHint("javax.persistence.loadgraph", graph)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = result.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? result.subList(0, pageable.getPageSize()) : result, pageable, hasNext);
+    }
+
+    /**
+     * Метод сохраняет новые бронирования одним пакетом JDBC-вставок и проставляет им сгенерированные id.
+     * Hibernate не объединяет вставки в пакеты для IDENTITY-ключей, поэтому вставка выполняется напрямую
+     * через соединение текущей транзакции
+     *
+     * @param bookings - новые бронирования
+     * @return - возвращает те же бронирования с заполненными id и версией
+     */
+    @Override
+    public List<Booking> insertAll(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return bookings;
+        }
+        entityManager.flush();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT, new String[]{"id"})) {
+                for (Booking booking : bookings) {
+                    statement.setTimestamp(1, Timestamp.valueOf(booking.getStart()));
+                    statement.setTimestamp(2, Timestamp.valueOf(booking.getEnd()));
+                    statement.setLong(3, booking.getItem().getId());
+                    statement.setLong(4, booking.getBooker().getId());
+                    statement.setString(5, booking.getStatus().name());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (Booking booking : bookings) {
+                        keys.next();
+                        booking.setId(keys.getLong(1));
+                        booking.setVersion(0L);
+                    }
+                }
+            }
+        });
+        return bookings;
+    }
+
+    /**
+     * Метод меняет статус бронирований владельца вещей, если у них ожидаемый статус.
+     * Каждое бронирование обновляется своим условным UPDATE в одном пакете JDBC, поэтому по числу измененных строк
+     * каждого UPDATE известно, какие именно бронирования изменил этот вызов, а не параллельный запрос.
+     * Как и @Modifying(clearAutomatically = true), метод очищает контекст персистентности,
+     * чтобы последующие чтения вернули новый статус
+     *
+     * @param ids      - id бронирований
+     * @param ownerId  - id владельца вещей
+     * @param expected - ожидаемый статус
+     * @param status   - новый статус
+     * @return - возвращает id измененных бронирований
+     */
+    @Override
+    public Set<Long> updateStatusForOwner(Collection<Long> ids, Long ownerId, Status expected, Status status) {
+        Set<Long> updated = new HashSet<>();
+        if (ids.isEmpty()) {
+            return updated;
+        }
+        List<Long> batch = new ArrayList<>(ids);
+        entityManager.flush();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_STATUS_FOR_OWNER)) {
+                for (Long id : batch) {
+                    statement.setString(1, status.name());
+                    statement.setLong(2, id);
+                    statement.setString(3, expected.name());
+                    statement.setLong(4, ownerId);
+                    statement.addBatch();
+                }
+                int[] counts = statement.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == PreparedStatement.SUCCESS_NO_INFO) {
+                        throw new IllegalStateException("Драйвер не сообщил число измененных строк");
+                    }
+                    if (counts[i] > 0) {
+                        updated.add(batch.get(i));
+                    }
+                }
+            }
+        });
+        entityManager.clear();
+        return updated;
+    }
+}
@@ -0,0 +1,89 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.State;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.pagination.Cursor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Условия выборки бронирований для BookingRepository.findSlice(Specification, Pageable).
+ * Выборка всегда идет по автору или по владельцу вещи с сортировкой BY_END_DESC.
+ * Бронирования автора читаются по индексу (booker_id, end_date, id) сразу в нужном порядке.
+ * Для владельца сначала по индексу items_owner_idx (owner_id, id) находятся его вещи, затем бронирования
+ * каждой вещи читаются по bookings_item_end_idx (item_id, end_date, id), и результат сортируется.
+ * Условия на даты и статус проверяются при проходе по индексу
+ */
+
+public class BookingSpecifications {
+    public static final Sort BY_END_DESC = Sort.by(Sort.Direction.DESC, "end", "id");
+
+    /**
+     * Метод возвращает условие "автор бронирования - пользователь"
+     *
+     * @param userId - id пользователя
+     * @return - возвращает условие
+     */
+    public static Specification<Booking> bookerIs(Long userId) {
+        return (root, query, builder) -> builder.equal(root.get("booker").get("id"), userId);
+    }
+
+    /**
+     * Метод возвращает условие "владелец вещи - пользователь"
+     *
+     * @param userId - id пользователя
+     * @return - возвращает условие
+     */
+    public static Specification<Booking> ownerIs(Long userId) {
+        return (root, query, builder) -> builder.equal(root.get("item").get("owner"), userId);
+    }
+
+    /**
+     * Метод возвращает условие для типа бронирования (ALL, CURRENT, PAST, FUTURE, WAITING, REJECTED)
+     *
+     * @param state - тип бронирования
+     * @param date  - текущие дата и время
+     * @return - возвращает условие
+     */
+    public static Specification<Booking> inState(State state, LocalDateTime date) {
+        return (root, query, builder) -> {
+            switch (state) {
+                case ALL:
+                    return builder.conjunction();
+                case CURRENT:
+                    return builder.and(builder.lessThan(root.get("start"), date),
+                            builder.greaterThan(root.get("end"), date));
+                case PAST:
+                    return builder.lessThan(root.get("end"), date);
+                case FUTURE:
+                    return builder.greaterThan(root.get("start"), date);
+                case WAITING:
+                    return builder.equal(root.get("status"), Status.WAITING);
+                case REJECTED:
+                    return builder.equal(root.get("status"), Status.REJECTED);
+                default:
+                    throw new IllegalArgumentException();
+            }
+        };
+    }
+
+    /**
+     * Метод возвращает условие "бронирование идет после курсора" при сортировке по дате окончания (по убыванию) и id
+     *
+     * @param cursor - курсор последнего бронирования предыдущей страницы (null - с начала)
+     * @return - возвращает условие
+     */
+    public static Specification<Booking> endAfterCursor(Cursor cursor) {
+        return (root, query, builder) -> {
+            if (cursor == null) {
+                return builder.conjunction();
+            }
+            LocalDateTime end = cursor.getDateTime();
+            return builder.or(builder.lessThan(root.get("end"), end),
+                    builder.and(builder.equal(root.get("end"), end), builder.lessThan(root.get("id"), cursor.getId())));
+        };
+    }
+}
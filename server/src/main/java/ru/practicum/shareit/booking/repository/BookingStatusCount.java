@@ -0,0 +1,15 @@
+package ru.practicum.shareit.booking.repository;
+
+import ru.practicum.shareit.booking.model.Status;
+
+/**
+ * Количество бронирований пользователя в одном статусе
+ */
+
+public interface BookingStatusCount {
+    Long getUserId();
+
+    Status getStatus();
+
+    Long getCount();
+}
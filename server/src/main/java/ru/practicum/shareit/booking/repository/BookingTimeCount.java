@@ -0,0 +1,15 @@
+package ru.practicum.shareit.booking.repository;
+
+/**
+ * Количество текущих, будущих и всех незавершенных бронирований пользователя.
+ * Считается только по бронированиям, которые закончились не раньше заданного момента, поэтому запрос
+ * читает диапазон индекса по дате окончания, а не всю историю пользователя
+ */
+
+public interface BookingTimeCount {
+    Long getCurrentCount();
+
+    Long getFutureCount();
+
+    Long getUnfinishedCount();
+}
@@ -1,7 +1,13 @@
 package ru.practicum.shareit.booking.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingStatusResultDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.booking.export.BookingExportFormat;
 import ru.practicum.shareit.booking.model.State;
+import ru.practicum.shareit.pagination.CursorPage;
 
 import java.util.List;
 
@@ -19,6 +25,15 @@ public interface BookingService {
      */
     BookingDto create(BookingDto bookingDto, Long userId);
 
+    /**
+     * Метод создает несколько бронирований одного пользователя
+     *
+     * @param bookingDtos - объекты для создания бронирований
+     * @param userId      - id автора бронирований
+     * @return - возвращает результат для каждого бронирования в том же порядке
+     */
+    List<BookingBatchResultDto> createAll(List<BookingDto> bookingDtos, Long userId);
+
     /**
      * Метод меняет статус для существующего бронирования (APPROVED или REJECTED)
      *
@@ -29,6 +44,16 @@ public interface BookingService {
      */
     BookingDto setStatus(Long userId, Long bookingId, boolean approved);
 
+    /**
+     * Метод меняет статус ожидающих подтверждения бронирований владельца (APPROVED или REJECTED)
+     *
+     * @param userId     - id владельца вещей
+     * @param bookingIds - id бронирований
+     * @param approved   - статус бронирований
+     * @return - возвращает результат для каждого id бронирования
+     */
+    List<BookingStatusResultDto> setStatusAll(Long userId, List<Long> bookingIds, boolean approved);
+
     /**
      * Метод возвращает бронирование по id
      *
@@ -59,4 +84,62 @@ public interface BookingService {
      * @return - возвращает список бронирований
      */
     List<BookingDto> getAllBookingsForItemsBelongToUser(Long userId, State state, int from, int size);
+
+    /**
+     * Метод возвращает страницу бронирований пользователя по типу бронирования, начиная после курсора
+     *
+     * @param userId - id пользователя
+     * @param state  - тип бронирования (ALL, CURRENT, PAST, FUTURE, WAITING, REJECTED)
+     * @param after  - курсор последнего бронирования предыдущей страницы (пустая строка - с начала)
+     * @param size   - количество получаемых бронирований
+     * @return - возвращает страницу бронирований и курсор следующей страницы
+     */
+    CursorPage<BookingDto> getAllBookingsByUser(Long userId, State state, String after, int size);
+
+    /**
+     * Метод возвращает страницу бронирований для вещей пользователя по типу бронирования, начиная после курсора
+     *
+     * @param userId - id пользователя
+     * @param state  - тип бронирования (ALL, CURRENT, PAST, FUTURE, WAITING, REJECTED)
+     * @param after  - курсор последнего бронирования предыдущей страницы (пустая строка - с начала)
+     * @param size   - количество получаемых бронирований
+     * @return - возвращает страницу бронирований и курсор следующей страницы
+     */
+    CursorPage<BookingDto> getAllBookingsForItemsBelongToUser(Long userId, State state, String after, int size);
+
+    /**
+     * Метод возвращает количество бронирований пользователя по каждому типу бронирования
+     *
+     * @param userId - id пользователя
+     * @return - возвращает количество бронирований по типам
+     */
+    BookingSummaryDto getSummaryByUser(Long userId);
+
+    /**
+     * Метод возвращает количество бронирований вещей пользователя по каждому типу бронирования
+     *
+     * @param userId - id пользователя
+     * @return - возвращает количество бронирований по типам
+     */
+    BookingSummaryDto getSummaryForItemsBelongToUser(Long userId);
+
+    /**
+     * Метод возвращает выгрузку всех бронирований пользователя.
+     * Наличие пользователя проверяется сразу, а бронирования читаются из базы при записи ответа
+     *
+     * @param userId - id пользователя
+     * @param format - формат выгрузки (NDJSON, CSV)
+     * @return - возвращает тело ответа, которое записывает бронирования в поток
+     */
+    StreamingResponseBody exportByUser(Long userId, BookingExportFormat format);
+
+    /**
+     * Метод возвращает выгрузку всех бронирований вещей пользователя.
+     * Наличие пользователя проверяется сразу, а бронирования читаются из базы при записи ответа
+     *
+     * @param userId - id пользователя
+     * @param format - формат выгрузки (NDJSON, CSV)
+     * @return - возвращает тело ответа, которое записывает бронирования в поток
+     */
+    StreamingResponseBody exportForItemsBelongToUser(Long userId, BookingExportFormat format);
 }
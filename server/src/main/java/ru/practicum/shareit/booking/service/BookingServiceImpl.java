@@ -3,37 +3,71 @@ package ru.practicum.shareit.booking.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingStatusResultDto;
 import ru.practicum.shareit.booking.dto.BookingMapper;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
 import ru.practicum.shareit.booking.exception.*;
+import ru.practicum.shareit.booking.export.BookingExportFormat;
+import ru.practicum.shareit.booking.export.BookingExporter;
+import ru.practicum.shareit.booking.index.BookingIntervalIndex;
+import ru.practicum.shareit.booking.index.BookingOccupancyIndex;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.State;
 import ru.practicum.shareit.booking.model.Status;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.repository.BookingSpecifications;
+import ru.practicum.shareit.booking.repository.BookingTimeCount;
+import ru.practicum.shareit.booking.summary.BookingStatusCounters;
+import ru.practicum.shareit.event.publisher.EventPublisher;
 import ru.practicum.shareit.item.exception.IllegalAccessExceptionItem;
 import ru.practicum.shareit.item.exception.ItemNotFoundException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.user.exception.UserNotFoundException;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class BookingServiceImpl implements BookingService {
+    private static final int MAX_STATUS_ATTEMPTS = 3;
+    // id, которого нет ни у одного бронирования: новое бронирование не исключается из проверки пересечений
+    private static final long NEW_BOOKING_ID = 0;
+
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
     private final BookingRepository bookingRepository;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final BookingOccupancyIndex bookingOccupancyIndex;
+    private final BookingStatusCounters bookingStatusCounters;
+    private final BookingExporter bookingExporter;
+    private final EventPublisher eventPublisher;
 
     /**
-     * Метод создает новое бронирование
+     * Метод создает новое бронирование.
+     * Строка вещи блокируется до конца транзакции, поэтому пересечение с бронированиями, созданными
+     * любым экземпляром сервера, проверяется по базе без гонок; индекс занятых периодов отсекает
+     * известные ему пересечения без запроса
      *
      * @param bookingDto - объект для создания бронирования
      * @param userId     - id автора бронирования
@@ -43,24 +77,84 @@ public class BookingServiceImpl implements BookingService {
     @Transactional
     public BookingDto create(BookingDto bookingDto, Long userId) {
         User user = userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
-        Item item = itemRepository.findById(bookingDto.getItemId())
+        Item item = itemRepository.findByIdForUpdate(bookingDto.getItemId())
                 .orElseThrow(() -> new ItemNotFoundException(bookingDto.getItemId()));
-        if (!item.getAvailable()) {
-            throw new ItemNotAvailableException(item.getId());
+        checkBooking(bookingDto, userId, item);
+        checkFree(item.getId(), bookingDto.getStart(), bookingDto.getEnd(), NEW_BOOKING_ID);
+        Booking booking = bookingRepository.save(BookingMapper.toBooking(bookingDto, user, item));
+        bookingIntervalIndex.reserve(booking);
+        bookingOccupancyIndex.occupy(booking);
+        bookingStatusCounters.created(booking);
+        BookingDto created = BookingMapper.toBookingDto(booking);
+        eventPublisher.publish(item.getOwner(), EventPublisher.BOOKING_CREATED, created);
+        log.info("Бронирование с id={} было создано", booking.getId());
+        return created;
+    }
+
+    /**
+     * Метод создает несколько бронирований одного пользователя.
+     * Пользователь и все вещи загружаются один раз (строки вещей блокируются в порядке id),
+     * прошедшие проверку бронирования вставляются одним пакетом.
+     * Ошибка в одном бронировании не отменяет остальные
+     *
+     * @param bookingDtos - объекты для создания бронирований
+     * @param userId      - id автора бронирований
+     * @return - возвращает результат для каждого бронирования в том же порядке
+     */
+    @Override
+    @Transactional
+    public List<BookingBatchResultDto> createAll(List<BookingDto> bookingDtos, Long userId) {
+        User user = userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
+        Map<Long, Item> items = itemRepository.findAllByIdInForUpdate(bookingDtos.stream()
+                        .map(BookingDto::getItemId)
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        List<BookingBatchResultDto> results = new ArrayList<>();
+        List<Booking> accepted = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (BookingDto bookingDto : bookingDtos) {
+            try {
+                Item item = items.get(bookingDto.getItemId());
+                if (item == null) {
+                    throw new ItemNotFoundException(bookingDto.getItemId());
+                }
+                checkBooking(bookingDto, userId, item);
+                checkFree(item.getId(), bookingDto.getStart(), bookingDto.getEnd(), NEW_BOOKING_ID);
+                positions.add(results.size());
+                accepted.add(BookingMapper.toBooking(bookingDto, user, item));
+                results.add(null);
+            } catch (ItemNotFoundException | ItemNotAvailableException | InvalidDateTimeException
+                     | BookerAndOwnerAreTheSameException | BookingOverlapException e) {
+                results.add(new BookingBatchResultDto(null, e.getMessage()));
+            }
         }
-        if (!bookingDto.getEnd().isAfter(bookingDto.getStart())) {
-            throw new InvalidDateTimeException(bookingDto.getStart(), bookingDto.getEnd());
+        bookingRepository.insertAll(accepted);
+        List<Long> conflicts = new ArrayList<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            Booking booking = accepted.get(i);
+            try {
+                bookingIntervalIndex.reserve(booking);
+                bookingOccupancyIndex.occupy(booking);
+                bookingStatusCounters.created(booking);
+                BookingDto created = BookingMapper.toBookingDto(booking);
+                eventPublisher.publish(booking.getItem().getOwner(), EventPublisher.BOOKING_CREATED, created);
+                results.set(positions.get(i), new BookingBatchResultDto(created, null));
+            } catch (BookingOverlapException e) {
+                conflicts.add(booking.getId());
+                results.set(positions.get(i), new BookingBatchResultDto(null, e.getMessage()));
+            }
         }
-        if (userId.equals(item.getOwner())) {
-            throw new BookerAndOwnerAreTheSameException(userId, item.getId());
+        if (!conflicts.isEmpty()) {
+            bookingRepository.deleteAllByIdInBatch(conflicts);
         }
-        Booking booking = bookingRepository.save(BookingMapper.toBooking(bookingDto, user, item));
-        log.info("Бронирование с id={} было создано", booking.getId());
-        return BookingMapper.toBookingDto(booking);
+        log.info("Создано {} бронирований из {}", accepted.size() - conflicts.size(), bookingDtos.size());
+        return results;
     }
 
     /**
-     * Метод меняет статус для существующего бронирования (APPROVED или REJECTED)
+     * Метод меняет статус для существующего бронирования (APPROVED или REJECTED).
+     * Статус меняется условным обновлением, которое срабатывает, только если статус не изменился с момента чтения;
+     * при конкурентном изменении бронирование перечитывается и проверки повторяются
      *
      * @param userId    - id автора бронирования
      * @param bookingId - id бронирования
@@ -70,22 +164,90 @@ public class BookingServiceImpl implements BookingService {
     @Override
     @Transactional
     public BookingDto setStatus(Long userId, Long bookingId, boolean approved) {
-        Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new BookingNotFoundException(bookingId));
-        if (!userId.equals(booking.getItem().getOwner())) {
-            throw new IllegalAccessExceptionItem(userId, booking.getItem().getId());
+        Status status = approved ? Status.APPROVED : Status.REJECTED;
+        for (int attempt = 1; ; attempt++) {
+            Booking booking = bookingRepository.findById(bookingId)
+                    .orElseThrow(() -> new BookingNotFoundException(bookingId));
+            if (!userId.equals(booking.getItem().getOwner())) {
+                throw new IllegalAccessExceptionItem(userId, booking.getItem().getId());
+            }
+            Status previous = booking.getStatus();
+            if (approved && previous.equals(Status.APPROVED)) {
+                throw new ThisStatusAlreadySetException(previous);
+            }
+            if (approved && previous.equals(Status.REJECTED)) {
+                Long itemId = booking.getItem().getId();
+                itemRepository.findByIdForUpdate(itemId);
+                checkFree(itemId, booking.getStart(), booking.getEnd(), bookingId);
+            }
+            if (bookingRepository.updateStatus(bookingId, previous, status) == 1) {
+                booking.setStatus(status);
+                if (approved && previous.equals(Status.REJECTED)) {
+                    bookingIntervalIndex.reserve(booking);
+                    bookingOccupancyIndex.occupy(booking);
+                } else if (!approved) {
+                    bookingIntervalIndex.release(booking);
+                    bookingOccupancyIndex.vacate(booking);
+                }
+                bookingStatusCounters.changed(booking, previous);
+                BookingDto changed = BookingMapper.toBookingDto(booking);
+                eventPublisher.publish(booking.getBooker().getId(), EventPublisher.BOOKING_STATUS, changed);
+                log.info("Для бронирования с id={} установлен статус {}", bookingId, status);
+                return changed;
+            }
+            if (attempt == MAX_STATUS_ATTEMPTS) {
+                throw new BookingStatusConflictException(bookingId);
+            }
+            log.warn("Статус бронирования с id={} был изменен параллельным запросом, попытка {}", bookingId, attempt);
         }
-        if (approved) {
-            if (booking.getStatus().equals(Status.APPROVED)) {
-                throw new ThisStatusAlreadySetException(booking.getStatus());
+    }
+
+    /**
+     * Метод меняет статус ожидающих подтверждения бронирований владельца (APPROVED или REJECTED).
+     * Бронирования меняются без предварительной блокировки строк: каждое - своим условным UPDATE, который проверяет
+     * владельца вещи и статус WAITING, а все UPDATE отправляются одним пакетом. Измененными считаются только
+     * бронирования, чей UPDATE затронул строку, поэтому счетчики, индексы и события не затрагивают бронирования,
+     * которые одновременно изменил параллельный запрос. Для остальных id результат строится по статусу,
+     * перечитанному после UPDATE. Ошибка в одном бронировании не отменяет остальные
+     *
+     * @param userId     - id владельца вещей
+     * @param bookingIds - id бронирований
+     * @param approved   - статус бронирований
+     * @return - возвращает результат для каждого id бронирования в том же порядке (повторы id не учитываются)
+     */
+    @Override
+    @Transactional
+    public List<BookingStatusResultDto> setStatusAll(Long userId, List<Long> bookingIds, boolean approved) {
+        Status status = approved ? Status.APPROVED : Status.REJECTED;
+        Set<Long> ids = new LinkedHashSet<>(bookingIds);
+        Set<Long> updated = bookingRepository.updateStatusForOwner(ids, userId, Status.WAITING, status);
+        Map<Long, Booking> bookings = bookingRepository.findAllWithItemAndBookerByIdIn(ids).stream()
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+        List<BookingStatusResultDto> results = new ArrayList<>();
+        for (Long bookingId : ids) {
+            Booking booking = bookings.get(bookingId);
+            try {
+                if (updated.contains(bookingId)) {
+                    if (!approved) {
+                        bookingIntervalIndex.release(booking);
+                        bookingOccupancyIndex.vacate(booking);
+                    }
+                    bookingStatusCounters.changed(booking, Status.WAITING);
+                    eventPublisher.publish(booking.getBooker().getId(), EventPublisher.BOOKING_STATUS,
+                            BookingMapper.toBookingDto(booking));
+                    results.add(new BookingStatusResultDto(bookingId, status, null));
+                    continue;
+                }
+                checkStatusChange(userId, bookingId, booking, status);
+                // бронирование осталось в статусе WAITING, значит оно появилось после UPDATE
+                throw new BookingStatusConflictException(bookingId);
+            } catch (BookingNotFoundException | IllegalAccessExceptionItem | ThisStatusAlreadySetException
+                     | BookingNotWaitingException | BookingStatusConflictException e) {
+                results.add(new BookingStatusResultDto(bookingId, null, e.getMessage()));
             }
-            booking.setStatus(Status.APPROVED);
-        } else {
-            booking.setStatus(Status.REJECTED);
         }
-        booking = bookingRepository.save(booking);
-        log.info("Для бронирования с id={} установлен статус {}", booking.getId(), booking.getStatus());
-        return BookingMapper.toBookingDto(booking);
+        log.info("Для {} бронирований из {} установлен статус {}", updated.size(), ids.size(), status);
+        return results;
     }
 
     /**
@@ -119,34 +281,8 @@ public class BookingServiceImpl implements BookingService {
         if (!userRepository.existsById(userId)) {
             throw new UserNotFoundException(userId);
         }
-        PageRequest pageRequest = PageRequest.of(from / size, size);
-        List<Booking> result;
-        LocalDateTime date = LocalDateTime.now();
-        switch (state) {
-            case ALL:
-                result = bookingRepository.findAllByBookerIdOrderByEndDesc(userId, pageRequest);
-                break;
-            case CURRENT:
-                result = bookingRepository.findAllByBookerIdAndStartIsBeforeAndEndIsAfterOrderByEndDesc(userId, date, date, pageRequest);
-                break;
-            case PAST:
-                result = bookingRepository.findAllByBookerIdAndEndIsBeforeOrderByEndDesc(userId, date, pageRequest);
-                break;
-            case FUTURE:
-                result = bookingRepository.findAllByBookerIdAndStartIsAfterOrderByEndDesc(userId, date, pageRequest);
-                break;
-            case WAITING:
-                result = bookingRepository.findAllByBookerIdAndStatusOrderByEndDesc(userId, Status.WAITING, pageRequest);
-                break;
-            case REJECTED:
-                result = bookingRepository.findAllByBookerIdAndStatusOrderByEndDesc(userId, Status.REJECTED, pageRequest);
-                break;
-            default:
-                throw new IllegalArgumentException();
-        }
-        return result.stream()
-                .map(BookingMapper::toBookingDto)
-                .collect(Collectors.toList());
+        return find(BookingSpecifications.bookerIs(userId), state, null, PageRequest.of(from / size, size))
+                .getContent();
     }
 
     /**
@@ -163,33 +299,217 @@ public class BookingServiceImpl implements BookingService {
         if (!userRepository.existsById(userId)) {
             throw new UserNotFoundException(userId);
         }
-        PageRequest pageRequest = PageRequest.of(from / size, size);
-        List<Booking> result;
-        LocalDateTime date = LocalDateTime.now();
-        switch (state) {
-            case ALL:
-                result = bookingRepository.findAllByItemOwnerOrderByEndDesc(userId, pageRequest);
-                break;
-            case CURRENT:
-                result = bookingRepository.findAllByItemOwnerAndStartIsBeforeAndEndIsAfterOrderByEndDesc(userId, date, date, pageRequest);
-                break;
-            case PAST:
-                result = bookingRepository.findAllByItemOwnerAndEndIsBeforeOrderByEndDesc(userId, date, pageRequest);
-                break;
-            case FUTURE:
-                result = bookingRepository.findAllByItemOwnerAndStartIsAfterOrderByEndDesc(userId, date, pageRequest);
-                break;
-            case WAITING:
-                result = bookingRepository.findAllByItemOwnerAndStatusOrderByEndDesc(userId, Status.WAITING, pageRequest);
-                break;
-            case REJECTED:
-                result = bookingRepository.findAllByItemOwnerAndStatusOrderByEndDesc(userId, Status.REJECTED, pageRequest);
-                break;
-            default:
-                throw new IllegalArgumentException();
-        }
-        return result.stream()
-                .map(BookingMapper::toBookingDto)
-                .collect(Collectors.toList());
+        return find(BookingSpecifications.ownerIs(userId), state, null, PageRequest.of(from / size, size))
+                .getContent();
+    }
+
+    /**
+     * Метод возвращает страницу бронирований пользователя по типу бронирования, начиная после курсора
+     *
+     * @param userId - id пользователя
+     * @param state  - тип бронирования (ALL, CURRENT, PAST, FUTURE, WAITING, REJECTED)
+     * @param after  - курсор последнего бронирования предыдущей страницы (пустая строка - с начала)
+     * @param size   - количество получаемых бронирований
+     * @return - возвращает страницу бронирований и курсор следующей страницы
+     */
+    @Override
+    public CursorPage<BookingDto> getAllBookingsByUser(Long userId, State state, String after, int size) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        return findPage(BookingSpecifications.bookerIs(userId), state, after, size);
+    }
+
+    /**
+     * Метод возвращает страницу бронирований для вещей пользователя по типу бронирования, начиная после курсора
+     *
+     * @param userId - id пользователя
+     * @param state  - тип бронирования (ALL, CURRENT, PAST, FUTURE, WAITING, REJECTED)
+     * @param after  - курсор последнего бронирования предыдущей страницы (пустая строка - с начала)
+     * @param size   - количество получаемых бронирований
+     * @return - возвращает страницу бронирований и курсор следующей страницы
+     */
+    @Override
+    public CursorPage<BookingDto> getAllBookingsForItemsBelongToUser(Long userId, State state, String after, int size) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        return findPage(BookingSpecifications.ownerIs(userId), state, after, size);
+    }
+
+    /**
+     * Метод возвращает количество бронирований пользователя по каждому типу бронирования.
+     * Общее количество и количество по статусам берутся из счетчиков, текущие и будущие бронирования
+     * считаются запросом по диапазону незавершенных бронирований, а завершенные - как разность
+     *
+     * @param userId - id пользователя
+     * @return - возвращает количество бронирований по типам
+     */
+    @Override
+    public BookingSummaryDto getSummaryByUser(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        return summary(bookingStatusCounters.totalForBooker(userId),
+                bookingRepository.countByBookerAndTime(userId, LocalDateTime.now()),
+                bookingStatusCounters.countForBooker(userId, Status.WAITING),
+                bookingStatusCounters.countForBooker(userId, Status.REJECTED));
+    }
+
+    /**
+     * Метод возвращает количество бронирований вещей пользователя по каждому типу бронирования.
+     * Общее количество и количество по статусам берутся из счетчиков, текущие и будущие бронирования
+     * считаются запросом по диапазону незавершенных бронирований, а завершенные - как разность
+     *
+     * @param userId - id пользователя
+     * @return - возвращает количество бронирований по типам
+     */
+    @Override
+    public BookingSummaryDto getSummaryForItemsBelongToUser(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        return summary(bookingStatusCounters.totalForOwner(userId),
+                bookingRepository.countByOwnerAndTime(userId, LocalDateTime.now()),
+                bookingStatusCounters.countForOwner(userId, Status.WAITING),
+                bookingStatusCounters.countForOwner(userId, Status.REJECTED));
+    }
+
+    /**
+     * Метод возвращает выгрузку всех бронирований пользователя.
+     * Наличие пользователя проверяется сразу, а бронирования читаются из базы при записи ответа
+     *
+     * @param userId - id пользователя
+     * @param format - формат выгрузки (NDJSON, CSV)
+     * @return - возвращает тело ответа, которое записывает бронирования в поток
+     */
+    @Override
+    public StreamingResponseBody exportByUser(Long userId, BookingExportFormat format) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        return out -> bookingExporter.exportByBooker(userId, format, out);
+    }
+
+    /**
+     * Метод возвращает выгрузку всех бронирований вещей пользователя.
+     * Наличие пользователя проверяется сразу, а бронирования читаются из базы при записи ответа
+     *
+     * @param userId - id пользователя
+     * @param format - формат выгрузки (NDJSON, CSV)
+     * @return - возвращает тело ответа, которое записывает бронирования в поток
+     */
+    @Override
+    public StreamingResponseBody exportForItemsBelongToUser(Long userId, BookingExportFormat format) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        return out -> bookingExporter.exportByOwner(userId, format, out);
+    }
+
+    /**
+     * Метод проверяет, может ли пользователь забронировать вещь на указанный период
+     *
+     * @param bookingDto - объект для создания бронирования
+     * @param userId     - id автора бронирования
+     * @param item       - вещь, которую бронируют
+     */
+    private void checkBooking(BookingDto bookingDto, Long userId, Item item) {
+        if (!item.getAvailable()) {
+            throw new ItemNotAvailableException(item.getId());
+        }
+        if (!bookingDto.getEnd().isAfter(bookingDto.getStart())) {
+            throw new InvalidDateTimeException(bookingDto.getStart(), bookingDto.getEnd());
+        }
+        if (userId.equals(item.getOwner())) {
+            throw new BookerAndOwnerAreTheSameException(userId, item.getId());
+        }
+    }
+
+    /**
+     * Метод проверяет, что период свободен: сначала по индексу занятых периодов, затем по базе.
+     * Вызывается под блокировкой строки вещи
+     *
+     * @param itemId     - id вещи
+     * @param start      - начало периода
+     * @param end        - конец периода
+     * @param excludedId - id бронирования, которое не учитывается (само проверяемое бронирование)
+     */
+    private void checkFree(Long itemId, LocalDateTime start, LocalDateTime end, long excludedId) {
+        if (!bookingIntervalIndex.isFree(itemId, start, end)
+                || bookingRepository.existsOverlapping(itemId, start, end, excludedId, Status.REJECTED)) {
+            throw new BookingOverlapException(itemId, start, end);
+        }
+    }
+
+    /**
+     * Метод собирает количество бронирований по типам. Счетчики применяют изменения после завершения транзакции,
+     * поэтому на мгновение могут отставать от запроса, и количество завершенных не опускается ниже нуля
+     *
+     * @param total    - общее количество бронирований
+     * @param time     - количество текущих, будущих и всех незавершенных бронирований
+     * @param waiting  - количество бронирований, ожидающих подтверждения
+     * @param rejected - количество отклоненных бронирований
+     * @return - возвращает количество бронирований по типам
+     */
+    private static BookingSummaryDto summary(long total, BookingTimeCount time, long waiting, long rejected) {
+        return new BookingSummaryDto(total, time.getCurrentCount(), Math.max(0, total - time.getUnfinishedCount()),
+                time.getFutureCount(), waiting, rejected);
+    }
+
+    /**
+     * Метод проверяет, может ли владелец вещи подтвердить или отклонить бронирование
+     *
+     * @param userId    - id владельца вещи
+     * @param bookingId - id бронирования
+     * @param booking   - бронирование (null, если не найдено)
+     * @param status    - новый статус
+     */
+    private void checkStatusChange(Long userId, Long bookingId, Booking booking, Status status) {
+        if (booking == null) {
+            throw new BookingNotFoundException(bookingId);
+        }
+        if (!userId.equals(booking.getItem().getOwner())) {
+            throw new IllegalAccessExceptionItem(userId, booking.getItem().getId());
+        }
+        if (booking.getStatus().equals(status)) {
+            throw new ThisStatusAlreadySetException(status);
+        }
+        if (!booking.getStatus().equals(Status.WAITING)) {
+            throw new BookingNotWaitingException(bookingId, booking.getStatus());
+        }
+    }
+
+    /**
+     * Метод возвращает страницу бронирований, отсортированных по дате окончания (по убыванию), начиная после курсора
+     *
+     * @param user  - условие на автора бронирования или владельца вещи
+     * @param state - тип бронирования
+     * @param after - курсор последнего бронирования предыдущей страницы
+     * @param size  - количество получаемых бронирований
+     * @return - возвращает страницу бронирований и курсор следующей страницы
+     */
+    private CursorPage<BookingDto> findPage(Specification<Booking> user, State state, String after, int size) {
+        Slice<BookingDto> result = find(user, state, Cursor.decode(after), PageRequest.of(0, size));
+        return CursorPage.of(result.getContent(), size, booking -> Cursor.of(booking.getEnd(), booking.getId()));
+    }
+
+    /**
+     * Метод выбирает бронирования одним запросом, составленным из условия на пользователя, типа бронирования
+     * и курсора, без запроса на подсчет общего количества
+     *
+     * @param user     - условие на автора бронирования или владельца вещи
+     * @param state    - тип бронирования
+     * @param after    - курсор последнего бронирования предыдущей страницы (null - с начала)
+     * @param pageable - номер и размер страницы
+     * @return - возвращает страницу бронирований
+     */
+    private Slice<BookingDto> find(Specification<Booking> user, State state, Cursor after, Pageable pageable) {
+        Specification<Booking> specification = user
+                .and(BookingSpecifications.inState(state, LocalDateTime.now()))
+                .and(BookingSpecifications.endAfterCursor(after));
+        return bookingRepository.findSlice(specification,
+                        PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), BookingSpecifications.BY_END_DESC))
+                .map(BookingMapper::toBookingDto);
     }
 }
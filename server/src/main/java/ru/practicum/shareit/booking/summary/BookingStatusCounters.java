@@ -0,0 +1,154 @@
+package ru.practicum.shareit.booking.summary;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.repository.BookingStatusCount;
+import ru.practicum.shareit.transaction.AfterCommit;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Счетчики бронирований по статусам для каждого автора бронирований и каждого владельца вещей.
+ * Заполняются группирующими запросами при старте приложения и дальше поддерживаются
+ * при создании бронирований и смене их статуса
+ */
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingStatusCounters {
+    private static final Status[] STATUSES = Status.values();
+
+    private final BookingRepository bookingRepository;
+    private volatile Map<Long, AtomicLongArray> bookers = new ConcurrentHashMap<>();
+    private volatile Map<Long, AtomicLongArray> owners = new ConcurrentHashMap<>();
+
+    /**
+     * Метод заполняет счетчики при старте приложения, до приема запросов.
+     * Счетчики строятся в новых картах, которые заменяют прежние целиком
+     */
+    @PostConstruct
+    public void rebuild() {
+        bookers = fill(bookingRepository.countByBookerAndStatus());
+        owners = fill(bookingRepository.countByOwnerAndStatus());
+        log.info("Счетчики бронирований построены для {} авторов и {} владельцев", bookers.size(), owners.size());
+    }
+
+    /**
+     * Метод учитывает новое бронирование.
+     * Внутри транзакции счетчики меняются только после её успешного завершения
+     *
+     * @param booking - сохраненное бронирование
+     */
+    public void created(Booking booking) {
+        Long bookerId = booking.getBooker().getId();
+        Long ownerId = booking.getItem().getOwner();
+        Status status = booking.getStatus();
+        AfterCommit.run(() -> {
+            add(bookers, bookerId, status, 1);
+            add(owners, ownerId, status, 1);
+        });
+    }
+
+    /**
+     * Метод учитывает смену статуса бронирования.
+     * Внутри транзакции счетчики меняются только после её успешного завершения
+     *
+     * @param booking  - бронирование с новым статусом
+     * @param previous - статус до изменения
+     */
+    public void changed(Booking booking, Status previous) {
+        Long bookerId = booking.getBooker().getId();
+        Long ownerId = booking.getItem().getOwner();
+        Status status = booking.getStatus();
+        if (status == previous) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            add(bookers, bookerId, previous, -1);
+            add(bookers, bookerId, status, 1);
+            add(owners, ownerId, previous, -1);
+            add(owners, ownerId, status, 1);
+        });
+    }
+
+    /**
+     * Метод возвращает количество бронирований пользователя в статусе
+     *
+     * @param bookerId - id автора бронирований
+     * @param status   - статус бронирования
+     * @return - возвращает количество бронирований
+     */
+    public long countForBooker(Long bookerId, Status status) {
+        return count(bookers, bookerId, status);
+    }
+
+    /**
+     * Метод возвращает общее количество бронирований пользователя
+     *
+     * @param bookerId - id автора бронирований
+     * @return - возвращает количество бронирований
+     */
+    public long totalForBooker(Long bookerId) {
+        return total(bookers, bookerId);
+    }
+
+    /**
+     * Метод возвращает количество бронирований вещей пользователя в статусе
+     *
+     * @param ownerId - id владельца вещей
+     * @param status  - статус бронирования
+     * @return - возвращает количество бронирований
+     */
+    public long countForOwner(Long ownerId, Status status) {
+        return count(owners, ownerId, status);
+    }
+
+    /**
+     * Метод возвращает общее количество бронирований вещей пользователя
+     *
+     * @param ownerId - id владельца вещей
+     * @return - возвращает количество бронирований
+     */
+    public long totalForOwner(Long ownerId) {
+        return total(owners, ownerId);
+    }
+
+    private static Map<Long, AtomicLongArray> fill(List<BookingStatusCount> counts) {
+        Map<Long, AtomicLongArray> counters = new ConcurrentHashMap<>();
+        for (BookingStatusCount count : counts) {
+            add(counters, count.getUserId(), count.getStatus(), count.getCount());
+        }
+        return counters;
+    }
+
+    private static void add(Map<Long, AtomicLongArray> counters, Long userId, Status status, long delta) {
+        if (userId == null || status == null) {
+            return;
+        }
+        counters.computeIfAbsent(userId, key -> new AtomicLongArray(STATUSES.length))
+                .addAndGet(status.ordinal(), delta);
+    }
+
+    private static long count(Map<Long, AtomicLongArray> counters, Long userId, Status status) {
+        AtomicLongArray counts = counters.get(userId);
+        return counts == null ? 0 : counts.get(status.ordinal());
+    }
+
+    private static long total(Map<Long, AtomicLongArray> counters, Long userId) {
+        AtomicLongArray counts = counters.get(userId);
+        long total = 0;
+        for (int i = 0; counts != null && i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.shareit.event.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.event.publisher.EventPublisher;
+
+/**
+ * Контроллер для подписки на события (новые реквесты, новые бронирования вещей пользователя
+ * и изменения статуса его бронирований)
+ */
+
+@RestController
+@RequestMapping(path = "/events")
+@RequiredArgsConstructor
+public class EventController {
+    private final EventPublisher eventPublisher;
+
+    /**
+     * Метод открывает поток событий пользователя (text/event-stream) при запросе GET /events
+     *
+     * @param userId - полученный из заголовка "X-Sharer-User-Id" id пользователя
+     * @return - возвращает поток событий
+     */
+    @GetMapping
+    public SseEmitter subscribe(@RequestHeader("X-Sharer-User-Id") Long userId) {
+        return eventPublisher.subscribe(userId);
+    }
+}
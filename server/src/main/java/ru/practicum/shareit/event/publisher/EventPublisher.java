@@ -0,0 +1,321 @@
+package ru.practicum.shareit.event.publisher;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.transaction.AfterCommit;
+import ru.practicum.shareit.user.exception.UserNotFoundException;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Рассылка событий подписчикам по Server-Sent Events. У каждого пользователя своя тема,
+ * подписчик темы - одно открытое соединение (SseEmitter), которое не занимает поток запроса.
+ * События подписчика складываются в ограниченный буфер и отправляются потоками рассылки;
+ * подписчик, не успевающий забирать события, отключается (клиент переподключится и перечитает состояние).
+ * Чтобы посредники не закрывали простаивающие соединения и чтобы находить отключившихся клиентов,
+ * всем подписчикам периодически отправляется комментарий heartbeat.
+ * Запись в соединение блокирует поток рассылки, пока клиент не примет данные. Подписчик, запись которому длится
+ * дольше shareit.events.write-timeout, отключается, а пул рассылки получает дополнительный поток до завершения
+ * зависшей записи (Tomcat прерывает её по таймауту соединения), поэтому зависшие клиенты не задерживают остальных.
+ * Методы SseEmitter синхронизированы, поэтому соединение закрывает только поток, который в него пишет
+ */
+
+@Slf4j
+@Component
+public class EventPublisher {
+    public static final String REQUEST_CREATED = "request.created";
+    public static final String BOOKING_CREATED = "booking.created";
+    public static final String BOOKING_STATUS = "booking.status";
+    private static final Event HEARTBEAT = new Event(null, null, null, "heartbeat");
+    private static final int IDLE = 0;
+    private static final int SENDING = 1;
+    private static final int STALLED = 2;
+
+    private final UserRepository userRepository;
+    private final int bufferSize;
+    private final long timeout;
+    private final long writeTimeout;
+    private final Map<Long, Set<Subscriber>> topics = new ConcurrentHashMap<>();
+    private final AtomicLong eventIds = new AtomicLong();
+    private final ThreadPoolExecutor sender;
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor();
+    private final Counter overflows;
+    private final Counter stalls;
+
+    public EventPublisher(UserRepository userRepository,
+                          @Value("${shareit.events.buffer-size:100}") int bufferSize,
+                          @Value("${shareit.events.timeout:30m}") Duration timeout,
+                          @Value("${shareit.events.heartbeat:15s}") Duration heartbeatInterval,
+                          @Value("${shareit.events.write-timeout:10s}") Duration writeTimeout,
+                          @Value("${shareit.events.sender-threads:4}") int senderThreads,
+                          MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.bufferSize = bufferSize;
+        this.timeout = timeout.toMillis();
+        this.writeTimeout = writeTimeout.toNanos();
+        sender = new ThreadPoolExecutor(senderThreads, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, heartbeatInterval.toMillis(),
+                heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+        long checkInterval = Math.max(1, writeTimeout.toMillis() / 2);
+        heartbeat.scheduleAtFixedRate(this::dropStalled, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        overflows = meterRegistry.counter("shareit.events.overflows");
+        stalls = meterRegistry.counter("shareit.events.stalls");
+        Gauge.builder("shareit.events.subscribers", this, EventPublisher::subscribers)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Метод подписывает пользователя на его тему
+     *
+     * @param userId - id пользователя
+     * @return - возвращает открытое соединение, в которое будут отправляться события
+     */
+    public SseEmitter subscribe(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        SseEmitter emitter = new SseEmitter(timeout);
+        subscribe(userId, emitter);
+        log.info("Пользователь с id={} подписался на события", userId);
+        return emitter;
+    }
+
+    /**
+     * Метод добавляет соединение в тему пользователя
+     *
+     * @param userId  - id пользователя
+     * @param emitter - открытое соединение
+     */
+    void subscribe(Long userId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        topics.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        // Первая запись отправляет клиенту заголовки ответа
+        subscriber.offer(new Event(null, null, null, "connected"));
+    }
+
+    /**
+     * Метод отправляет событие подписчикам темы пользователя.
+     * Внутри транзакции событие отправляется только после её успешного завершения
+     *
+     * @param userId - id пользователя
+     * @param name   - тип события
+     * @param data   - данные события (передаются в формате JSON)
+     */
+    public void publish(Long userId, String name, Object data) {
+        AfterCommit.run(() -> {
+            Set<Subscriber> subscribers = topics.get(userId);
+            if (subscribers != null) {
+                Event event = new Event(eventIds.incrementAndGet(), name, data, null);
+                subscribers.forEach(subscriber -> subscriber.offer(event));
+            }
+        });
+    }
+
+    /**
+     * Метод отправляет событие подписчикам всех тем, кроме темы пользователя.
+     * Внутри транзакции событие отправляется только после её успешного завершения
+     *
+     * @param userId - id пользователя, которому событие не отправляется
+     * @param name   - тип события
+     * @param data   - данные события (передаются в формате JSON)
+     */
+    public void publishToOthers(Long userId, String name, Object data) {
+        AfterCommit.run(() -> {
+            Event event = new Event(eventIds.incrementAndGet(), name, data, null);
+            topics.forEach((topic, subscribers) -> {
+                if (!topic.equals(userId)) {
+                    subscribers.forEach(subscriber -> subscriber.offer(event));
+                }
+            });
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        sender.shutdownNow();
+        topics.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    private void sendHeartbeats() {
+        topics.values().forEach(subscribers -> subscribers.forEach(subscriber ->
+                subscriber.offer(HEARTBEAT)));
+    }
+
+    /**
+     * Метод отключает подписчиков, запись которым длится дольше write-timeout, и добавляет пулу рассылки
+     * по потоку на каждую зависшую запись, пока она не завершится
+     */
+    private void dropStalled() {
+        long now = System.nanoTime();
+        topics.values().forEach(subscribers -> subscribers.forEach(subscriber -> {
+            if (subscriber.state.get() == SENDING && now - subscriber.sendStarted > writeTimeout
+                    && subscriber.state.compareAndSet(SENDING, STALLED)) {
+                stalls.increment();
+                log.warn("Подписчик пользователя с id={} не принимает данные и будет отключен", subscriber.userId);
+                subscriber.close();
+                resizeSender(1);
+            }
+        }));
+    }
+
+    private void resizeSender(int delta) {
+        synchronized (sender) {
+            sender.setCorePoolSize(sender.getCorePoolSize() + delta);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        topics.computeIfPresent(subscriber.userId, (key, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private int subscribers() {
+        return topics.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Подписчик: соединение и буфер еще не отправленных событий.
+     * Буфер разбирает не больше одного потока рассылки одновременно, поэтому порядок событий сохраняется.
+     * Закрытый подписчик больше не принимает события, а соединение завершает поток рассылки
+     */
+    private class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final ArrayDeque<Event> buffer = new ArrayDeque<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+        private volatile long sendStarted;
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private void offer(Event event) {
+            synchronized (buffer) {
+                if (closed.get()) {
+                    return;
+                }
+                if (buffer.size() >= bufferSize) {
+                    overflows.increment();
+                    log.warn("Подписчик пользователя с id={} не успевает получать события и будет отключен", userId);
+                    close();
+                } else {
+                    buffer.add(event);
+                }
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void close() {
+            synchronized (buffer) {
+                closed.set(true);
+                buffer.clear();
+            }
+            unsubscribe(this);
+        }
+
+        private void drain() {
+            try {
+                Event event;
+                while (!closed.get() && (event = poll()) != null) {
+                    send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            if (closed.get()) {
+                emitter.complete();
+            } else if (!isEmpty() && scheduled.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void send(Event event) throws IOException {
+            sendStarted = System.nanoTime();
+            state.set(SENDING);
+            try {
+                emitter.send(event.toSse());
+            } finally {
+                if (state.getAndSet(IDLE) == STALLED) {
+                    resizeSender(-1);
+                }
+            }
+        }
+
+        private Event poll() {
+            synchronized (buffer) {
+                return buffer.poll();
+            }
+        }
+
+        private boolean isEmpty() {
+            synchronized (buffer) {
+                return buffer.isEmpty();
+            }
+        }
+    }
+
+    /**
+     * Событие или комментарий. Построитель SseEmitter.SseEventBuilder изменяется при отправке,
+     * поэтому он создается заново для каждого подписчика
+     */
+    private static class Event {
+        private final Long id;
+        private final String name;
+        private final Object data;
+        private final String comment;
+
+        private Event(Long id, String name, Object data, String comment) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+            this.comment = comment;
+        }
+
+        private SseEmitter.SseEventBuilder toSse() {
+            if (comment != null) {
+                return SseEmitter.event().comment(comment);
+            }
+            return SseEmitter.event()
+                    .id(String.valueOf(id))
+                    .name(name)
+                    .data(data, MediaType.APPLICATION_JSON);
+        }
+    }
+}
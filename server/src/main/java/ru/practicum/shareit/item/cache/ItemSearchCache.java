@@ -0,0 +1,186 @@
+package ru.practicum.shareit.item.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.transaction.AfterCommit;
+
+import java.util.*;
+
+/**
+ * Кэш результатов поиска вещей с вытеснением давно не использованных записей.
+ * Размер кэша ограничен суммарным количеством закэшированных вещей, а не количеством запросов.
+ * При изменении вещи удаляются только те записи, на результат которых она могла повлиять.
+ * Если порядок выдачи зависит от статистики всего каталога (ранжирование BM25F индекса в памяти),
+ * изменение любой вещи может поменять порядок у любого запроса, поэтому кэш очищается целиком
+ */
+
+@Component
+public class ItemSearchCache {
+    private final long maxWeight;
+    private final LinkedHashMap<Key, List<ItemDto>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private long weight;
+    private long generation;
+
+    public ItemSearchCache(@Value("${shareit.item-search.cache-weight:10000}") long maxWeight,
+                           MeterRegistry meterRegistry) {
+        this.maxWeight = maxWeight;
+        hits = meterRegistry.counter("shareit.item.search.cache.requests", "result", "hit");
+        misses = meterRegistry.counter("shareit.item.search.cache.requests", "result", "miss");
+        evictions = meterRegistry.counter("shareit.item.search.cache.evictions");
+        Gauge.builder("shareit.item.search.cache.entries", this, ItemSearchCache::size)
+                .register(meterRegistry);
+        Gauge.builder("shareit.item.search.cache.weight", this, ItemSearchCache::weight)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Метод возвращает закэшированный результат поиска
+     *
+     * @param text - поисковый запрос
+     * @param from - с какой вещи начать
+     * @param size - количество получаемых вещей
+     * @return - возвращает результат поиска или null, если его нет в кэше
+     */
+    public synchronized List<ItemDto> get(String text, int from, int size) {
+        List<ItemDto> result = entries.get(new Key(text, from, size));
+        if (result == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Метод возвращает номер поколения кэша, который нужно получить до выполнения поиска и передать в put
+     *
+     * @return - возвращает номер поколения
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Метод сохраняет результат поиска, если с момента получения поколения не было инвалидаций
+     *
+     * @param text       - поисковый запрос
+     * @param from       - с какой вещи начать
+     * @param size       - количество получаемых вещей
+     * @param items      - найденные вещи
+     * @param generation - поколение кэша на момент начала поиска
+     */
+    public synchronized void put(String text, int from, int size, List<ItemDto> items, long generation) {
+        if (generation != this.generation || items.size() > maxWeight) {
+            return;
+        }
+        List<ItemDto> previous = entries.put(new Key(text, from, size), List.copyOf(items));
+        if (previous != null) {
+            weight -= weight(previous);
+        }
+        weight += weight(items);
+        Iterator<List<ItemDto>> eldest = entries.values().iterator();
+        while (weight > maxWeight) {
+            weight -= weight(eldest.next());
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Метод удаляет из кэша результаты поиска, которые могли измениться из-за изменения вещи.
+     * Внутри транзакции записи удаляются после её успешного завершения
+     *
+     * @param versions - состояния вещи до и после изменения
+     */
+    public void invalidate(ItemDto... versions) {
+        List<String> documents = new ArrayList<>();
+        for (ItemDto version : versions) {
+            if (version != null && Boolean.TRUE.equals(version.getAvailable())) {
+                documents.add(normalize(version.getName() + " " + version.getDescription()));
+            }
+        }
+        if (documents.isEmpty()) {
+            return;
+        }
+        AfterCommit.run(() -> remove(documents));
+    }
+
+    /**
+     * Метод удаляет из кэша все результаты поиска и начинает новое поколение кэша.
+     * Внутри транзакции записи удаляются после её успешного завершения
+     */
+    public void invalidateAll() {
+        AfterCommit.run(this::clear);
+    }
+
+    private synchronized void remove(List<String> documents) {
+        generation++;
+        Iterator<Map.Entry<Key, List<ItemDto>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, List<ItemDto>> entry = iterator.next();
+            if (documents.stream().anyMatch(entry.getKey()::mayMatch)) {
+                weight -= weight(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    private synchronized void clear() {
+        generation++;
+        entries.clear();
+        weight = 0;
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized long weight() {
+        return weight;
+    }
+
+    private static int weight(List<ItemDto> items) {
+        return Math.max(1, items.size());
+    }
+
+    private static String normalize(String text) {
+        return text.toUpperCase(Locale.ROOT);
+    }
+
+    @EqualsAndHashCode
+    private static class Key {
+        private final String text;
+        private final int offset;
+        private final int size;
+
+        private Key(String text, int from, int size) {
+            this.text = normalize(text);
+            this.offset = from / size * size;
+            this.size = size;
+        }
+
+        /**
+         * Метод проверяет, может ли вещь попасть в результат запроса: каждое слово запроса
+         * должно встречаться в названии или описании (это верно и для поиска подстроки, и для полнотекстового)
+         *
+         * @param document - название и описание вещи в верхнем регистре
+         * @return - возвращает true, если вещь может попасть в результат
+         */
+        private boolean mayMatch(String document) {
+            for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+                if (!word.isEmpty() && !document.contains(word)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package ru.practicum.shareit.item.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.FreePeriodDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemWithBookingDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.service.ItemService;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -53,13 +57,18 @@ public class ItemController {
      * @param ownerId - полученный из заголовка "X-Sharer-User-Id" id пользователя
      * @param from    - с какой вещи начать
      * @param size    - количество получаемых вещей
-     * @return - возвращает список вещей
+     * @param after   - курсор последней вещи предыдущей страницы (если передан, from не используется)
+     * @return - возвращает список вещей (и курсор следующей страницы в заголовке X-Next-Cursor)
      */
     @GetMapping
-    public List<ItemWithBookingDto> get(@RequestHeader("X-Sharer-User-Id") long ownerId,
-                                        @RequestParam(defaultValue = "0") int from,
-                                        @RequestParam(defaultValue = "20") int size) {
-        return itemService.get(ownerId, from, size);
+    public ResponseEntity<List<ItemWithBookingDto>> get(@RequestHeader("X-Sharer-User-Id") long ownerId,
+                                                        @RequestParam(defaultValue = "0") int from,
+                                                        @RequestParam(defaultValue = "20") int size,
+                                                        @RequestParam(required = false) String after) {
+        if (after != null) {
+            return itemService.get(ownerId, after, size).toResponseEntity();
+        }
+        return ResponseEntity.ok(itemService.get(ownerId, from, size));
     }
 
     /**
@@ -74,19 +83,53 @@ public class ItemController {
         return itemService.getItemById(id, ownerId);
     }
 
+    /**
+     * Метод возвращает свободные периоды вещи при запросе GET /items/{id}/availability
+     *
+     * @param id   - id вещи
+     * @param from - начало интервала
+     * @param to   - конец интервала
+     * @return - возвращает упорядоченный список свободных периодов
+     */
+    @GetMapping("/{id}/availability")
+    public List<FreePeriodDto> getAvailability(@PathVariable long id,
+                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                               LocalDateTime from,
+                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                               LocalDateTime to) {
+        return itemService.getAvailability(id, from, to);
+    }
+
     /**
      * Метод возвращает список вещей, найденных по параметру запроса text при запросе GET /items/search
      *
-     * @param text - поисковый запрос (передается в параметре запроса text)
-     * @param from - с какой вещи начать
-     * @param size - количество получаемых вещей
-     * @return - возвращает список вещей
+     * @param text  - поисковый запрос (передается в параметре запроса text)
+     * @param start - начало периода, в который вещь должна быть свободна (передается вместе с end)
+     * @param end   - конец периода, в который вещь должна быть свободна (передается вместе со start)
+     * @param from  - с какой вещи начать
+     * @param size  - количество получаемых вещей
+     * @param after - курсор последней вещи предыдущей страницы (если передан, from не используется)
+     * @return - возвращает список вещей (и курсор следующей страницы в заголовке X-Next-Cursor)
      */
     @GetMapping("/search")
-    public List<ItemDto> search(@RequestParam String text,
-                                @RequestParam(defaultValue = "0") int from,
-                                @RequestParam(defaultValue = "20") int size) {
-        return itemService.search(text, from, size);
+    public ResponseEntity<List<ItemDto>> search(@RequestParam String text,
+                                                @RequestParam(required = false)
+                                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+                                                @RequestParam(required = false)
+                                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+                                                @RequestParam(defaultValue = "0") int from,
+                                                @RequestParam(defaultValue = "20") int size,
+                                                @RequestParam(required = false) String after) {
+        if (start != null || end != null) {
+            if (after != null) {
+                return itemService.search(text, start, end, after, size).toResponseEntity();
+            }
+            return ResponseEntity.ok(itemService.search(text, start, end, from, size));
+        }
+        if (after != null) {
+            return itemService.search(text, after, size).toResponseEntity();
+        }
+        return ResponseEntity.ok(itemService.search(text, from, size));
     }
 
     /**
@@ -0,0 +1,13 @@
+package ru.practicum.shareit.item.exception;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+public class IncompletePeriodException extends RuntimeException {
+    public IncompletePeriodException(LocalDateTime start, LocalDateTime end) {
+        super(String.format("Период задается началом и концом вместе, передано начало %s и конец %s", start, end));
+        log.error("Период задается началом и концом вместе, передано начало {} и конец {}", start, end);
+    }
+}
@@ -0,0 +1,13 @@
+package ru.practicum.shareit.item.exception;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+public class InvalidPeriodException extends RuntimeException {
+    public InvalidPeriodException(LocalDateTime from, LocalDateTime to) {
+        super(String.format("Начало периода %s совпадает или позже его конца %s", from, to));
+        log.error("Начало периода {} совпадает или позже его конца {}", from, to);
+    }
+}
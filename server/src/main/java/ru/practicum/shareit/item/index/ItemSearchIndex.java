@@ -0,0 +1,364 @@
+package ru.practicum.shareit.item.index;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.transaction.AfterCommit;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Инвертированный индекс по триграммам названий и описаний доступных вещей.
+ * Поиск подстроки сводится к пересечению списков триграмм запроса и проверке найденных кандидатов,
+ * поэтому время поиска зависит от числа совпадений, а не от размера каталога.
+ * Найденные вещи ранжируются по BM25F (термы - триграммы запроса, совпадения в названии весят больше,
+ * чем в описании), лучшие k результатов отбираются ограниченной кучей без сортировки всех совпадений
+ */
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemSearchIndex {
+    private static final int GRAM = 3;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double NAME_WEIGHT = 3.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+
+    private final ItemRepository itemRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Index index = new Index();
+
+    /**
+     * Метод заполняет индекс всеми доступными вещами при старте приложения, до приема запросов.
+     * Индекс строится отдельно и заменяет прежний целиком
+     */
+    @PostConstruct
+    public void rebuild() {
+        List<Item> items = itemRepository.findAllByAvailableTrue();
+        Index rebuilt = new Index();
+        for (Item item : items) {
+            rebuilt.put(item.getId(), normalize(item.getName()), normalize(item.getDescription()));
+        }
+        lock.writeLock().lock();
+        try {
+            index = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс построен, проиндексировано {} вещей", items.size());
+    }
+
+    /**
+     * Метод добавляет вещь в индекс, обновляет её или удаляет, если вещь стала недоступна.
+     * Внутри транзакции изменение применяется только после её успешного завершения
+     *
+     * @param item - сохраненная вещь
+     */
+    public void index(Item item) {
+        Long id = item.getId();
+        String name = normalize(item.getName());
+        String description = normalize(item.getDescription());
+        boolean available = Boolean.TRUE.equals(item.getAvailable());
+        Runnable change = () -> {
+            lock.writeLock().lock();
+            try {
+                index.remove(id);
+                if (available) {
+                    index.put(id, name, description);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        AfterCommit.run(change);
+    }
+
+    /**
+     * Метод возвращает id доступных вещей, в названии или описании которых встречается текст (без учета регистра),
+     * упорядоченные по убыванию релевантности
+     *
+     * @param text  - поисковый запрос
+     * @param limit - максимальное количество возвращаемых id
+     * @return - возвращает не более limit id самых релевантных вещей
+     */
+    public List<Long> search(String text, int limit) {
+        List<Long> result = new ArrayList<>();
+        for (Hit hit : top(text, limit)) {
+            result.add(hit.getId());
+        }
+        return result;
+    }
+
+    /**
+     * Метод возвращает самые релевантные найденные вещи вместе с их релевантностью
+     *
+     * @param text  - поисковый запрос
+     * @param limit - максимальное количество возвращаемых вещей
+     * @return - возвращает не более limit вещей, упорядоченных по убыванию релевантности
+     */
+    public List<Hit> top(String text, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<Hit> top = new PriorityQueue<>(Math.min(limit, 1024));
+        for (Hit scored : score(text)) {
+            if (top.size() < limit) {
+                top.add(scored);
+            } else if (scored.compareTo(top.peek()) > 0) {
+                top.poll();
+                top.add(scored);
+            }
+        }
+        Hit[] result = new Hit[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = top.poll();
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Метод оценивает все найденные вещи один раз и отдает их id по убыванию релевантности по мере обхода,
+     * поэтому вызывающий код может отбрасывать вещи и остановиться, не сортируя все совпадения
+     *
+     * @param text - поисковый запрос
+     * @return - возвращает id найденных вещей, упорядоченные по убыванию релевантности
+     */
+    public Iterator<Long> ranked(String text) {
+        List<Hit> hits = score(text);
+        PriorityQueue<Hit> queue = new PriorityQueue<>(Math.max(1, hits.size()), Comparator.reverseOrder());
+        queue.addAll(hits);
+        return drain(queue, Hit::getId);
+    }
+
+    /**
+     * Метод возвращает id найденных вещей, больших указанного, по возрастанию по мере обхода.
+     * Порядок по id не зависит от релевантности, которая меняется при каждом изменении индекса,
+     * поэтому подходит для выдачи по курсору
+     *
+     * @param text    - поисковый запрос
+     * @param afterId - id последней вещи предыдущей страницы (0 - с начала выдачи)
+     * @return - возвращает id найденных вещей по возрастанию
+     */
+    public Iterator<Long> idsAfter(String text, long afterId) {
+        String query = normalize(text);
+        List<Long> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Long id : matches(query)) {
+                if (id > afterId) {
+                    ids.add(id);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return drain(new PriorityQueue<>(ids), Function.identity());
+    }
+
+    /**
+     * Метод находит вещи, в названии или описании которых встречается текст, и оценивает их релевантность
+     *
+     * @param text - поисковый запрос
+     * @return - возвращает найденные вещи в произвольном порядке
+     */
+    private List<Hit> score(String text) {
+        String query = normalize(text);
+        lock.readLock().lock();
+        try {
+            List<Long> matches = matches(query);
+            if (matches.isEmpty()) {
+                return Collections.emptyList();
+            }
+            Map<String, Double> idf = idf(query, matches.size());
+            double avgNameLength = Math.max(1.0, (double) index.totalNameLength / index.documents.size());
+            double avgDescriptionLength = Math.max(1.0, (double) index.totalDescriptionLength / index.documents.size());
+            List<Hit> hits = new ArrayList<>(matches.size());
+            for (Long id : matches) {
+                String[] document = index.documents.get(id);
+                double score = 0;
+                for (Map.Entry<String, Double> term : idf.entrySet()) {
+                    double tf = NAME_WEIGHT * occurrences(document[0], term.getKey())
+                            / (1 - B + B * length(document[0]) / avgNameLength)
+                            + DESCRIPTION_WEIGHT * occurrences(document[1], term.getKey())
+                            / (1 - B + B * length(document[1]) / avgDescriptionLength);
+                    score += term.getValue() * tf / (K1 + tf);
+                }
+                hits.add(new Hit(id, score));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод возвращает id вещей, в названии или описании которых встречается запрос (вызывается под блокировкой)
+     *
+     * @param query - нормализованный поисковый запрос
+     * @return - возвращает id найденных вещей в произвольном порядке
+     */
+    private List<Long> matches(String query) {
+        if (query.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Collection<Long> candidates = query.length() < GRAM ? index.documents.keySet() : candidates(query);
+        List<Long> matches = new ArrayList<>();
+        for (Long id : candidates) {
+            String[] document = index.documents.get(id);
+            if (document[0].contains(query) || document[1].contains(query)) {
+                matches.add(id);
+            }
+        }
+        return matches;
+    }
+
+    private static <T> Iterator<Long> drain(PriorityQueue<T> queue, Function<T, Long> id) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !queue.isEmpty();
+            }
+
+            @Override
+            public Long next() {
+                if (queue.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                return id.apply(queue.poll());
+            }
+        };
+    }
+
+    /**
+     * Метод считает обратную документную частоту для каждого терма запроса
+     *
+     * @param query   - нормализованный поисковый запрос
+     * @param matches - количество найденных вещей (частота терма для запросов короче триграммы)
+     * @return - возвращает idf по термам
+     */
+    private Map<String, Double> idf(String query, int matches) {
+        Map<String, Double> idf = new HashMap<>();
+        int total = index.documents.size();
+        if (query.length() < GRAM) {
+            idf.put(query, Math.log(1 + (total - matches + 0.5) / (matches + 0.5)));
+            return idf;
+        }
+        for (String gram : grams(query)) {
+            int frequency = index.postings.get(gram).size();
+            idf.put(gram, Math.log(1 + (total - frequency + 0.5) / (frequency + 0.5)));
+        }
+        return idf;
+    }
+
+    /**
+     * Метод возвращает самый короткий список вещей среди триграмм запроса
+     *
+     * @param query - нормализованный поисковый запрос
+     * @return - возвращает вещи-кандидаты
+     */
+    private Collection<Long> candidates(String query) {
+        Set<Long> smallest = null;
+        for (String gram : grams(query)) {
+            Set<Long> posting = index.postings.get(gram);
+            if (posting == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        return smallest;
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static int length(String value) {
+        return Math.max(1, value.length() - GRAM + 1);
+    }
+
+    private static int occurrences(String value, String term) {
+        int count = 0;
+        for (int i = value.indexOf(term); i >= 0; i = value.indexOf(term, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Данные индекса: списки вещей по триграммам, нормализованные названия и описания вещей и их суммарные длины
+     */
+    private static class Index {
+        private final Map<String, Set<Long>> postings = new HashMap<>();
+        private final Map<Long, String[]> documents = new HashMap<>();
+        private long totalNameLength;
+        private long totalDescriptionLength;
+
+        private void put(Long id, String name, String description) {
+            documents.put(id, new String[]{name, description});
+            totalNameLength += length(name);
+            totalDescriptionLength += length(description);
+            Set<String> grams = grams(name);
+            grams.addAll(grams(description));
+            for (String gram : grams) {
+                postings.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+            }
+        }
+
+        private void remove(Long id) {
+            String[] document = documents.remove(id);
+            if (document == null) {
+                return;
+            }
+            totalNameLength -= length(document[0]);
+            totalDescriptionLength -= length(document[1]);
+            Set<String> grams = grams(document[0]);
+            grams.addAll(grams(document[1]));
+            for (String gram : grams) {
+                Set<Long> posting = postings.get(gram);
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Найденная вещь и её релевантность
+     */
+    @Getter
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    public static class Hit implements Comparable<Hit> {
+        private final Long id;
+        private final double score;
+
+        /**
+         * Большим считается результат с большей релевантностью, при равной релевантности - с меньшим id
+         */
+        @Override
+        public int compareTo(Hit other) {
+            int result = Double.compare(score, other.score);
+            return result != 0 ? result : Long.compare(other.id, id);
+        }
+    }
+}
@@ -26,4 +26,7 @@ public class Item {
     private Long owner;
     @Column(name = "request_id")
     private Long requestId;
+    @Version
+    @Column(name = "version")
+    private Long version;
 }
@@ -2,19 +2,74 @@ package ru.practicum.shareit.item.repository;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.booking.model.Status;
 import ru.practicum.shareit.item.model.Item;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from Item i where i.id = ?1")
+    Optional<Item> findByIdForUpdate(Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from Item i where i.id in ?1 order by i.id")
+    List<Item> findAllByIdInForUpdate(Collection<Long> ids);
+
     List<Item> findAllByOwnerOrderByIdAsc(long ownerId, Pageable pageable);
 
+    List<Item> findAllByOwnerAndIdGreaterThanOrderByIdAsc(long ownerId, long id, Pageable pageable);
+
     @Query("select i from Item i where i.available = true AND (upper(i.name) like upper(concat('%', ?1, '%')) OR " +
-            "upper (i.description) like upper(concat('%', ?1, '%')))")
+            "upper (i.description) like upper(concat('%', ?1, '%'))) order by i.id")
     List<Item> search(String text, Pageable pageable);
 
+    @Query(value = "select * from items i where i.is_available = true and (" +
+            "to_tsvector('simple', i.name || ' ' || i.description) @@ plainto_tsquery('simple', ?1) or " +
+            "upper(i.name) like upper('%' || ?1 || '%') or " +
+            "upper(i.description) like upper('%' || ?1 || '%')) order by i.id", nativeQuery = true)
+    List<Item> searchPostgres(String text, Pageable pageable);
+
+    @Query("select i from Item i where i.available = true AND (upper(i.name) like upper(concat('%', ?1, '%')) OR " +
+            "upper (i.description) like upper(concat('%', ?1, '%'))) AND i.id > ?2 order by i.id")
+    List<Item> searchAfter(String text, long id, Pageable pageable);
+
+    @Query(value = "select * from items i where i.is_available = true and (" +
+            "to_tsvector('simple', i.name || ' ' || i.description) @@ plainto_tsquery('simple', ?1) or " +
+            "upper(i.name) like upper('%' || ?1 || '%') or " +
+            "upper(i.description) like upper('%' || ?1 || '%')) and i.id > ?2 order by i.id", nativeQuery = true)
+    List<Item> searchPostgresAfter(String text, long id, Pageable pageable);
+
+    @Query("select i from Item i where i.available = true AND (upper(i.name) like upper(concat('%', ?1, '%')) OR " +
+            "upper (i.description) like upper(concat('%', ?1, '%'))) AND i.id > ?4 AND not exists (" +
+            "select b.id from Booking b where b.item = i and b.start < ?3 and b.end > ?2 and b.status <> ?5) " +
+            "order by i.id")
+    List<Item> searchAvailable(String text, LocalDateTime start, LocalDateTime end, long id, Status status,
+                               Pageable pageable);
+
+    @Query(value = "select * from items i where i.is_available = true and (" +
+            "to_tsvector('simple', i.name || ' ' || i.description) @@ plainto_tsquery('simple', ?1) or " +
+            "upper(i.name) like upper('%' || ?1 || '%') or " +
+            "upper(i.description) like upper('%' || ?1 || '%')) and i.id > ?4 and not exists (" +
+            "select 1 from bookings b where b.item_id = i.id and b.start_date < ?3 and b.end_date > ?2 " +
+            "and b.status <> ?5) order by i.id", nativeQuery = true)
+    List<Item> searchPostgresAvailable(String text, LocalDateTime start, LocalDateTime end, long id, String status,
+                                       Pageable pageable);
+
     List<Item> findAllByRequestIdIn(List<Long> ids);
+
+    List<Item> findAllByRequestId(Long requestId);
+
+    @Query("select i from Item i, ItemRequest r where i.requestId = r.id and r.requestor.id = ?1")
+    List<Item> findAllByRequestorId(Long requestorId);
+
+    List<Item> findAllByAvailableTrue();
 }
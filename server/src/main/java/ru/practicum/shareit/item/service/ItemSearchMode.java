@@ -0,0 +1,14 @@
+package ru.practicum.shareit.item.service;
+
+/**
+ * Способ поиска вещей (настраивается свойством shareit.item-search.mode)
+ */
+
+public enum ItemSearchMode {
+    // Поиск по триграммному индексу в памяти приложения
+    INDEX,
+    // Поиск запросом LIKE, работает на любой БД (используется с H2 в тестах)
+    LIKE,
+    // Полнотекстовый и триграммный поиск по GIN-индексам PostgreSQL
+    POSTGRES
+}
@@ -1,10 +1,13 @@
 package ru.practicum.shareit.item.service;
 
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.FreePeriodDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemWithBookingDto;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.CursorPage;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -40,6 +43,16 @@ public interface ItemService {
      */
     List<ItemWithBookingDto> get(Long ownerId, int from, int size);
 
+    /**
+     * Метод возвращает страницу вещей пользователя, начиная после курсора
+     *
+     * @param ownerId - id пользователя
+     * @param after   - курсор последней вещи предыдущей страницы (пустая строка - с начала)
+     * @param size    - количество получаемых вещей
+     * @return - возвращает страницу вещей и курсор следующей страницы
+     */
+    CursorPage<ItemWithBookingDto> get(Long ownerId, String after, int size);
+
     /**
      * Метод возвращает вещь по id
      *
@@ -59,6 +72,43 @@ public interface ItemService {
      */
     List<ItemDto> search(String text, int from, int size);
 
+    /**
+     * Метод возвращает страницу подходящих по параметру поиска вещей, начиная после курсора.
+     * Выдача по курсору упорядочена по id вещи: релевантность меняется при каждом изменении каталога,
+     * и курсор по ней пропускал бы или повторял вещи
+     *
+     * @param text  - поисковый запрос
+     * @param after - курсор последней вещи предыдущей страницы (пустая строка - с начала)
+     * @param size  - количество получаемых вещей
+     * @return - возвращает страницу вещей и курсор следующей страницы
+     */
+    CursorPage<ItemDto> search(String text, String after, int size);
+
+    /**
+     * Метод возвращает подходящие по параметру поиска вещи, свободные в указанный период
+     *
+     * @param text  - поисковый запрос
+     * @param start - начало периода
+     * @param end   - конец периода
+     * @param from  - с какой вещи начать
+     * @param size  - количество получаемых вещей
+     * @return - возвращает список вещей
+     */
+    List<ItemDto> search(String text, LocalDateTime start, LocalDateTime end, int from, int size);
+
+    /**
+     * Метод возвращает страницу подходящих по параметру поиска вещей, свободных в указанный период,
+     * начиная после курсора (выдача упорядочена по id вещи)
+     *
+     * @param text  - поисковый запрос
+     * @param start - начало периода
+     * @param end   - конец периода
+     * @param after - курсор последней вещи предыдущей страницы (пустая строка - с начала)
+     * @param size  - количество получаемых вещей
+     * @return - возвращает страницу вещей и курсор следующей страницы
+     */
+    CursorPage<ItemDto> search(String text, LocalDateTime start, LocalDateTime end, String after, int size);
+
     /**
      * Метод добавляет комментарий к вещи по её id
      *
@@ -68,4 +118,14 @@ public interface ItemService {
      * @return - возвращает созданный объект Comment (в виде CommentDto)
      */
     CommentDto postComment(CommentDto commentDto, Long authorId, Long itemId);
+
+    /**
+     * Метод возвращает свободные периоды вещи внутри заданного интервала
+     *
+     * @param id   - id вещи
+     * @param from - начало интервала
+     * @param to   - конец интервала
+     * @return - возвращает упорядоченный список свободных периодов
+     */
+    List<FreePeriodDto> getAvailability(Long id, LocalDateTime from, LocalDateTime to);
 }
@@ -2,22 +2,33 @@ package ru.practicum.shareit.item.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.dto.BookingMapper;
+import ru.practicum.shareit.booking.index.BookingIntervalIndex;
+import ru.practicum.shareit.booking.index.BookingOccupancyIndex;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.repository.BookingPeriod;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.cache.ItemSearchCache;
 import ru.practicum.shareit.item.dto.*;
 import ru.practicum.shareit.item.exception.IllegalAccessExceptionItem;
 import ru.practicum.shareit.item.exception.IllegalTryToPostCommentException;
+import ru.practicum.shareit.item.exception.IncompletePeriodException;
+import ru.practicum.shareit.item.exception.InvalidPeriodException;
 import ru.practicum.shareit.item.exception.ItemNotFoundException;
+import ru.practicum.shareit.item.index.ItemSearchIndex;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.CommentRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.request.exception.ItemRequestNotFoundException;
+import ru.practicum.shareit.request.feed.RecentRequestsFeed;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.exception.UserNotFoundException;
 import ru.practicum.shareit.user.model.User;
@@ -25,19 +36,32 @@ import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ItemServiceImpl implements ItemService {
+
     private final CommentRepository commentRepository;
     private final BookingRepository bookingRepository;
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
     private final ItemRequestRepository itemRequestRepository;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemSearchCache itemSearchCache;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final BookingOccupancyIndex bookingOccupancyIndex;
+    private final RecentRequestsFeed recentRequestsFeed;
+    @Value("${shareit.item-search.mode:index}")
+    private ItemSearchMode searchMode = ItemSearchMode.INDEX;
 
     /**
      * Метод создает новую вещь
@@ -56,6 +80,11 @@ public class ItemServiceImpl implements ItemService {
             itemRequestRepository.findById(requestId).orElseThrow(() -> new ItemRequestNotFoundException(requestId));
         }
         item = itemRepository.save(item);
+        itemSearchIndex.index(item);
+        invalidateSearchCache(ItemMapper.toItemDto(item));
+        if (requestId != null) {
+            recentRequestsFeed.answered(requestId, item.getId());
+        }
         log.info("Вещь с id={} была создана", item.getId());
         return ItemMapper.toItemDto(item);
     }
@@ -75,10 +104,40 @@ public class ItemServiceImpl implements ItemService {
         if (!item.getOwner().equals(ownerId)) {
             throw new IllegalAccessExceptionItem(ownerId, item.getId());
         }
+        ItemDto before = ItemMapper.toItemDto(item);
         item = ItemMapper.toItem(itemDto, item);
         item = itemRepository.save(item);
+        itemSearchIndex.index(item);
+        ItemDto after = ItemMapper.toItemDto(item);
+        if (!after.equals(before)) {
+            invalidateSearchCache(before, after);
+        }
+        if (!Objects.equals(before.getRequestId(), after.getRequestId())) {
+            if (before.getRequestId() != null) {
+                recentRequestsFeed.unanswered(before.getRequestId(), item.getId());
+            }
+            if (after.getRequestId() != null) {
+                recentRequestsFeed.answered(after.getRequestId(), item.getId());
+            }
+        }
         log.info("Вещь с id={} была обновлена", itemDto.getId());
-        return ItemMapper.toItemDto(item);
+        return after;
+    }
+
+    /**
+     * Метод удаляет из кэша поиска результаты, которые могли измениться из-за изменения вещи.
+     * При поиске по индексу в памяти изменение доступной вещи меняет статистику BM25F всего индекса,
+     * поэтому кэш очищается целиком
+     *
+     * @param versions - состояния вещи до и после изменения
+     */
+    private void invalidateSearchCache(ItemDto... versions) {
+        if (searchMode == ItemSearchMode.INDEX && Arrays.stream(versions)
+                .anyMatch(version -> Boolean.TRUE.equals(version.getAvailable()))) {
+            itemSearchCache.invalidateAll();
+        } else {
+            itemSearchCache.invalidate(versions);
+        }
     }
 
     /**
@@ -94,15 +153,60 @@ public class ItemServiceImpl implements ItemService {
         checkIfOwnerExists(ownerId);
         List<Item> foundItems = itemRepository.findAllByOwnerOrderByIdAsc(ownerId, PageRequest.of(from / size, size));
         log.info("Было найдено {} вещей, принадлежащих пользователю с id={}", foundItems.size(), ownerId);
-        List<ItemWithBookingDto> foundItemsWithBookingDto = new ArrayList<>();
+        return toItemsWithBookings(foundItems);
+    }
+
+    /**
+     * Метод возвращает страницу вещей пользователя, начиная после курсора
+     *
+     * @param ownerId - id пользователя
+     * @param after   - курсор последней вещи предыдущей страницы (пустая строка - с начала)
+     * @param size    - количество получаемых вещей
+     * @return - возвращает страницу вещей и курсор следующей страницы
+     */
+    @Override
+    public CursorPage<ItemWithBookingDto> get(Long ownerId, String after, int size) {
+        checkIfOwnerExists(ownerId);
+        Cursor cursor = Cursor.decode(after);
+        List<Item> foundItems = itemRepository.findAllByOwnerAndIdGreaterThanOrderByIdAsc(ownerId,
+                cursor == null ? 0 : cursor.getId(), PageRequest.of(0, size));
+        log.info("Было найдено {} вещей, принадлежащих пользователю с id={}", foundItems.size(), ownerId);
+        return CursorPage.of(toItemsWithBookings(foundItems), size, item -> Cursor.of(item.getId()));
+    }
+
+    /**
+     * Метод дополняет вещи последним и ближайшим бронированием и комментариями (одним запросом для каждого)
+     *
+     * @param foundItems - вещи
+     * @return - возвращает вещи с бронированиями и комментариями
+     */
+    private List<ItemWithBookingDto> toItemsWithBookings(List<Item> foundItems) {
+        if (foundItems.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> itemIds = foundItems.stream()
+                .map(Item::getId)
+                .collect(Collectors.toList());
         LocalDateTime date = LocalDateTime.now();
+        Map<Long, Booking> lastBookings = new HashMap<>();
+        Map<Long, Booking> nextBookings = new HashMap<>();
+        for (Booking booking : bookingRepository.findLastAndNextByItemIdIn(itemIds, date, Status.REJECTED)) {
+            Long itemId = booking.getItem().getId();
+            if (booking.getStart().isBefore(date)) {
+                lastBookings.merge(itemId, booking, (a, b) -> a.getId() >= b.getId() ? a : b);
+            } else {
+                nextBookings.merge(itemId, booking, (a, b) -> a.getId() <= b.getId() ? a : b);
+            }
+        }
+        Map<Long, List<CommentDto>> comments = commentRepository.findAllByItemIdIn(itemIds).stream()
+                .collect(Collectors.groupingBy(comment -> comment.getItem().getId(),
+                        Collectors.mapping(CommentMapper::toCommentDto, Collectors.toList())));
+        List<ItemWithBookingDto> foundItemsWithBookingDto = new ArrayList<>();
         for (Item item : foundItems) {
             foundItemsWithBookingDto.add(ItemMapper.toItemWithBookingDto(item,
-                    BookingMapper.toBookingDto(bookingRepository.findFirst1ByItemIdAndStartIsBeforeAndStatusIsNotOrderByEndDesc(item.getId(), date, Status.REJECTED).orElse(null)),
-                    BookingMapper.toBookingDto(bookingRepository.findFirst1ByItemIdAndStartIsAfterAndStatusIsNotOrderByStartAsc(item.getId(), date, Status.REJECTED).orElse(null)),
-                    commentRepository.findAllByItemId(item.getId()).stream()
-                            .map(CommentMapper::toCommentDto)
-                            .collect(Collectors.toList())));
+                    BookingMapper.toBookingDto(lastBookings.get(item.getId())),
+                    BookingMapper.toBookingDto(nextBookings.get(item.getId())),
+                    comments.getOrDefault(item.getId(), Collections.emptyList())));
         }
         return foundItemsWithBookingDto;
     }
@@ -133,6 +237,42 @@ public class ItemServiceImpl implements ItemService {
         }
     }
 
+    /**
+     * Метод возвращает свободные периоды вещи внутри заданного интервала.
+     * Неотклоненные бронирования, пересекающие интервал, читаются одним запросом в порядке начала,
+     * после чего один проход по ним (sweep line) объединяет пересекающиеся бронирования
+     * и выдает промежутки между ними
+     *
+     * @param id   - id вещи
+     * @param from - начало интервала
+     * @param to   - конец интервала
+     * @return - возвращает упорядоченный список свободных периодов (пустой, если вещь недоступна)
+     */
+    @Override
+    public List<FreePeriodDto> getAvailability(Long id, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new InvalidPeriodException(from, to);
+        }
+        Item item = itemRepository.findById(id).orElseThrow(() -> new ItemNotFoundException(id));
+        if (!item.getAvailable()) {
+            return Collections.emptyList();
+        }
+        List<FreePeriodDto> free = new ArrayList<>();
+        LocalDateTime cursor = from;
+        for (BookingPeriod period : bookingRepository.findPeriods(id, from, to, Status.REJECTED)) {
+            if (period.getStart().isAfter(cursor)) {
+                free.add(new FreePeriodDto(cursor, period.getStart()));
+            }
+            if (period.getEnd().isAfter(cursor)) {
+                cursor = period.getEnd();
+            }
+        }
+        if (cursor.isBefore(to)) {
+            free.add(new FreePeriodDto(cursor, to));
+        }
+        return free;
+    }
+
     /**
      * Метод возвращает список подходящих по параметру поиска вещей
      *
@@ -146,13 +286,235 @@ public class ItemServiceImpl implements ItemService {
         if (text.isBlank()) {
             return Collections.emptyList();
         }
-        List<ItemDto> foundItems = itemRepository.search(text, PageRequest.of(from / size, size)).stream()
-                .map(ItemMapper::toItemDto)
-                .collect(Collectors.toList());
+        List<ItemDto> cachedItems = itemSearchCache.get(text, from, size);
+        if (cachedItems != null) {
+            return cachedItems;
+        }
+        long generation = itemSearchCache.generation();
+        List<ItemDto> foundItems = findItems(text, from, size);
+        itemSearchCache.put(text, from, size, foundItems, generation);
         log.info("По запросу '{}' было найдено {} вещей", text, foundItems.size());
         return foundItems;
     }
 
+    /**
+     * Метод ищет вещи выбранным способом поиска (shareit.item-search.mode)
+     *
+     * @param text - поисковый запрос
+     * @param from - с какой вещи начать
+     * @param size - количество получаемых вещей
+     * @return - возвращает список вещей
+     */
+    private List<ItemDto> findItems(String text, int from, int size) {
+        if (searchMode != ItemSearchMode.INDEX) {
+            PageRequest pageRequest = PageRequest.of(from / size, size);
+            List<Item> items = searchMode == ItemSearchMode.POSTGRES
+                    ? itemRepository.searchPostgres(text, pageRequest)
+                    : itemRepository.search(text, pageRequest);
+            return items.stream()
+                    .map(ItemMapper::toItemDto)
+                    .collect(Collectors.toList());
+        }
+        int offset = from / size * size;
+        List<Long> foundIds = itemSearchIndex.search(text, offset + size);
+        if (offset >= foundIds.size()) {
+            return Collections.emptyList();
+        }
+        return hydrate(foundIds.subList(offset, Math.min(offset + size, foundIds.size())));
+    }
+
+    /**
+     * Метод возвращает страницу подходящих по параметру поиска вещей, начиная после курсора.
+     * Выдача по курсору упорядочена по id вещи: релевантность меняется при каждом изменении каталога,
+     * и курсор по ней пропускал бы или повторял вещи
+     *
+     * @param text  - поисковый запрос
+     * @param after - курсор последней вещи предыдущей страницы (пустая строка - с начала)
+     * @param size  - количество получаемых вещей
+     * @return - возвращает страницу вещей и курсор следующей страницы
+     */
+    @Override
+    public CursorPage<ItemDto> search(String text, String after, int size) {
+        if (text.isBlank()) {
+            return new CursorPage<>(Collections.emptyList(), null);
+        }
+        Cursor cursor = Cursor.decode(after);
+        if (searchMode != ItemSearchMode.INDEX) {
+            long afterId = cursor == null ? 0 : cursor.getId();
+            PageRequest pageRequest = PageRequest.of(0, size);
+            List<Item> items = searchMode == ItemSearchMode.POSTGRES
+                    ? itemRepository.searchPostgresAfter(text, afterId, pageRequest)
+                    : itemRepository.searchAfter(text, afterId, pageRequest);
+            return CursorPage.of(items.stream()
+                    .map(ItemMapper::toItemDto)
+                    .collect(Collectors.toList()), size, item -> Cursor.of(item.getId()));
+        }
+        Iterator<Long> matches = itemSearchIndex.idsAfter(text, cursor == null ? 0 : cursor.getId());
+        List<Long> ids = new ArrayList<>(size);
+        while (ids.size() < size && matches.hasNext()) {
+            ids.add(matches.next());
+        }
+        log.info("По запросу '{}' было найдено {} вещей", text, ids.size());
+        return toPage(ids, size);
+    }
+
+    /**
+     * Метод возвращает подходящие по параметру поиска вещи, свободные в указанный период
+     *
+     * @param text  - поисковый запрос
+     * @param start - начало периода
+     * @param end   - конец периода
+     * @param from  - с какой вещи начать
+     * @param size  - количество получаемых вещей
+     * @return - возвращает список вещей
+     */
+    @Override
+    public List<ItemDto> search(String text, LocalDateTime start, LocalDateTime end, int from, int size) {
+        if (text.isBlank()) {
+            return Collections.emptyList();
+        }
+        checkPeriod(start, end);
+        if (searchMode == ItemSearchMode.INDEX && coveredByIndexes(start)) {
+            int offset = from / size * size;
+            List<Long> ids = searchFree(text, itemSearchIndex.ranked(text), start, end, offset + size);
+            if (offset >= ids.size()) {
+                return Collections.emptyList();
+            }
+            return hydrate(ids.subList(offset, ids.size()));
+        }
+        return findAvailableItems(text, start, end, 0, PageRequest.of(from / size, size)).stream()
+                .map(ItemMapper::toItemDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Метод возвращает страницу подходящих по параметру поиска вещей, свободных в указанный период,
+     * начиная после курсора (выдача упорядочена по id вещи)
+     *
+     * @param text  - поисковый запрос
+     * @param start - начало периода
+     * @param end   - конец периода
+     * @param after - курсор последней вещи предыдущей страницы (пустая строка - с начала)
+     * @param size  - количество получаемых вещей
+     * @return - возвращает страницу вещей и курсор следующей страницы
+     */
+    @Override
+    public CursorPage<ItemDto> search(String text, LocalDateTime start, LocalDateTime end, String after, int size) {
+        if (text.isBlank()) {
+            return new CursorPage<>(Collections.emptyList(), null);
+        }
+        checkPeriod(start, end);
+        Cursor cursor = Cursor.decode(after);
+        if (searchMode == ItemSearchMode.INDEX && coveredByIndexes(start)) {
+            return toPage(searchFree(text, itemSearchIndex.idsAfter(text, cursor == null ? 0 : cursor.getId()),
+                    start, end, size), size);
+        }
+        List<Item> items = findAvailableItems(text, start, end, cursor == null ? 0 : cursor.getId(),
+                PageRequest.of(0, size));
+        return CursorPage.of(items.stream()
+                .map(ItemMapper::toItemDto)
+                .collect(Collectors.toList()), size, item -> Cursor.of(item.getId()));
+    }
+
+    /**
+     * Метод ищет вещи без неотклоненных бронирований, пересекающих период, одним запросом
+     * (способы поиска LIKE и POSTGRES, а также INDEX для периодов, начавшихся в прошлом):
+     * условие поиска по тексту объединяется с NOT EXISTS по индексу bookings (item_id, start_date, end_date).
+     * Результат зависит от бронирований, поэтому кэш поиска здесь не используется
+     *
+     * @param text        - поисковый запрос
+     * @param start       - начало периода
+     * @param end         - конец периода
+     * @param afterId     - id последней вещи предыдущей страницы (0 - с начала)
+     * @param pageRequest - страница результата
+     * @return - возвращает список вещей, упорядоченных по id
+     */
+    private List<Item> findAvailableItems(String text, LocalDateTime start, LocalDateTime end, long afterId,
+                                          PageRequest pageRequest) {
+        List<Item> items = searchMode == ItemSearchMode.POSTGRES
+                ? itemRepository.searchPostgresAvailable(text, start, end, afterId, Status.REJECTED.name(), pageRequest)
+                : itemRepository.searchAvailable(text, start, end, afterId, Status.REJECTED, pageRequest);
+        log.info("По запросу '{}' было найдено {} вещей, свободных с {} по {}", text, items.size(), start, end);
+        return items;
+    }
+
+    /**
+     * Метод обходит найденные по индексу поиска в памяти вещи и оставляет только свободные в указанный период
+     * (способ поиска INDEX), пока не наберется limit свободных. Сначала проверяется битовая карта занятости вещи
+     * по дням, и только если день периода занят, период сверяется с точными интервалами бронирований
+     *
+     * @param text    - поисковый запрос
+     * @param matches - id найденных вещей в порядке выдачи
+     * @param start   - начало периода
+     * @param end     - конец периода
+     * @param limit   - максимальное количество возвращаемых вещей
+     * @return - возвращает не более limit id свободных вещей в порядке выдачи
+     */
+    private List<Long> searchFree(String text, Iterator<Long> matches, LocalDateTime start, LocalDateTime end,
+                                  int limit) {
+        List<Long> free = new ArrayList<>();
+        while (free.size() < limit && matches.hasNext()) {
+            Long id = matches.next();
+            if (bookingOccupancyIndex.isFree(id, start, end) || bookingIntervalIndex.isFree(id, start, end)) {
+                free.add(id);
+            }
+        }
+        log.info("По запросу '{}' было найдено {} вещей, свободных с {} по {}", text, free.size(), start, end);
+        return free;
+    }
+
+    /**
+     * Метод загружает найденные по индексу вещи и вычисляет курсор следующей страницы по id последней вещи
+     *
+     * @param ids  - id найденных вещей по возрастанию
+     * @param size - запрошенный размер страницы
+     * @return - возвращает страницу вещей
+     */
+    private CursorPage<ItemDto> toPage(List<Long> ids, int size) {
+        List<ItemDto> foundItems = hydrate(ids);
+        if (ids.size() < size) {
+            return new CursorPage<>(foundItems, null);
+        }
+        return new CursorPage<>(foundItems, Cursor.of(ids.get(ids.size() - 1)).encode());
+    }
+
+    /**
+     * Метод проверяет, можно ли искать свободные вещи по индексам занятости. Индексы хранят только бронирования,
+     * не закончившиеся к моменту построения, и удаляют закончившиеся, поэтому по ним можно проверять
+     * только периоды, которые еще не начались
+     *
+     * @param start - начало периода
+     * @return - возвращает true, если период начинается не раньше текущего момента
+     */
+    private static boolean coveredByIndexes(LocalDateTime start) {
+        return !start.isBefore(LocalDateTime.now());
+    }
+
+    private static void checkPeriod(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null) {
+            throw new IncompletePeriodException(start, end);
+        }
+        if (!start.isBefore(end)) {
+            throw new InvalidPeriodException(start, end);
+        }
+    }
+
+    /**
+     * Метод загружает вещи из БД по id, сохраняя порядок id
+     *
+     * @param pageIds - id вещей
+     * @return - возвращает список вещей
+     */
+    private List<ItemDto> hydrate(List<Long> pageIds) {
+        Map<Long, Item> items = itemRepository.findAllById(pageIds).stream()
+                .collect(Collectors.toMap(Item::getId, item -> item));
+        return pageIds.stream()
+                .map(items::get)
+                .filter(Objects::nonNull)
+                .map(ItemMapper::toItemDto)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Метод добавляет комментарий к вещи по её id
      *
@@ -165,10 +527,10 @@ public class ItemServiceImpl implements ItemService {
     public CommentDto postComment(CommentDto commentDto, Long authorId, Long itemId) {
         User user = userRepository.findById(authorId).orElseThrow(() -> new UserNotFoundException(authorId));
         Item item = itemRepository.findById(itemId).orElseThrow(() -> new ItemNotFoundException(itemId));
-        List<Booking> bookings = bookingRepository.findAllByBookerIdAndEndIsBeforeOrderByEndDesc(authorId, LocalDateTime.now());
-        bookings.stream()
-                .filter(booking -> booking.getBooker().getId().equals(authorId))
-                .findAny().orElseThrow(() -> new IllegalTryToPostCommentException(authorId, itemId));
+        if (!bookingRepository.existsByBookerIdAndItemIdAndEndIsBeforeAndStatus(authorId, itemId,
+                LocalDateTime.now(), Status.APPROVED)) {
+            throw new IllegalTryToPostCommentException(authorId, itemId);
+        }
         Comment comment = commentRepository.save(CommentMapper.toComment(commentDto, item, user));
         log.info("Комментарий с id={} был создан", comment.getId());
         return CommentMapper.toCommentDto(comment);
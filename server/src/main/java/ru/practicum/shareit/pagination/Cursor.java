@@ -0,0 +1,89 @@
+package ru.practicum.shareit.pagination;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.practicum.shareit.pagination.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Курсор для постраничной выдачи по ключу: значение ключа сортировки и id последнего элемента страницы.
+ * Для клиента курсор - непрозрачная строка (base64url)
+ */
+
+@Getter
+@EqualsAndHashCode
+@RequiredArgsConstructor
+public class Cursor {
+    private static final char SEPARATOR = '|';
+
+    private final String key;
+    private final long id;
+
+    /**
+     * Метод создает курсор по значению ключа сортировки и id элемента
+     *
+     * @param key - значение ключа сортировки
+     * @param id  - id элемента
+     * @return - возвращает курсор
+     */
+    public static Cursor of(Object key, long id) {
+        return new Cursor(String.valueOf(key), id);
+    }
+
+    /**
+     * Метод создает курсор для выдачи, отсортированной только по id
+     *
+     * @param id - id элемента
+     * @return - возвращает курсор
+     */
+    public static Cursor of(long id) {
+        return new Cursor("", id);
+    }
+
+    /**
+     * Метод восстанавливает курсор из строки, полученной от клиента
+     *
+     * @param value - строка курсора
+     * @return - возвращает курсор или null, если строка пустая (выдача с начала)
+     */
+    public static Cursor decode(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf(SEPARATOR);
+            return new Cursor(decoded.substring(0, separator), Long.parseLong(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException(value);
+        }
+    }
+
+    /**
+     * Метод преобразует курсор в строку для передачи клиенту
+     *
+     * @return - возвращает строку курсора
+     */
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((key + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Метод возвращает ключ сортировки как дату и время
+     *
+     * @return - возвращает дату и время
+     */
+    public LocalDateTime getDateTime() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException(encode());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.shareit.pagination;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница выдачи по курсору: элементы страницы и курсор следующей страницы
+ */
+
+@Getter
+@RequiredArgsConstructor
+public class CursorPage<T> {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final List<T> items;
+    private final String next;
+
+    /**
+     * Метод создает страницу, вычисляя курсор следующей страницы по последнему элементу
+     *
+     * @param items  - элементы страницы
+     * @param size   - запрошенный размер страницы
+     * @param cursor - функция, возвращающая курсор для элемента
+     * @return - возвращает страницу (курсор следующей страницы равен null, если страница неполная)
+     */
+    public static <T> CursorPage<T> of(List<T> items, int size, Function<T, Cursor> cursor) {
+        if (items.isEmpty() || items.size() < size) {
+            return new CursorPage<>(items, null);
+        }
+        return new CursorPage<>(items, cursor.apply(items.get(items.size() - 1)).encode());
+    }
+
+    /**
+     * Метод возвращает ответ контроллера: элементы в теле и курсор следующей страницы в заголовке X-Next-Cursor
+     *
+     * @return - возвращает ответ
+     */
+    public ResponseEntity<List<T>> toResponseEntity() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (next != null) {
+            response.header(NEXT_CURSOR_HEADER, next);
+        }
+        return response.body(items);
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.pagination.exception;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String cursor) {
+        super(String.format("Некорректный курсор: %s", cursor));
+        log.error("Некорректный курсор: {}", cursor);
+    }
+}
@@ -1,6 +1,7 @@
 package ru.practicum.shareit.request.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.service.ItemRequestService;
@@ -47,13 +48,35 @@ public class ItemRequestController {
      * @param requestorId - id пользователя
      * @param from        - с какого реквеста начать
      * @param size        - количество получаемых реквестов
-     * @return - возвращает список реквестов
+     * @param after       - курсор последнего реквеста предыдущей страницы (если передан, from не используется)
+     * @return - возвращает список реквестов (и курсор следующей страницы в заголовке X-Next-Cursor)
      */
     @GetMapping("/all")
-    public List<ItemRequestDto> getAllUsersRequests(@RequestHeader("X-Sharer-User-Id") Long requestorId,
-                                                    @RequestParam(defaultValue = "0") int from,
-                                                    @RequestParam(defaultValue = "20") int size) {
-        return itemRequestService.getAllUsersRequests(requestorId, from, size);
+    public ResponseEntity<List<ItemRequestDto>> getAllUsersRequests(@RequestHeader("X-Sharer-User-Id") Long requestorId,
+                                                                    @RequestParam(defaultValue = "0") int from,
+                                                                    @RequestParam(defaultValue = "20") int size,
+                                                                    @RequestParam(required = false) String after) {
+        if (after != null) {
+            return itemRequestService.getAllUsersRequests(requestorId, after, size).toResponseEntity();
+        }
+        return ResponseEntity.ok(itemRequestService.getAllUsersRequests(requestorId, from, size));
+    }
+
+    /**
+     * Метод ищет реквесты других пользователей по словам описания при запросе GET /requests/search
+     *
+     * @param requestorId - id пользователя
+     * @param text        - поисковый запрос
+     * @param size        - количество получаемых реквестов
+     * @param after       - курсор последнего реквеста предыдущей страницы
+     * @return - возвращает список реквестов от новых к старым (и курсор следующей страницы в заголовке X-Next-Cursor)
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<ItemRequestDto>> search(@RequestHeader("X-Sharer-User-Id") Long requestorId,
+                                                       @RequestParam String text,
+                                                       @RequestParam(defaultValue = "20") int size,
+                                                       @RequestParam(required = false) String after) {
+        return itemRequestService.search(requestorId, text, after, size).toResponseEntity();
     }
 
     /**
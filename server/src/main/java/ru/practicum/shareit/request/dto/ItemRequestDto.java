@@ -19,4 +19,6 @@ public class ItemRequestDto {
     private Long requestorId;
     private LocalDateTime created = LocalDateTime.now();
     private List<ItemDto> items;
+    // Подходящие вещи других пользователей, подобранные после создания реквеста (только для GET /requests/{id})
+    private List<ItemDto> suggestions;
 }
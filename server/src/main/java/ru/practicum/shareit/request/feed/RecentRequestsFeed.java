@@ -0,0 +1,245 @@
+package ru.practicum.shareit.request.feed;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.transaction.AfterCommit;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Последние реквесты в порядке выдачи /requests/all (по дате создания и id, от новых к старым) вместе с id вещей,
+ * созданных в ответ на них. Хранится не больше capacity реквестов: при добавлении нового самый старый вытесняется.
+ * Страница отдается из памяти, если она целиком помещается в хранимое окно (или окно содержит все реквесты),
+ * иначе страницу нужно читать из базы
+ */
+
+@Slf4j
+@Component
+public class RecentRequestsFeed {
+    private static final Comparator<Key> NEWEST_FIRST = Comparator.comparing((Key key) -> key.created)
+            .thenComparingLong(key -> key.id)
+            .reversed();
+
+    private final int capacity;
+    private final ItemRequestRepository itemRequestRepository;
+    private final ItemRepository itemRepository;
+    private TreeMap<Key, RecentRequest> entries = new TreeMap<>(NEWEST_FIRST);
+    private Map<Long, RecentRequest> entriesById = new HashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer rebuildTimer;
+    // true, если в окне все реквесты из базы (ни один еще не был вытеснен)
+    private boolean complete;
+
+    public RecentRequestsFeed(@Value("${shareit.request-feed.capacity:1000}") int capacity,
+                              ItemRequestRepository itemRequestRepository, ItemRepository itemRepository,
+                              MeterRegistry meterRegistry) {
+        this.capacity = capacity;
+        this.itemRequestRepository = itemRequestRepository;
+        this.itemRepository = itemRepository;
+        hits = meterRegistry.counter("shareit.request.feed.requests", "result", "hit");
+        misses = meterRegistry.counter("shareit.request.feed.requests", "result", "miss");
+        rebuildTimer = meterRegistry.timer("shareit.request.feed.rebuild");
+        Gauge.builder("shareit.request.feed.entries", this, RecentRequestsFeed::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Метод заполняет окно последними реквестами и id вещей, созданных в ответ на них, при старте приложения,
+     * до приема запросов. Окно строится в новых картах, которые заменяют прежние целиком
+     */
+    @PostConstruct
+    public void rebuild() {
+        rebuildTimer.record(() -> {
+            List<ItemRequest> requests = itemRequestRepository.findNewest(PageRequest.of(0, capacity));
+            List<Item> items = requests.isEmpty() ? List.of() : itemRepository.findAllByRequestIdIn(requests.stream()
+                    .map(ItemRequest::getId)
+                    .collect(Collectors.toList()));
+            TreeMap<Key, RecentRequest> rebuilt = new TreeMap<>(NEWEST_FIRST);
+            Map<Long, RecentRequest> rebuiltById = new HashMap<>();
+            for (ItemRequest request : requests) {
+                RecentRequest recent = new RecentRequest(request.getId(), request.getDescription(),
+                        request.getRequestor().getId(), request.getCreated());
+                rebuilt.put(new Key(recent.created, recent.id), recent);
+                rebuiltById.put(recent.id, recent);
+            }
+            items.stream()
+                    .sorted(Comparator.comparing(Item::getId))
+                    .forEach(item -> rebuiltById.get(item.getRequestId()).itemIds.add(item.getId()));
+            synchronized (this) {
+                entries = rebuilt;
+                entriesById = rebuiltById;
+                complete = requests.size() < capacity;
+            }
+            log.info("Окно последних реквестов построено, в нем {} реквестов и {} вещей", requests.size(),
+                    items.size());
+        });
+    }
+
+    /**
+     * Метод добавляет новый реквест в окно.
+     * Внутри транзакции реквест добавляется только после её успешного завершения
+     *
+     * @param request - сохраненный реквест
+     */
+    public void added(ItemRequest request) {
+        RecentRequest recent = new RecentRequest(request.getId(), request.getDescription(),
+                request.getRequestor().getId(), request.getCreated());
+        AfterCommit.run(() -> add(recent));
+    }
+
+    /**
+     * Метод добавляет вещь к реквесту, если реквест есть в окне.
+     * Внутри транзакции вещь добавляется только после её успешного завершения
+     *
+     * @param requestId - id реквеста
+     * @param itemId    - id вещи, созданной в ответ на реквест
+     */
+    public void answered(Long requestId, Long itemId) {
+        AfterCommit.run(() -> changeItems(requestId, itemIds -> itemIds.add(itemId)));
+    }
+
+    /**
+     * Метод убирает вещь из реквеста, если реквест есть в окне (вещь привязали к другому реквесту).
+     * Внутри транзакции вещь убирается только после её успешного завершения
+     *
+     * @param requestId - id реквеста
+     * @param itemId    - id вещи
+     */
+    public void unanswered(Long requestId, Long itemId) {
+        AfterCommit.run(() -> changeItems(requestId, itemIds -> itemIds.remove(itemId)));
+    }
+
+    /**
+     * Метод возвращает страницу реквестов других пользователей из окна
+     *
+     * @param requestorId - id пользователя, чьи реквесты не попадают в выдачу
+     * @param from        - с какого реквеста начать
+     * @param size        - количество получаемых реквестов
+     * @return - возвращает реквесты или пустой Optional, если страница выходит за окно
+     */
+    public synchronized Optional<List<RecentRequest>> page(Long requestorId, int from, int size) {
+        return collect(entries.values(), requestorId, from / size * size, size);
+    }
+
+    /**
+     * Метод возвращает страницу реквестов других пользователей из окна, начиная после курсора
+     *
+     * @param requestorId - id пользователя, чьи реквесты не попадают в выдачу
+     * @param after       - курсор последнего реквеста предыдущей страницы (null - с начала)
+     * @param size        - количество получаемых реквестов
+     * @return - возвращает реквесты или пустой Optional, если страница выходит за окно
+     */
+    public synchronized Optional<List<RecentRequest>> page(Long requestorId, Cursor after, int size) {
+        Collection<RecentRequest> tail = after == null ? entries.values()
+                : entries.tailMap(new Key(after.getDateTime(), after.getId()), false).values();
+        return collect(tail, requestorId, 0, size);
+    }
+
+    private Optional<List<RecentRequest>> collect(Collection<RecentRequest> candidates, Long requestorId, int skip, int size) {
+        List<RecentRequest> page = new ArrayList<>(size);
+        for (RecentRequest request : candidates) {
+            if (request.requestorId.equals(requestorId)) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            page.add(request.copy());
+            if (page.size() == size) {
+                hits.increment();
+                return Optional.of(page);
+            }
+        }
+        if (complete) {
+            hits.increment();
+            return Optional.of(page);
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    private synchronized void add(RecentRequest request) {
+        Key key = new Key(request.created, request.id);
+        if (!complete && !entries.isEmpty() && NEWEST_FIRST.compare(key, entries.lastKey()) > 0) {
+            return;
+        }
+        put(request);
+        while (entries.size() > capacity) {
+            entriesById.remove(entries.pollLastEntry().getValue().id);
+            complete = false;
+        }
+    }
+
+    private void put(RecentRequest request) {
+        entries.put(new Key(request.created, request.id), request);
+        entriesById.put(request.id, request);
+    }
+
+    private synchronized void changeItems(Long requestId, Consumer<List<Long>> change) {
+        RecentRequest request = entriesById.get(requestId);
+        if (request != null) {
+            change.accept(request.itemIds);
+        }
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Реквест в окне: поля реквеста и id вещей, созданных в ответ на него, в порядке создания
+     */
+    @Getter
+    public static class RecentRequest {
+        private final Long id;
+        private final String description;
+        private final Long requestorId;
+        private final LocalDateTime created;
+        private final List<Long> itemIds;
+
+        private RecentRequest(Long id, String description, Long requestorId, LocalDateTime created) {
+            this(id, description, requestorId, created, new ArrayList<>());
+        }
+
+        private RecentRequest(Long id, String description, Long requestorId, LocalDateTime created,
+                              List<Long> itemIds) {
+            this.id = id;
+            this.description = description;
+            this.requestorId = requestorId;
+            this.created = created;
+            this.itemIds = itemIds;
+        }
+
+        private RecentRequest copy() {
+            return new RecentRequest(id, description, requestorId, created, List.copyOf(itemIds));
+        }
+    }
+
+    private static class Key {
+        private final LocalDateTime created;
+        private final long id;
+
+        private Key(LocalDateTime created, long id) {
+            this.created = created;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package ru.practicum.shareit.request.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.transaction.AfterCommit;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс по словам описаний реквестов. Слово индексируется всеми своими началами от трех букв,
+ * а слово запроса ищется без окончания, поэтому "дрель" находит "дрели" и "дрелью". Для каждого начала слова
+ * хранится множество реквестов, упорядоченное как выдача /requests/all (по дате создания и id, от новых к старым).
+ * Страница поиска - это реквесты, содержащие все слова запроса: самое короткое множество обходится с позиции
+ * курсора, а остальные слова проверяются поиском в своих множествах, поэтому время выдачи страницы
+ * не зависит от того, насколько далеко от начала она находится
+ */
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RequestSearchIndex {
+    private static final Comparator<Entry> NEWEST_FIRST = Comparator.comparing((Entry entry) -> entry.created)
+            .thenComparingLong(entry -> entry.id)
+            .reversed();
+    private static final int MIN_WORD_LENGTH = 3;
+    private static final int MAX_PREFIX_LENGTH = 16;
+    private static final int MAX_ENDING_LENGTH = 2;
+
+    private final ItemRequestRepository itemRequestRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, NavigableSet<Entry>> postings = new HashMap<>();
+
+    /**
+     * Метод заполняет индекс всеми реквестами при старте приложения, до приема запросов.
+     * Индекс строится в новой карте, которая заменяет прежнюю целиком
+     */
+    @PostConstruct
+    public void rebuild() {
+        List<ItemRequest> requests = itemRequestRepository.findAllWithRequestor();
+        Map<String, NavigableSet<Entry>> rebuilt = new HashMap<>();
+        for (ItemRequest request : requests) {
+            put(rebuilt, request);
+        }
+        lock.writeLock().lock();
+        try {
+            postings = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс реквестов построен, проиндексировано {} реквестов", requests.size());
+    }
+
+    /**
+     * Метод добавляет новый реквест в индекс.
+     * Внутри транзакции реквест добавляется только после её успешного завершения
+     *
+     * @param request - сохраненный реквест
+     */
+    public void index(ItemRequest request) {
+        Runnable change = () -> {
+            lock.writeLock().lock();
+            try {
+                put(postings, request);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        AfterCommit.run(change);
+    }
+
+    /**
+     * Метод возвращает id реквестов других пользователей, в описании которых есть все слова запроса,
+     * от новых к старым
+     *
+     * @param text        - поисковый запрос
+     * @param requestorId - id пользователя, чьи реквесты не попадают в выдачу
+     * @param created     - дата создания последнего реквеста предыдущей страницы (null - с начала выдачи)
+     * @param id          - id последнего реквеста предыдущей страницы
+     * @param limit       - максимальное количество возвращаемых id
+     * @return - возвращает не более limit id реквестов
+     */
+    public List<Long> search(String text, Long requestorId, LocalDateTime created, long id, int limit) {
+        Set<String> words = queryTerms(text);
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Long> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<NavigableSet<Entry>> sets = new ArrayList<>(words.size());
+            for (String word : words) {
+                NavigableSet<Entry> posting = postings.get(word);
+                if (posting == null) {
+                    return Collections.emptyList();
+                }
+                sets.add(posting);
+            }
+            sets.sort(Comparator.comparingInt(Set::size));
+            NavigableSet<Entry> smallest = sets.get(0);
+            Iterable<Entry> candidates = created == null ? smallest
+                    : smallest.tailSet(new Entry(id, null, created), false);
+            for (Entry entry : candidates) {
+                if (entry.requestorId.equals(requestorId) || !containedInAll(entry, sets)) {
+                    continue;
+                }
+                result.add(entry.id);
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private static boolean containedInAll(Entry entry, List<NavigableSet<Entry>> sets) {
+        for (int i = 1; i < sets.size(); i++) {
+            if (!sets.get(i).contains(entry)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void put(Map<String, NavigableSet<Entry>> postings, ItemRequest request) {
+        Entry entry = new Entry(request.getId(), request.getRequestor().getId(), request.getCreated());
+        for (String word : indexTerms(request.getDescription())) {
+            postings.computeIfAbsent(word, key -> new TreeSet<>(NEWEST_FIRST)).add(entry);
+        }
+    }
+
+    /**
+     * Метод возвращает начала слов описания реквеста, под которыми реквест хранится в индексе
+     *
+     * @param description - описание реквеста
+     * @return - возвращает начала слов в верхнем регистре
+     */
+    static Set<String> indexTerms(String description) {
+        Set<String> terms = new HashSet<>();
+        for (String word : words(description)) {
+            for (int length = MIN_WORD_LENGTH; length <= Math.min(word.length(), MAX_PREFIX_LENGTH); length++) {
+                terms.add(word.substring(0, length));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Метод возвращает слова запроса без окончаний
+     *
+     * @param text - поисковый запрос
+     * @return - возвращает слова в верхнем регистре
+     */
+    static Set<String> queryTerms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String word : words(text)) {
+            terms.add(word.substring(0, Math.min(MAX_PREFIX_LENGTH,
+                    Math.max(MIN_WORD_LENGTH, word.length() - MAX_ENDING_LENGTH))));
+        }
+        return terms;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        for (String word : text.toUpperCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() >= MIN_WORD_LENGTH) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static class Entry {
+        private final long id;
+        private final Long requestorId;
+        private final LocalDateTime created;
+
+        private Entry(long id, Long requestorId, LocalDateTime created) {
+            this.id = id;
+            this.requestorId = requestorId;
+            this.created = created;
+        }
+    }
+}
@@ -2,9 +2,11 @@ package ru.practicum.shareit.request.repository;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.request.model.ItemRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -12,4 +14,17 @@ public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long>
     List<ItemRequest> findAllByRequestorIdOrderByCreatedDesc(Long requestorId);
 
     List<ItemRequest> findAllByRequestorIdIsNotOrderByCreatedDesc(Long requestorId, Pageable pageable);
+
+    @Query("select r from ItemRequest r where r.requestor.id <> ?1 and " +
+            "(r.created < ?2 or (r.created = ?2 and r.id < ?3)) order by r.created desc, r.id desc")
+    List<ItemRequest> findAllByRequestorIdIsNotAfter(Long requestorId, LocalDateTime created, Long id, Pageable pageable);
+
+    @Query("select r from ItemRequest r where r.requestor.id <> ?1 order by r.created desc, r.id desc")
+    List<ItemRequest> findAllByRequestorIdIsNotFirst(Long requestorId, Pageable pageable);
+
+    @Query("select r from ItemRequest r join fetch r.requestor order by r.created desc, r.id desc")
+    List<ItemRequest> findNewest(Pageable pageable);
+
+    @Query("select r from ItemRequest r join fetch r.requestor")
+    List<ItemRequest> findAllWithRequestor();
 }
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.request.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.RequestSuggestion;
+
+import java.util.List;
+
+@Repository
+public interface RequestSuggestionRepository extends JpaRepository<RequestSuggestion, Long> {
+    @Query("select i from RequestSuggestion s join s.item i where s.requestId = ?1 and i.available = true " +
+            "order by s.score desc, i.id")
+    List<Item> findAvailableItemsByRequestId(Long requestId);
+}
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.request.service;
 
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
 import java.util.List;
@@ -36,6 +37,27 @@ public interface ItemRequestService {
      */
     List<ItemRequestDto> getAllUsersRequests(Long requestorId, int from, int size);
 
+    /**
+     * Метод возвращает страницу реквестов других пользователей, начиная после курсора
+     *
+     * @param requestorId - id пользователя
+     * @param after       - курсор последнего реквеста предыдущей страницы (пустая строка - с начала)
+     * @param size        - количество получаемых реквестов
+     * @return - возвращает страницу реквестов и курсор следующей страницы
+     */
+    CursorPage<ItemRequestDto> getAllUsersRequests(Long requestorId, String after, int size);
+
+    /**
+     * Метод ищет реквесты других пользователей по словам описания, начиная после курсора
+     *
+     * @param requestorId - id пользователя
+     * @param text        - поисковый запрос
+     * @param after       - курсор последнего реквеста предыдущей страницы (пустая строка - с начала)
+     * @param size        - количество получаемых реквестов
+     * @return - возвращает страницу реквестов и курсор следующей страницы
+     */
+    CursorPage<ItemRequestDto> search(Long requestorId, String text, String after, int size);
+
     /**
      * Метод возвращает реквест по id
      *
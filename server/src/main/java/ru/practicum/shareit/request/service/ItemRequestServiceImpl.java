@@ -5,21 +5,33 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.event.publisher.EventPublisher;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.ItemRequestMapper;
 import ru.practicum.shareit.request.exception.ItemRequestNotFoundException;
+import ru.practicum.shareit.request.feed.RecentRequestsFeed;
+import ru.practicum.shareit.request.feed.RecentRequestsFeed.RecentRequest;
+import ru.practicum.shareit.request.index.RequestSearchIndex;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.repository.RequestSuggestionRepository;
+import ru.practicum.shareit.request.suggestion.RequestMatcher;
 import ru.practicum.shareit.user.exception.UserNotFoundException;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -29,9 +41,14 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     private final ItemRequestRepository itemRequestRepository;
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
+    private final RecentRequestsFeed recentRequestsFeed;
+    private final EventPublisher eventPublisher;
+    private final RequestMatcher requestMatcher;
+    private final RequestSuggestionRepository requestSuggestionRepository;
+    private final RequestSearchIndex requestSearchIndex;
 
     /**
-     * Метод создает новый реквест
+     * Метод создает новый реквест. Подходящие вещи подбираются для него в фоне после сохранения
      *
      * @param itemRequestDto - объект для создания реквеста
      * @param requestorId    - id автора реквеста
@@ -42,8 +59,13 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     public ItemRequestDto create(ItemRequestDto itemRequestDto, Long requestorId) {
         User user = userRepository.findById(requestorId).orElseThrow(() -> new UserNotFoundException(requestorId));
         ItemRequest itemRequest = itemRequestRepository.save(ItemRequestMapper.toItemRequest(itemRequestDto, user));
+        recentRequestsFeed.added(itemRequest);
+        requestSearchIndex.index(itemRequest);
+        requestMatcher.match(itemRequest);
+        ItemRequestDto created = ItemRequestMapper.toItemRequestDto(itemRequest);
+        eventPublisher.publishToOthers(requestorId, EventPublisher.REQUEST_CREATED, created);
         log.info("Реквест с id={} был создан", itemRequest.getId());
-        return ItemRequestMapper.toItemRequestDto(itemRequest);
+        return created;
     }
 
     /**
@@ -61,23 +83,15 @@ public class ItemRequestServiceImpl implements ItemRequestService {
                 .stream()
                 .map(ItemRequestMapper::toItemRequestDto)
                 .collect(Collectors.toList());
-        List<Item> foundItems = itemRepository.findAllByRequestIdIn(foundRequests.stream()
-                .map(ItemRequestDto::getId)
-                .collect(Collectors.toList()));
-        for (ItemRequestDto request : foundRequests) {
-            List<ItemDto> items = new ArrayList<>();
-            for (Item item : foundItems) {
-                if (item.getRequestId().equals(request.getId())) {
-                    items.add(ItemMapper.toItemDto(item));
-                }
-            }
-            request.setItems(items);
+        if (!foundRequests.isEmpty()) {
+            attachItems(foundRequests, itemRepository.findAllByRequestorId(requestorId));
         }
         return foundRequests;
     }
 
     /**
-     * Метод возвращает реквесты других пользователей
+     * Метод возвращает реквесты других пользователей.
+     * Страницы, которые помещаются в окно последних реквестов, отдаются из памяти
      *
      * @param requestorId - id пользователя
      * @param from        - с какого реквеста начать
@@ -89,28 +103,94 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         if (!userRepository.existsById(requestorId)) {
             throw new UserNotFoundException(requestorId);
         }
+        Optional<List<RecentRequest>> recent = recentRequestsFeed.page(requestorId, from, size);
+        if (recent.isPresent()) {
+            return toItemRequestDtos(recent.get());
+        }
         List<ItemRequestDto> foundRequests = itemRequestRepository
                 .findAllByRequestorIdIsNotOrderByCreatedDesc(requestorId, PageRequest.of(from / size, size))
                 .stream()
                 .map(ItemRequestMapper::toItemRequestDto)
                 .collect(Collectors.toList());
-        List<Item> foundItems = itemRepository.findAllByRequestIdIn(foundRequests.stream()
-                .map(ItemRequestDto::getId)
-                .collect(Collectors.toList()));
-        for (ItemRequestDto request : foundRequests) {
-            List<ItemDto> items = new ArrayList<>();
-            for (Item item : foundItems) {
-                if (item.getRequestId().equals(request.getId())) {
-                    items.add(ItemMapper.toItemDto(item));
+        attachItems(foundRequests);
+        return foundRequests;
+    }
+
+    /**
+     * Метод возвращает страницу реквестов других пользователей, начиная после курсора.
+     * Страницы, которые помещаются в окно последних реквестов, отдаются из памяти
+     *
+     * @param requestorId - id пользователя
+     * @param after       - курсор последнего реквеста предыдущей страницы (пустая строка - с начала)
+     * @param size        - количество получаемых реквестов
+     * @return - возвращает страницу реквестов и курсор следующей страницы
+     */
+    @Override
+    public CursorPage<ItemRequestDto> getAllUsersRequests(Long requestorId, String after, int size) {
+        if (!userRepository.existsById(requestorId)) {
+            throw new UserNotFoundException(requestorId);
+        }
+        Cursor cursor = Cursor.decode(after);
+        List<ItemRequestDto> foundRequests;
+        Optional<List<RecentRequest>> recent = recentRequestsFeed.page(requestorId, cursor, size);
+        if (recent.isPresent()) {
+            foundRequests = toItemRequestDtos(recent.get());
+        } else {
+            PageRequest pageRequest = PageRequest.of(0, size);
+            List<ItemRequest> requests = cursor == null
+                    ? itemRequestRepository.findAllByRequestorIdIsNotFirst(requestorId, pageRequest)
+                    : itemRequestRepository.findAllByRequestorIdIsNotAfter(requestorId, cursor.getDateTime(),
+                    cursor.getId(), pageRequest);
+            foundRequests = requests.stream()
+                    .map(ItemRequestMapper::toItemRequestDto)
+                    .collect(Collectors.toList());
+            attachItems(foundRequests);
+        }
+        return CursorPage.of(foundRequests, size, request -> Cursor.of(request.getCreated(), request.getId()));
+    }
+
+    /**
+     * Метод ищет реквесты других пользователей по словам описания, начиная после курсора.
+     * Id реквестов страницы берутся из индекса, сами реквесты загружаются одним запросом
+     *
+     * @param requestorId - id пользователя
+     * @param text        - поисковый запрос
+     * @param after       - курсор последнего реквеста предыдущей страницы (пустая строка - с начала)
+     * @param size        - количество получаемых реквестов
+     * @return - возвращает страницу реквестов и курсор следующей страницы
+     */
+    @Override
+    public CursorPage<ItemRequestDto> search(Long requestorId, String text, String after, int size) {
+        if (!userRepository.existsById(requestorId)) {
+            throw new UserNotFoundException(requestorId);
+        }
+        if (text.isBlank()) {
+            return new CursorPage<>(Collections.emptyList(), null);
+        }
+        Cursor cursor = Cursor.decode(after);
+        List<Long> foundIds = cursor == null ? requestSearchIndex.search(text, requestorId, null, 0, size)
+                : requestSearchIndex.search(text, requestorId, cursor.getDateTime(), cursor.getId(), size);
+        List<ItemRequestDto> foundRequests = new ArrayList<>(foundIds.size());
+        if (!foundIds.isEmpty()) {
+            Map<Long, ItemRequest> requestsById = new HashMap<>();
+            for (ItemRequest request : itemRequestRepository.findAllById(foundIds)) {
+                requestsById.put(request.getId(), request);
+            }
+            for (Long id : foundIds) {
+                ItemRequest request = requestsById.get(id);
+                if (request != null) {
+                    foundRequests.add(ItemRequestMapper.toItemRequestDto(request));
                 }
             }
-            request.setItems(items);
+            attachItems(foundRequests);
         }
-        return foundRequests;
+        log.info("По запросу '{}' было найдено {} реквестов", text, foundRequests.size());
+        return CursorPage.of(foundRequests, size, request -> Cursor.of(request.getCreated(), request.getId()));
     }
 
     /**
-     * Метод возвращает реквест по id
+     * Метод возвращает реквест по id вместе с вещами, созданными в ответ на него,
+     * и заранее подобранными подходящими вещами
      *
      * @param requestorId - id автора реквеста
      * @param requestId   - id реквеста
@@ -123,10 +203,78 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         }
         ItemRequestDto request = ItemRequestMapper.toItemRequestDto(itemRequestRepository
                 .findById(requestId).orElseThrow(() -> new ItemRequestNotFoundException(requestId)));
-        List<ItemDto> foundItems = itemRepository.findAllByRequestIdIn(List.of(requestId)).stream()
+        List<ItemDto> foundItems = itemRepository.findAllByRequestId(requestId).stream()
                 .map(ItemMapper::toItemDto)
                 .collect(Collectors.toList());
         request.setItems(foundItems);
+        request.setSuggestions(requestSuggestionRepository.findAvailableItemsByRequestId(requestId).stream()
+                .filter(item -> !requestId.equals(item.getRequestId()))
+                .map(ItemMapper::toItemDto)
+                .collect(Collectors.toList()));
         return request;
     }
+
+    /**
+     * Метод преобразует реквесты из окна последних реквестов в ItemRequestDto,
+     * загружая вещи одним запросом по их id
+     *
+     * @param recent - реквесты из окна
+     * @return - возвращает реквесты с вещами
+     */
+    private List<ItemRequestDto> toItemRequestDtos(List<RecentRequest> recent) {
+        List<Long> itemIds = recent.stream()
+                .flatMap(request -> request.getItemIds().stream())
+                .collect(Collectors.toList());
+        Map<Long, ItemDto> itemsById = new HashMap<>();
+        if (!itemIds.isEmpty()) {
+            for (Item item : itemRepository.findAllById(itemIds)) {
+                itemsById.put(item.getId(), ItemMapper.toItemDto(item));
+            }
+        }
+        List<ItemRequestDto> foundRequests = new ArrayList<>(recent.size());
+        for (RecentRequest request : recent) {
+            List<ItemDto> items = new ArrayList<>();
+            for (Long itemId : request.getItemIds()) {
+                ItemDto item = itemsById.get(itemId);
+                if (item != null) {
+                    items.add(item);
+                }
+            }
+            foundRequests.add(new ItemRequestDto(request.getId(), request.getDescription(), request.getRequestorId(),
+                    request.getCreated(), items, null));
+        }
+        return foundRequests;
+    }
+
+    /**
+     * Метод добавляет к странице реквестов вещи, созданные в ответ на них.
+     * Размер списка id в запросе вещей ограничен размером страницы
+     *
+     * @param foundRequests - реквесты
+     */
+    private void attachItems(List<ItemRequestDto> foundRequests) {
+        if (foundRequests.isEmpty()) {
+            return;
+        }
+        attachItems(foundRequests, itemRepository.findAllByRequestIdIn(foundRequests.stream()
+                .map(ItemRequestDto::getId)
+                .collect(Collectors.toList())));
+    }
+
+    /**
+     * Метод раскладывает вещи по реквестам за один проход по вещам и один проход по реквестам
+     *
+     * @param foundRequests - реквесты
+     * @param foundItems    - вещи, созданные в ответ на эти реквесты
+     */
+    private void attachItems(List<ItemRequestDto> foundRequests, List<Item> foundItems) {
+        Map<Long, List<ItemDto>> itemsByRequest = new HashMap<>();
+        for (Item item : foundItems) {
+            itemsByRequest.computeIfAbsent(item.getRequestId(), key -> new ArrayList<>())
+                    .add(ItemMapper.toItemDto(item));
+        }
+        for (ItemRequestDto request : foundRequests) {
+            request.setItems(itemsByRequest.getOrDefault(request.getId(), new ArrayList<>()));
+        }
+    }
 }
@@ -0,0 +1,160 @@
+package ru.practicum.shareit.request.suggestion;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.index.ItemSearchIndex;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.model.RequestSuggestion;
+import ru.practicum.shareit.request.repository.RequestSuggestionRepository;
+import ru.practicum.shareit.transaction.AfterCommit;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Подбор уже существующих вещей для новых реквестов. Описание реквеста разбивается на слова без окончаний,
+ * каждое слово ищется в поисковом индексе вещей, релевантности найденных вещей по словам складываются,
+ * и лучшие доступные вещи других пользователей сохраняются как предложения к реквесту.
+ * Подбор выполняется в фоне на ограниченном пуле с ограниченной очередью, поэтому создание реквеста не замедляется;
+ * реквесты, не поместившиеся в очередь, остаются без предложений
+ */
+
+@Slf4j
+@Component
+public class RequestMatcher {
+    // Слова короче триграммы индекса совпадают почти со всеми вещами
+    private static final int MIN_WORD_LENGTH = 3;
+    // Поиск идет по подстроке, поэтому у длинных слов отбрасывается окончание ("бетону" находит "бетона")
+    private static final int MIN_STEM_LENGTH = 4;
+    private static final int MAX_ENDING_LENGTH = 2;
+    private static final int MAX_WORDS = 10;
+
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemRepository itemRepository;
+    private final RequestSuggestionRepository requestSuggestionRepository;
+    private final int limit;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+    private final Timer matchTimer;
+
+    public RequestMatcher(ItemSearchIndex itemSearchIndex, ItemRepository itemRepository,
+                          RequestSuggestionRepository requestSuggestionRepository,
+                          @Value("${shareit.request-matcher.suggestions:10}") int limit,
+                          @Value("${shareit.request-matcher.threads:2}") int threads,
+                          @Value("${shareit.request-matcher.queue-capacity:1000}") int queueCapacity,
+                          MeterRegistry meterRegistry) {
+        this.itemSearchIndex = itemSearchIndex;
+        this.itemRepository = itemRepository;
+        this.requestSuggestionRepository = requestSuggestionRepository;
+        this.limit = limit;
+        rejected = meterRegistry.counter("shareit.request.matcher.rejected");
+        matchTimer = meterRegistry.timer("shareit.request.matcher.match");
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), (task, pool) -> {
+            rejected.increment();
+            log.warn("Очередь подбора вещей для реквестов заполнена, реквест останется без предложений");
+        });
+        Gauge.builder("shareit.request.matcher.queue", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Метод ставит реквест в очередь на подбор вещей.
+     * Внутри транзакции реквест ставится в очередь только после её успешного завершения
+     *
+     * @param request - сохраненный реквест
+     */
+    public void match(ItemRequest request) {
+        Long requestId = request.getId();
+        Long requestorId = request.getRequestor().getId();
+        String description = request.getDescription();
+        Runnable submit = () -> executor.execute(() -> matchTimer.record(() -> {
+            try {
+                suggest(requestId, requestorId, description);
+            } catch (RuntimeException e) {
+                log.error("Не удалось подобрать вещи для реквеста с id={}", requestId, e);
+            }
+        }));
+        AfterCommit.run(submit);
+    }
+
+    /**
+     * Метод дожидается подбора для реквестов, уже поставленных в очередь, и останавливает пул
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Метод подбирает вещи для реквеста и сохраняет их как предложения
+     *
+     * @param requestId   - id реквеста
+     * @param requestorId - id автора реквеста (его вещи не предлагаются)
+     * @param description - описание реквеста
+     */
+    private void suggest(Long requestId, Long requestorId, String description) {
+        Map<Long, Double> scores = new HashMap<>();
+        for (String word : words(description)) {
+            // Запас на вещи автора реквеста, которые будут отброшены
+            for (ItemSearchIndex.Hit hit : itemSearchIndex.top(word, limit * 2)) {
+                scores.merge(hit.getId(), hit.getScore(), Double::sum);
+            }
+        }
+        if (scores.isEmpty()) {
+            log.info("Для реквеста с id={} не нашлось подходящих вещей", requestId);
+            return;
+        }
+        List<Long> candidates = scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit * 2L)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        List<RequestSuggestion> suggestions = itemRepository.findAllById(candidates).stream()
+                .filter(item -> Boolean.TRUE.equals(item.getAvailable()) && !requestorId.equals(item.getOwner()))
+                .sorted(Comparator.comparing((Item item) -> scores.get(item.getId())).reversed()
+                        .thenComparing(Item::getId))
+                .limit(limit)
+                .map(item -> new RequestSuggestion(null, requestId, item, scores.get(item.getId())))
+                .collect(Collectors.toList());
+        requestSuggestionRepository.saveAll(suggestions);
+        log.info("Для реквеста с id={} было подобрано {} вещей", requestId, suggestions.size());
+    }
+
+    /**
+     * Метод разбивает описание реквеста на различные слова без окончаний, пригодные для поиска в индексе
+     *
+     * @param description - описание реквеста
+     * @return - возвращает не более MAX_WORDS слов в порядке их появления
+     */
+    static Set<String> words(String description) {
+        Set<String> words = new LinkedHashSet<>();
+        if (description == null) {
+            return words;
+        }
+        for (String word : description.toUpperCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() >= MIN_WORD_LENGTH) {
+                words.add(word.length() > MIN_STEM_LENGTH
+                        ? word.substring(0, Math.max(MIN_STEM_LENGTH, word.length() - MAX_ENDING_LENGTH)) : word);
+                if (words.size() == MAX_WORDS) {
+                    break;
+                }
+            }
+        }
+        return words;
+    }
+}
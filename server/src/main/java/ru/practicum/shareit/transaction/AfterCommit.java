@@ -0,0 +1,29 @@
+package ru.practicum.shareit.transaction;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Класс для изменений, которые нельзя применять до фиксации транзакции (индексы и кэши в памяти, рассылка событий)
+ */
+
+public class AfterCommit {
+    /**
+     * Метод выполняет изменение после успешного завершения текущей транзакции.
+     * При откате изменение не выполняется, вне транзакции - выполняется сразу
+     *
+     * @param change - изменение
+     */
+    public static void run(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS items_available_name_trgm_idx ON items
+    USING GIN (upper(name) gin_trgm_ops) WHERE is_available = true;
+CREATE INDEX IF NOT EXISTS items_available_description_trgm_idx ON items
+    USING GIN (upper(description) gin_trgm_ops) WHERE is_available = true;
+CREATE INDEX IF NOT EXISTS items_available_fts_idx ON items
+    USING GIN (to_tsvector('simple', name || ' ' || description)) WHERE is_available = true;
+-- Таблица bookings секционируется по end_date помесячно. Обычная таблица, созданная schema.sql, преобразуется
+-- один раз: все строки переносятся в секцию по умолчанию bookings_default, а месячные секции из нее создает
+-- BookingArchiver при старте (до приема запросов) и дальше создает их заранее на shareit.booking.archive.months-ahead
+DO '
+DECLARE
+    definitions TEXT[];
+    definition TEXT;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_class WHERE relname = ''bookings'' AND relkind = ''r'') THEN
+        RETURN;
+    END IF;
+    ALTER TABLE bookings RENAME TO bookings_legacy;
+    ALTER TABLE bookings_legacy RENAME CONSTRAINT bookings_pkey TO bookings_legacy_pkey;
+    definitions := ARRAY(SELECT replace(indexdef, '' ON '' || schemaname || ''.bookings_legacy '',
+                                        '' ON '' || schemaname || ''.bookings '')
+                         FROM pg_indexes
+                         WHERE tablename = ''bookings_legacy'' AND indexname <> ''bookings_legacy_pkey'');
+    CREATE TABLE bookings (
+        id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+        start_date TIMESTAMP,
+        end_date TIMESTAMP NOT NULL,
+        item_id BIGINT REFERENCES items(id),
+        booker_id BIGINT REFERENCES users(id),
+        status VARCHAR(255),
+        version BIGINT NOT NULL DEFAULT 0,
+        PRIMARY KEY (id, end_date)
+    ) PARTITION BY RANGE (end_date);
+    CREATE TABLE bookings_default PARTITION OF bookings DEFAULT;
+    INSERT INTO bookings (id, start_date, end_date, item_id, booker_id, status, version)
+        SELECT id, start_date, end_date, item_id, booker_id, status, version FROM bookings_legacy;
+    PERFORM setval(pg_get_serial_sequence(''bookings'', ''id''), (SELECT coalesce(max(id), 0) + 1 FROM bookings),
+                   false);
+    DROP TABLE bookings_legacy;
+    FOREACH definition IN ARRAY definitions LOOP
+        EXECUTE definition;
+    END LOOP;
+END';
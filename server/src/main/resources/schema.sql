@@ -10,22 +10,33 @@ CREATE TABLE IF NOT EXISTS requests (
     requestor_id BIGINT REFERENCES users(id),
     creation_date TIMESTAMP
 );
+CREATE INDEX IF NOT EXISTS requests_requestor_created_idx ON requests (requestor_id, creation_date DESC);
+CREATE INDEX IF NOT EXISTS requests_created_idx ON requests (creation_date DESC, id DESC);
 CREATE TABLE IF NOT EXISTS items (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
     description VARCHAR(512) NOT NULL,
     is_available BOOLEAN NOT NULL,
     owner_id BIGINT REFERENCES users(id),
-    request_id BIGINT REFERENCES requests(id)
+    request_id BIGINT REFERENCES requests(id),
+    version BIGINT NOT NULL DEFAULT 0
 );
+CREATE INDEX IF NOT EXISTS items_owner_idx ON items (owner_id, id);
+CREATE INDEX IF NOT EXISTS items_request_idx ON items (request_id);
 CREATE TABLE IF NOT EXISTS bookings (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL PRIMARY KEY,
     start_date TIMESTAMP,
     end_date TIMESTAMP,
     item_id BIGINT REFERENCES items(id),
     booker_id BIGINT REFERENCES users(id),
-    status VARCHAR(255)
+    status VARCHAR(255),
+    version BIGINT NOT NULL DEFAULT 0
 );
+CREATE INDEX IF NOT EXISTS bookings_booker_item_end_status_idx ON bookings (booker_id, item_id, end_date, status);
+CREATE INDEX IF NOT EXISTS bookings_booker_end_idx ON bookings (booker_id, end_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS bookings_item_end_idx ON bookings (item_id, end_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS bookings_item_start_end_idx ON bookings (item_id, start_date, end_date);
+CREATE INDEX IF NOT EXISTS bookings_end_status_idx ON bookings (end_date, status);
 CREATE TABLE IF NOT EXISTS comments (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL PRIMARY KEY,
     text VARCHAR(512) NOT NULL,
@@ -33,3 +44,11 @@ CREATE TABLE IF NOT EXISTS comments (
     author_id BIGINT REFERENCES users(id),
     creation_date TIMESTAMP
 );
+CREATE INDEX IF NOT EXISTS comments_item_idx ON comments (item_id);
+CREATE TABLE IF NOT EXISTS request_suggestions (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL PRIMARY KEY,
+    request_id BIGINT NOT NULL REFERENCES requests(id),
+    item_id BIGINT NOT NULL REFERENCES items(id),
+    score DOUBLE PRECISION NOT NULL,
+    CONSTRAINT unique_request_suggestion UNIQUE (request_id, item_id)
+);
@@ -0,0 +1,118 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка планов запросов (EXPLAIN в H2) для основных путей доступа репозиториев:
+ * каждый запрос должен находить строки по индексу, а не полным просмотром таблицы
+ */
+
+@DataJpaTest
+public class QueryPlanTest {
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    public void bookingsOfBookerShouldUseBookerIndex() {
+        String plan = explain("select * from bookings b where b.booker_id = 1 " +
+                "order by b.end_date desc, b.id desc limit 10");
+        assertIndexLookup(plan, "BOOKER_ID");
+    }
+
+    @Test
+    public void bookingsOfOwnerShouldUseOwnerAndItemIndexes() {
+        String plan = explain("select * from bookings b join items i on b.item_id = i.id where i.owner_id = 1 " +
+                "order by b.end_date desc, b.id desc limit 10");
+        assertIndexLookup(plan, "OWNER_ID");
+        assertIndexLookup(plan, "ITEM_ID");
+    }
+
+    @Test
+    public void unfinishedBookingsCountShouldReadEndDateRange() {
+        assertIndex(explain("select count(*) from bookings b where b.booker_id = 1 " +
+                "and b.end_date >= '2023-12-01'"), "BOOKINGS_BOOKER_END_IDX");
+        assertIndexLookup(explain("select count(*) from bookings b join items i on b.item_id = i.id " +
+                "where i.owner_id = 1 and b.end_date >= '2023-12-01'"), "ITEM_ID");
+    }
+
+    @Test
+    public void lastAndNextBookingShouldUseItemStartEndIndex() {
+        assertIndex(explain("select * from bookings b where b.item_id = 1 and b.start_date < '2023-12-01' " +
+                "and b.status <> 'REJECTED' order by b.end_date desc limit 1"), "BOOKINGS_ITEM_START_END_IDX");
+        assertIndexLookup(explain("select * from bookings b where b.item_id = 1 and b.start_date > '2023-12-01' " +
+                "and b.status <> 'REJECTED' order by b.start_date limit 1"), "ITEM_ID");
+    }
+
+    @Test
+    public void itemAvailabilityShouldUseItemIndex() {
+        assertIndexLookup(explain("select b.start_date, b.end_date from bookings b where b.item_id = 1 " +
+                "and b.end_date > '2023-12-01' and b.start_date < '2024-01-01' and b.status <> 'REJECTED' " +
+                "order by b.start_date"), "ITEM_ID");
+    }
+
+    @Test
+    public void availableItemsSearchShouldProbeBookingsByItemStartEndIndex() {
+        String plan = explain("select * from items i where i.is_available = true " +
+                "and upper(i.name) like '%ITEM%' and i.id > 0 and not exists (select 1 from bookings b " +
+                "where b.item_id = i.id and b.start_date < '2024-01-01' and b.end_date > '2023-12-01' " +
+                "and b.status <> 'REJECTED') order by i.id limit 10");
+        assertIndex(plan, "BOOKINGS_ITEM_START_END_IDX");
+    }
+
+    @Test
+    public void commentEligibilityShouldUseBookerItemEndStatusIndex() {
+        assertIndex(explain("select 1 from bookings b where b.booker_id = 1 and b.item_id = 1 " +
+                "and b.end_date < '2023-12-01' and b.status = 'APPROVED' limit 1"), "BOOKINGS_BOOKER_ITEM_END_STATUS_IDX");
+    }
+
+    @Test
+    public void itemsOfOwnerShouldUseOwnerIndex() {
+        assertIndexLookup(explain("select * from items i where i.owner_id = 1 and i.id > 0 order by i.id limit 10"),
+                "OWNER_ID");
+    }
+
+    @Test
+    public void itemsOfRequestsShouldUseRequestIndex() {
+        assertIndexLookup(explain("select * from items i where i.request_id in (1, 2)"), "REQUEST_ID");
+    }
+
+    @Test
+    public void commentsOfItemsShouldUseItemIndex() {
+        assertIndexLookup(explain("select * from comments c where c.item_id in (1, 2)"), "ITEM_ID");
+    }
+
+    @Test
+    public void requestsOfRequestorShouldUseRequestorIndex() {
+        assertIndexLookup(explain("select * from requests r where r.requestor_id = 1 order by r.creation_date desc"),
+                "REQUESTOR_ID");
+    }
+
+    @Test
+    public void requestsOfOtherUsersShouldBeReadInCreatedIndexOrder() {
+        String plan = explain("select * from requests r where r.requestor_id <> 1 " +
+                "order by r.creation_date desc, r.id desc limit 10");
+        assertIndex(plan, "REQUESTS_CREATED_IDX");
+        assertTrue(plan.contains("index sorted"), plan);
+    }
+
+    private String explain(String sql) {
+        return String.valueOf(entityManager.getEntityManager().createNativeQuery("explain " + sql).getSingleResult());
+    }
+
+    private static void assertIndex(String plan, String index) {
+        assertTrue(plan.contains("/* PUBLIC." + index), plan);
+    }
+
+    private static void assertIndexLookup(String plan, String column) {
+        assertFalse(plan.contains("tableScan"), plan);
+        assertTrue(Pattern.compile("/\\* PUBLIC\\.\\w+: [^*]*\\b" + column + " (=|IN)").matcher(plan).find(), plan);
+    }
+}
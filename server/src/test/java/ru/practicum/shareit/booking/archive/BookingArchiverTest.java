@@ -0,0 +1,160 @@
+package ru.practicum.shareit.booking.archive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingArchiverTest {
+    @Mock
+    private JdbcTemplate mockJdbcTemplate;
+    @Mock
+    private PlatformTransactionManager mockTransactionManager;
+    private BookingArchiver bookingArchiver;
+    private final LocalDate today = LocalDate.of(2024, 3, 15);
+
+    @BeforeEach
+    public void createArchiver() {
+        bookingArchiver = new BookingArchiver(mockJdbcTemplate, new TransactionTemplate(mockTransactionManager),
+                30, 1, "2s");
+        lenient().when(mockJdbcTemplate.queryForList(startsWith("select 1 from pg_class"), eq(Integer.class),
+                eq("bookings"))).thenReturn(List.of(1));
+    }
+
+    @Test
+    public void createPartitions_shouldCreateMissingMonthsAndMoveRowsFromDefaultPartition() {
+        partitions("bookings", BookingArchiver.partition("bookings_default", "DEFAULT"),
+                BookingArchiver.partition("bookings_202403",
+                        "FOR VALUES FROM ('2024-03-01 00:00:00') TO ('2024-04-01 00:00:00')"));
+        when(mockJdbcTemplate.queryForList(anyString(), eq(Date.class), any()))
+                .thenReturn(List.of(Date.valueOf("2023-12-01")));
+        bookingArchiver.createPartitions(today);
+
+        InOrder order = inOrder(mockJdbcTemplate);
+        order.verify(mockJdbcTemplate).execute("set local lock_timeout = '2s'");
+        order.verify(mockJdbcTemplate).execute("lock table bookings_default in access exclusive mode");
+        order.verify(mockJdbcTemplate).execute("create table bookings_202312 (like bookings including defaults)");
+        order.verify(mockJdbcTemplate).execute("alter table bookings_202312 add constraint " +
+                "bookings_202312_end_date_check check (end_date >= '2023-12-01 00:00:00' " +
+                "and end_date < '2024-01-01 00:00:00')");
+        order.verify(mockJdbcTemplate).update(startsWith("with moved as (delete from bookings_default"),
+                any(Timestamp.class), any(Timestamp.class));
+        order.verify(mockJdbcTemplate).execute("alter table bookings attach partition bookings_202312 " +
+                "for values from ('2023-12-01 00:00:00') to ('2024-01-01 00:00:00')");
+        order.verify(mockJdbcTemplate).execute("create table bookings_202404 (like bookings including defaults)");
+        order.verify(mockJdbcTemplate).execute("alter table bookings attach partition bookings_202404 " +
+                "for values from ('2024-04-01 00:00:00') to ('2024-05-01 00:00:00')");
+        verify(mockJdbcTemplate, never()).execute(startsWith("create table bookings_202403"));
+    }
+
+    @Test
+    public void createPartitions_shouldAttachArchivedMonthsToArchivePartition() {
+        partitions("bookings", BookingArchiver.partition("bookings_default", "DEFAULT"),
+                BookingArchiver.partition("bookings_archive", "FOR VALUES FROM (MINVALUE) TO ('2024-02-01 00:00:00')"),
+                BookingArchiver.partition("bookings_202402",
+                        "FOR VALUES FROM ('2024-02-01 00:00:00') TO ('2024-03-01 00:00:00')"),
+                BookingArchiver.partition("bookings_202403",
+                        "FOR VALUES FROM ('2024-03-01 00:00:00') TO ('2024-04-01 00:00:00')"),
+                BookingArchiver.partition("bookings_202404",
+                        "FOR VALUES FROM ('2024-04-01 00:00:00') TO ('2024-05-01 00:00:00')"));
+        partitions("bookings_archive");
+        when(mockJdbcTemplate.queryForList(anyString(), eq(Date.class), any()))
+                .thenReturn(List.of(Date.valueOf("2023-11-01")));
+        bookingArchiver.createPartitions(today);
+
+        verify(mockJdbcTemplate).execute("alter table bookings_archive attach partition bookings_202311 " +
+                "for values from ('2023-11-01 00:00:00') to ('2023-12-01 00:00:00')");
+        verify(mockJdbcTemplate, times(1)).execute(startsWith("create table"));
+    }
+
+    @Test
+    public void archive_shouldMoveEndedMonthsIntoArchiveWithoutCopyingRows() {
+        partitions("bookings", BookingArchiver.partition("bookings_default", "DEFAULT"),
+                BookingArchiver.partition("bookings_archive", "FOR VALUES FROM (MINVALUE) TO ('2024-01-01 00:00:00')"),
+                BookingArchiver.partition("bookings_202401",
+                        "FOR VALUES FROM ('2024-01-01 00:00:00') TO ('2024-02-01 00:00:00')"),
+                BookingArchiver.partition("bookings_202402",
+                        "FOR VALUES FROM ('2024-02-01 00:00:00') TO ('2024-03-01 00:00:00')"));
+        bookingArchiver.archive(today);
+
+        InOrder order = inOrder(mockJdbcTemplate);
+        order.verify(mockJdbcTemplate).execute("set local lock_timeout = '2s'");
+        order.verify(mockJdbcTemplate).execute("alter table bookings detach partition bookings_archive");
+        order.verify(mockJdbcTemplate).execute("alter table bookings detach partition bookings_202401");
+        order.verify(mockJdbcTemplate).execute("alter table bookings_archive attach partition bookings_202401 " +
+                "for values from ('2024-01-01 00:00:00') to ('2024-02-01 00:00:00')");
+        order.verify(mockJdbcTemplate).execute("alter table bookings attach partition bookings_archive " +
+                "for values from (minvalue) to ('2024-02-01 00:00:00')");
+        verify(mockJdbcTemplate, never()).execute(contains("bookings_202402"));
+        verify(mockJdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    public void archive_shouldCreateArchivePartitionOnFirstRun() {
+        partitions("bookings", BookingArchiver.partition("bookings_default", "DEFAULT"),
+                BookingArchiver.partition("bookings_202312",
+                        "FOR VALUES FROM ('2023-12-01 00:00:00') TO ('2024-01-01 00:00:00')"));
+        bookingArchiver.archive(today);
+
+        InOrder order = inOrder(mockJdbcTemplate);
+        order.verify(mockJdbcTemplate).execute("create table bookings_archive (like bookings including defaults) " +
+                "partition by range (end_date)");
+        order.verify(mockJdbcTemplate).execute("alter table bookings detach partition bookings_202312");
+        order.verify(mockJdbcTemplate).execute("alter table bookings attach partition bookings_archive " +
+                "for values from (minvalue) to ('2024-02-01 00:00:00')");
+    }
+
+    @Test
+    public void archive_shouldDoNothingWhenNoMonthHasEnded() {
+        partitions("bookings", BookingArchiver.partition("bookings_default", "DEFAULT"),
+                BookingArchiver.partition("bookings_archive", "FOR VALUES FROM (MINVALUE) TO ('2024-02-01 00:00:00')"),
+                BookingArchiver.partition("bookings_202402",
+                        "FOR VALUES FROM ('2024-02-01 00:00:00') TO ('2024-03-01 00:00:00')"));
+        bookingArchiver.archive(today);
+        verify(mockJdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    public void maintain_shouldSkipNotPartitionedTable() {
+        when(mockJdbcTemplate.queryForList(startsWith("select 1 from pg_class"), eq(Integer.class), eq("bookings")))
+                .thenReturn(List.of());
+        bookingArchiver.maintain();
+        verify(mockJdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    public void partition_shouldParsePartitionBounds() {
+        BookingArchiver.Partition month = BookingArchiver.partition("bookings_202401",
+                "FOR VALUES FROM ('2024-01-01 00:00:00') TO ('2024-02-01 00:00:00')");
+        assertEquals(LocalDate.of(2024, 1, 1), month.getFrom());
+        assertEquals(LocalDate.of(2024, 2, 1), month.getTo());
+        BookingArchiver.Partition archive = BookingArchiver.partition("bookings_archive",
+                "FOR VALUES FROM (MINVALUE) TO ('2024-01-01 00:00:00')");
+        assertNull(archive.getFrom());
+        assertTrue(BookingArchiver.partition("bookings_default", "DEFAULT").isDefault());
+        assertThrows(IllegalStateException.class, () -> BookingArchiver.partition("bookings", "FOR VALUES IN (1)"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void partitions(String parent, BookingArchiver.Partition... partitions) {
+        when(mockJdbcTemplate.query(startsWith("select c.relname"), any(RowMapper.class), eq(parent)))
+                .thenReturn(new ArrayList<>(List.of(partitions)));
+    }
+}
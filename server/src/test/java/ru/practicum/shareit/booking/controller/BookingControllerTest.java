@@ -7,10 +7,16 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingStatusResultDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.booking.export.BookingExportFormat;
 import ru.practicum.shareit.booking.model.State;
 import ru.practicum.shareit.booking.model.Status;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.user.exception.UserNotFoundException;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
@@ -44,6 +50,22 @@ public class BookingControllerTest {
                 .andExpect(content().json(mapper.writeValueAsString(bookingDto)));
     }
 
+    @Test
+    public void createAllTest() throws Exception {
+        BookingDto bookingDto = new BookingDto(null, LocalDateTime.now().plusHours(1),
+                LocalDateTime.now().plusHours(2), null, null, 1L, null, Status.WAITING);
+        List<BookingBatchResultDto> results = List.of(new BookingBatchResultDto(null, "Вещь с id=1 недоступна"));
+        when(bookingService.createAll(List.of(bookingDto), 2L)).thenReturn(results);
+        mvc.perform(post("/bookings/batch")
+                        .content(mapper.writeValueAsString(List.of(bookingDto)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-Sharer-User-Id", 2L))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(results)));
+    }
+
     @Test
     public void setStatusTest() throws Exception {
         BookingDto bookingApproved = new BookingDto(1L, LocalDateTime.now().plusHours(1),
@@ -57,6 +79,21 @@ public class BookingControllerTest {
                 .andExpect(content().json(mapper.writeValueAsString(bookingApproved)));
     }
 
+    @Test
+    public void setStatusAllTest() throws Exception {
+        List<BookingStatusResultDto> results = List.of(new BookingStatusResultDto(1L, Status.APPROVED, null),
+                new BookingStatusResultDto(5L, null, "Бронирование с id=5 не найдено"));
+        when(bookingService.setStatusAll(1L, List.of(1L, 5L), true)).thenReturn(results);
+        mvc.perform(patch("/bookings/status")
+                        .queryParam("approved", "true")
+                        .content(mapper.writeValueAsString(List.of(1L, 5L)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-Sharer-User-Id", 1L))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(results)));
+    }
+
     @Test
     public void getBookingByIdTest() throws Exception {
         BookingDto bookingDto = new BookingDto(1L, LocalDateTime.now().plusHours(1),
@@ -92,4 +129,37 @@ public class BookingControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().json(mapper.writeValueAsString(bookings)));
     }
+
+    @Test
+    public void getSummaryForItemsBelongToUserTest() throws Exception {
+        BookingSummaryDto summary = new BookingSummaryDto(3, 1, 1, 1, 2, 1);
+        when(bookingService.getSummaryForItemsBelongToUser(1L)).thenReturn(summary);
+        mvc.perform(get("/bookings/owner/summary")
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(summary)));
+    }
+
+    @Test
+    public void exportForItemsBelongToUserTest() throws Exception {
+        when(bookingService.exportForItemsBelongToUser(1L, BookingExportFormat.CSV))
+                .thenReturn(out -> out.write("id,start\n1,2023-10-30T20:00\n".getBytes(StandardCharsets.UTF_8)));
+        MvcResult result = mvc.perform(get("/bookings/owner/export?format=CSV")
+                        .header("X-Sharer-User-Id", 1L))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(content().string("id,start\n1,2023-10-30T20:00\n"));
+    }
+
+    @Test
+    public void exportByUserShouldReturnNotFoundBeforeStreaming() throws Exception {
+        when(bookingService.exportByUser(5L, BookingExportFormat.NDJSON)).thenThrow(new UserNotFoundException(5L));
+        mvc.perform(get("/bookings/export")
+                        .header("X-Sharer-User-Id", 5L))
+                .andExpect(status().isNotFound());
+    }
 }
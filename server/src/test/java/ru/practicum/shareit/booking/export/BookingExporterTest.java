@@ -0,0 +1,75 @@
+package ru.practicum.shareit.booking.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureJson
+@Import(BookingExporter.class)
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, value = "/DBFiller.sql")
+@Sql(executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD, value = "/DBCleaner.sql")
+public class BookingExporterTest {
+    @Autowired
+    private BookingExporter bookingExporter;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Test
+    public void exportByOwnerShouldWriteOneJsonLinePerBookingByEndDesc() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookingExporter.exportByOwner(2L, BookingExportFormat.NDJSON, out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = mapper.readTree(lines[0]);
+        assertEquals(3, first.get("id").asLong());
+        assertEquals(3, first.get("bookerId").asLong());
+        assertEquals("item3", first.get("item").get("name").asText());
+        assertEquals(2, mapper.readTree(lines[1]).get("id").asLong());
+    }
+
+    @Test
+    public void exportByBookerShouldWriteCsvWithHeaderAndEscapedNames() throws Exception {
+        Item item = entityManager.find(Item.class, 1L);
+        item.setName("Дрель, \"ударная\"");
+        User booker = entityManager.find(User.class, 2L);
+        entityManager.persist(new Booking(null, LocalDateTime.of(2020, 1, 1, 10, 0),
+                LocalDateTime.of(2020, 1, 2, 10, 0), item, booker, Status.APPROVED, null));
+        entityManager.flush();
+        entityManager.clear();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookingExporter.exportByBooker(2L, BookingExportFormat.CSV, out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("id,start,end,status,item_id,item_name,booker_id,booker_name", lines[0]);
+        assertEquals("1,2023-10-30T20:00,2024-10-30T20:00,WAITING,1,\"Дрель, \"\"ударная\"\"\",2,user2", lines[1]);
+        assertTrue(lines[2].startsWith("100,2020-01-01T10:00,2020-01-02T10:00,APPROVED,1,"));
+    }
+
+    @Test
+    public void exportShouldWriteOnlyHeaderWhenUserHasNoBookings() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookingExporter.exportByOwner(3L, BookingExportFormat.CSV, out);
+        assertEquals("id,start,end,status,item_id,item_name,booker_id,booker_name\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+}
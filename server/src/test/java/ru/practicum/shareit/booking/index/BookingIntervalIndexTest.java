@@ -0,0 +1,99 @@
+package ru.practicum.shareit.booking.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.booking.exception.BookingOverlapException;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.model.Item;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingIntervalIndexTest {
+    @Mock
+    private BookingRepository mockBookingRepository;
+    @InjectMocks
+    private BookingIntervalIndex bookingIntervalIndex;
+    private final LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+    private final Item item = new Item(1L, "Дрель", "Простая дрель", true, 1L, null, null);
+
+    @BeforeEach
+    public void fillIndex() {
+        when(mockBookingRepository.findAllByStatusInAndEndIsAfter(any(), any())).thenReturn(List.of(
+                booking(1L, 0, 2),
+                booking(2L, 1, 3),
+                booking(3L, 5, 6)));
+        bookingIntervalIndex.rebuild();
+    }
+
+    @Test
+    public void reserve_shouldRejectOverlappingPeriods() {
+        assertThrows(BookingOverlapException.class, () -> bookingIntervalIndex.reserve(booking(4L, 2, 4)));
+        assertThrows(BookingOverlapException.class, () -> bookingIntervalIndex.reserve(booking(4L, 4, 7)));
+        bookingIntervalIndex.reserve(booking(4L, 3, 5));
+        bookingIntervalIndex.reserve(booking(5L, 6, 7));
+        assertThrows(BookingOverlapException.class, () -> bookingIntervalIndex.reserve(booking(6L, 3, 4)));
+    }
+
+    @Test
+    public void reserve_shouldIgnoreOtherItems() {
+        Booking other = booking(4L, 0, 2);
+        other.setItem(new Item(2L, "Пила", "Ручная пила", true, 1L, null, null));
+        bookingIntervalIndex.reserve(other);
+    }
+
+    @Test
+    public void release_shouldFreeOnlyReleasedBooking() {
+        bookingIntervalIndex.release(booking(1L, 0, 2));
+        assertThrows(BookingOverlapException.class, () -> bookingIntervalIndex.reserve(booking(4L, 1, 2)));
+        bookingIntervalIndex.reserve(booking(4L, 0, 1));
+        bookingIntervalIndex.release(booking(3L, 5, 6));
+        bookingIntervalIndex.reserve(booking(5L, 5, 6));
+    }
+
+    @Test
+    public void reserve_shouldAdmitOnlyOneOfConcurrentOverlappingBookings() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Booking booking = booking(10L + i, 10, 12);
+            futures.add(executor.submit(() -> {
+                ready.await();
+                try {
+                    bookingIntervalIndex.reserve(booking);
+                    admitted.incrementAndGet();
+                } catch (BookingOverlapException ignored) {
+                    // период уже занят другим потоком
+                }
+                return null;
+            }));
+        }
+        ready.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertEquals(1, admitted.get());
+    }
+
+    private Booking booking(Long id, int fromDay, int toDay) {
+        return new Booking(id, start.plusDays(fromDay), start.plusDays(toDay), item, null, Status.WAITING, null);
+    }
+}
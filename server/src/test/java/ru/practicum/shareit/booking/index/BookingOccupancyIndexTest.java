@@ -0,0 +1,73 @@
+package ru.practicum.shareit.booking.index;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.model.Item;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingOccupancyIndexTest {
+    @Mock
+    private BookingRepository mockBookingRepository;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BookingOccupancyIndex bookingOccupancyIndex;
+    private final LocalDateTime start = LocalDateTime.now().plusDays(1).toLocalDate().atStartOfDay();
+    private final Item item = new Item(1L, "Дрель", "Простая дрель", true, 1L, null, null);
+
+    @BeforeEach
+    public void fillIndex() {
+        bookingOccupancyIndex = new BookingOccupancyIndex(mockBookingRepository, meterRegistry);
+        when(mockBookingRepository.findAllByStatusInAndEndIsAfter(any(), any())).thenReturn(List.of(
+                booking(1L, start.plusDays(2), start.plusDays(4)),
+                booking(2L, start.plusDays(3).plusHours(10), start.plusDays(6).plusHours(12))));
+        bookingOccupancyIndex.rebuild();
+    }
+
+    @Test
+    public void isFree_shouldCheckWholeDays() {
+        assertTrue(bookingOccupancyIndex.isFree(1L, start, start.plusDays(2)));
+        assertFalse(bookingOccupancyIndex.isFree(1L, start, start.plusDays(2).plusHours(1)));
+        assertFalse(bookingOccupancyIndex.isFree(1L, start.plusDays(6).plusHours(18), start.plusDays(7)));
+        assertTrue(bookingOccupancyIndex.isFree(1L, start.plusDays(7), start.plusDays(30)));
+        assertTrue(bookingOccupancyIndex.isFree(2L, start, start.plusDays(30)));
+    }
+
+    @Test
+    public void occupyAndVacate_shouldKeepDaysOfOtherBookings() {
+        bookingOccupancyIndex.occupy(booking(3L, start.minusHours(1), start.plusHours(1)));
+        assertFalse(bookingOccupancyIndex.isFree(1L, start.minusDays(1), start.minusDays(1).plusHours(1)));
+        assertFalse(bookingOccupancyIndex.isFree(1L, start, start.plusHours(2)));
+        bookingOccupancyIndex.vacate(booking(1L, start.plusDays(2), start.plusDays(4)));
+        assertTrue(bookingOccupancyIndex.isFree(1L, start.plusDays(2), start.plusDays(3)));
+        assertFalse(bookingOccupancyIndex.isFree(1L, start.plusDays(3), start.plusDays(4)));
+        bookingOccupancyIndex.vacate(booking(2L, start, start));
+        bookingOccupancyIndex.vacate(booking(3L, start, start));
+        assertTrue(bookingOccupancyIndex.isFree(1L, start.minusDays(1), start.plusDays(30)));
+        assertEquals(0, bookingOccupancyIndex.memory());
+    }
+
+    @Test
+    public void rebuild_shouldReportMetrics() {
+        assertEquals(1.0, meterRegistry.get("shareit.booking.occupancy.items").gauge().value());
+        assertTrue(meterRegistry.get("shareit.booking.occupancy.memory").gauge().value() > 0);
+        assertEquals(1, meterRegistry.get("shareit.booking.occupancy.rebuild").timer().count());
+    }
+
+    private Booking booking(Long id, LocalDateTime from, LocalDateTime to) {
+        return new Booking(id, from, to, item, null, Status.WAITING, null);
+    }
+}
@@ -1,16 +1,29 @@
 package ru.practicum.shareit.booking.repository;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.jdbc.Sql;
+import ru.practicum.shareit.booking.dto.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.State;
 import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -20,86 +33,232 @@ import static org.junit.jupiter.api.Assertions.*;
 public class BookingRepositoryTest {
     @Autowired
     private BookingRepository bookingRepository;
+    @Autowired
+    private TestEntityManager entityManager;
     private PageRequest pageRequest = PageRequest.of(0, 10);
     private LocalDateTime date = LocalDateTime.now();
+    private LocalDateTime december = LocalDateTime.of(2023, 12, 15, 0, 0);
 
     @Test
-    public void findAllByBookerIdOrderByEndDescTest() {
-        List<Booking> result = bookingRepository.findAllByBookerIdOrderByEndDesc(1L, pageRequest);
-        assertEquals(1, result.size());
-        assertEquals(3L, result.get(0).getItem().getId());
+    public void findSliceByBookerTest() {
+        assertEquals(List.of(2L), ids(BookingSpecifications.bookerIs(1L), State.ALL, december));
+        assertEquals(List.of(1L), ids(BookingSpecifications.bookerIs(2L), State.CURRENT, december));
+        assertEquals(List.of(), ids(BookingSpecifications.bookerIs(2L), State.PAST, december));
+        assertEquals(List.of(3L), ids(BookingSpecifications.bookerIs(3L), State.FUTURE, december));
+        assertEquals(List.of(3L), ids(BookingSpecifications.bookerIs(3L), State.WAITING, december));
+        assertEquals(List.of(), ids(BookingSpecifications.bookerIs(3L), State.REJECTED, december));
     }
 
     @Test
-    public void findAllByBookerIdAndStartIsBeforeAndEndIsAfterOrderByEndDescTest() {
-        List<Booking> result = bookingRepository.findAllByBookerIdAndStartIsBeforeAndEndIsAfterOrderByEndDesc(2L,
-                date.minusHours(1), date.plusHours(1), pageRequest);
-        assertEquals(1, result.size());
-        assertEquals(1L, result.get(0).getItem().getId());
+    public void findSliceByOwnerTest() {
+        assertEquals(List.of(3L, 2L), ids(BookingSpecifications.ownerIs(2L), State.ALL, december));
+        assertEquals(List.of(1L), ids(BookingSpecifications.ownerIs(1L), State.CURRENT, december));
+        assertEquals(List.of(3L, 2L), ids(BookingSpecifications.ownerIs(2L), State.PAST,
+                LocalDateTime.of(2024, 2, 1, 0, 0)));
+        assertEquals(List.of(3L), ids(BookingSpecifications.ownerIs(2L), State.FUTURE, december));
+        assertEquals(List.of(3L, 2L), ids(BookingSpecifications.ownerIs(2L), State.WAITING, december));
+        assertEquals(List.of(), ids(BookingSpecifications.ownerIs(2L), State.REJECTED, december));
     }
 
     @Test
-    public void findAllByBookerIdAndEndIsBeforeOrderByEndDescTest() {
-        List<Booking> result = bookingRepository.findAllByBookerIdAndEndIsBeforeOrderByEndDesc(2L, date, pageRequest);
-        assertEquals(0, result.size());
+    public void findSliceShouldReportNextPageWithoutCountQuery() {
+        Specification<Booking> owner = BookingSpecifications.ownerIs(2L);
+        Slice<Booking> first = bookingRepository.findSlice(owner, PageRequest.of(0, 1, BookingSpecifications.BY_END_DESC));
+        assertEquals(3L, first.getContent().get(0).getId());
+        assertTrue(first.hasNext());
+        Slice<Booking> second = bookingRepository.findSlice(owner, PageRequest.of(1, 1, BookingSpecifications.BY_END_DESC));
+        assertEquals(2L, second.getContent().get(0).getId());
+        assertFalse(second.hasNext());
+        assertEquals(1, countStatements(() -> bookingRepository.findSlice(owner,
+                PageRequest.of(0, 1, BookingSpecifications.BY_END_DESC))));
     }
 
     @Test
-    public void findAllByBookerIdAndStartIsAfterOrderByEndDescTest() {
-        List<Booking> result = bookingRepository.findAllByBookerIdAndStartIsAfterOrderByEndDesc(3L, date, pageRequest);
-        assertEquals(1, result.size());
-        assertEquals(3L, result.get(0).getItem().getId());
+    public void findFirst1ByItemIdAndStartIsBeforeAndStatusIsNotOrderByEndDescTest() {
+        Optional<Booking> booking = bookingRepository.findFirst1ByItemIdAndStartIsBeforeAndStatusIsNotOrderByEndDesc(3L, date, Status.REJECTED);
+        assertTrue(booking.isEmpty());
     }
 
     @Test
-    public void findAllByBookerIdAndStatusOrderByEndDescTest() {
-        List<Booking> result = bookingRepository.findAllByBookerIdAndStatusOrderByEndDesc(3L, Status.WAITING, pageRequest);
-        assertEquals(1, result.size());
-        assertEquals(3L, result.get(0).getItem().getId());
+    public void findFirst1ByItemIdAndStartIsAfterAndStatusIsNotOrderByStartAscTest() {
+        Optional<Booking> booking = bookingRepository.findFirst1ByItemIdAndStartIsAfterAndStatusIsNotOrderByStartAsc(3L, date, Status.REJECTED);
+        assertTrue(booking.isPresent());
     }
 
     @Test
-    public void findAllByItemOwnerOrderByEndDescTest() {
-        List<Booking> result = bookingRepository.findAllByItemOwnerOrderByEndDesc(2L, pageRequest);
-        assertEquals(2, result.size());
-        assertEquals(3L, result.get(0).getItem().getId());
-        assertEquals(3L, result.get(1).getItem().getId());
+    public void existsByBookerIdAndItemIdAndEndIsBeforeAndStatusTest() {
+        LocalDateTime after = LocalDateTime.of(2025, 1, 1, 0, 0);
+        assertFalse(bookingRepository.existsByBookerIdAndItemIdAndEndIsBeforeAndStatus(2L, 1L, after,
+                Status.APPROVED));
+        Booking booking = bookingRepository.findById(1L).orElseThrow();
+        booking.setStatus(Status.APPROVED);
+        bookingRepository.save(booking);
+        assertTrue(bookingRepository.existsByBookerIdAndItemIdAndEndIsBeforeAndStatus(2L, 1L, after,
+                Status.APPROVED));
+        assertFalse(bookingRepository.existsByBookerIdAndItemIdAndEndIsBeforeAndStatus(2L, 3L, after,
+                Status.APPROVED));
+        assertFalse(bookingRepository.existsByBookerIdAndItemIdAndEndIsBeforeAndStatus(2L, 1L,
+                booking.getEnd(), Status.APPROVED));
     }
 
     @Test
-    public void findAllByItemOwnerAndStartIsBeforeAndEndIsAfterOrderByEndDescTest() {
-        List<Booking> result = bookingRepository.findAllByItemOwnerAndStartIsBeforeAndEndIsAfterOrderByEndDesc(1L, date, date, pageRequest);
-        assertEquals(1, result.size());
-        assertEquals(1L, result.get(0).getItem().getId());
+    public void updateStatusTest() {
+        assertEquals(0, bookingRepository.updateStatus(1L, Status.APPROVED, Status.REJECTED));
+        assertEquals(1, bookingRepository.updateStatus(1L, Status.WAITING, Status.APPROVED));
+        Booking booking = bookingRepository.findById(1L).orElseThrow();
+        assertEquals(Status.APPROVED, booking.getStatus());
+        assertEquals(1L, booking.getVersion());
     }
 
     @Test
-    public void findAllByItemOwnerAndEndIsBeforeOrderByEndDescTest() {
-        List<Booking> result = bookingRepository.findAllByItemOwnerAndEndIsBeforeOrderByEndDesc(1L, date, pageRequest);
-        assertEquals(0, result.size());
+    public void saveShouldFailWhenVersionIsStale() {
+        Booking stale = bookingRepository.findById(1L).orElseThrow();
+        entityManager.detach(stale);
+        bookingRepository.updateStatus(1L, Status.WAITING, Status.APPROVED);
+        stale.setStatus(Status.REJECTED);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> bookingRepository.saveAndFlush(stale));
     }
 
     @Test
-    public void findAllByItemOwnerAndStartIsAfterOrderByEndDescTest() {
-        List<Booking> result = bookingRepository.findAllByItemOwnerAndStartIsAfterOrderByEndDesc(2L, date, pageRequest);
-        assertEquals(2, result.size());
+    public void countByStatusTest() {
+        bookingRepository.updateStatus(2L, Status.WAITING, Status.REJECTED);
+        List<BookingStatusCount> bookers = bookingRepository.countByBookerAndStatus();
+        assertEquals(3, bookers.size());
+        assertTrue(bookers.stream().anyMatch(count -> count.getUserId() == 1L
+                && count.getStatus() == Status.REJECTED && count.getCount() == 1L));
+        List<BookingStatusCount> owners = bookingRepository.countByOwnerAndStatus();
+        assertEquals(3, owners.size());
+        assertTrue(owners.stream().anyMatch(count -> count.getUserId() == 2L
+                && count.getStatus() == Status.WAITING && count.getCount() == 1L));
+        assertTrue(owners.stream().anyMatch(count -> count.getUserId() == 2L
+                && count.getStatus() == Status.REJECTED && count.getCount() == 1L));
     }
 
     @Test
-    public void findAllByItemOwnerAndStatusOrderByEndDescTest() {
-        List<Booking> result = bookingRepository.findAllByItemOwnerAndStatusOrderByEndDesc(2L, Status.APPROVED, pageRequest);
-        assertEquals(0, result.size());
+    public void countByTimeTest() {
+        BookingTimeCount owner = bookingRepository.countByOwnerAndTime(2L, december);
+        assertEquals(1L, owner.getCurrentCount());
+        assertEquals(1L, owner.getFutureCount());
+        assertEquals(2L, owner.getUnfinishedCount());
+        BookingTimeCount booker = bookingRepository.countByBookerAndTime(3L, LocalDateTime.of(2024, 2, 1, 0, 0));
+        assertEquals(0L, booker.getCurrentCount());
+        assertEquals(0L, booker.getFutureCount());
+        assertEquals(0L, booker.getUnfinishedCount());
+        assertEquals(1L, bookingRepository.countByBookerAndTime(3L, december).getUnfinishedCount());
+        assertEquals(0L, bookingRepository.countByBookerAndTime(99L, december).getUnfinishedCount());
     }
 
     @Test
-    public void findFirst1ByItemIdAndStartIsBeforeAndStatusIsNotOrderByEndDescTest() {
-        Optional<Booking> booking = bookingRepository.findFirst1ByItemIdAndStartIsBeforeAndStatusIsNotOrderByEndDesc(3L, date, Status.REJECTED);
-        assertTrue(booking.isEmpty());
+    public void findLastAndNextByItemIdInTest() {
+        List<Booking> result = bookingRepository.findLastAndNextByItemIdIn(List.of(1L, 3L),
+                LocalDateTime.of(2023, 12, 1, 0, 0), Status.REJECTED);
+        assertEquals(3, result.size());
+        assertTrue(result.stream().anyMatch(booking -> booking.getId() == 1L));
+        assertTrue(result.stream().anyMatch(booking -> booking.getId() == 2L));
+        assertTrue(result.stream().anyMatch(booking -> booking.getId() == 3L));
     }
 
     @Test
-    public void findFirst1ByItemIdAndStartIsAfterAndStatusIsNotOrderByStartAscTest() {
-        Optional<Booking> booking = bookingRepository.findFirst1ByItemIdAndStartIsAfterAndStatusIsNotOrderByStartAsc(3L, date, Status.REJECTED);
-        assertTrue(booking.isPresent());
+    public void findAllByItemOwnerOrderByEndDescShouldUseOneStatementForAnyPageSize() {
+        for (int i = 0; i < 10; i++) {
+            User booker = entityManager.persist(new User(null, "booker" + i, "booker" + i + "@email.com"));
+            Item item = entityManager.persist(new Item(null, "item" + i, "desc" + i, true, 1L, null, null));
+            entityManager.persist(new Booking(null, date.plusDays(i), date.plusDays(i + 1), item, booker,
+                    Status.WAITING, null));
+        }
+        assertEquals(1, countStatements(() -> bookingRepository.findSlice(BookingSpecifications.ownerIs(1L),
+                PageRequest.of(0, 1, BookingSpecifications.BY_END_DESC)).forEach(BookingMapper::toBookingDto)));
+        assertEquals(1, countStatements(() -> bookingRepository.findSlice(BookingSpecifications.ownerIs(1L),
+                PageRequest.of(0, 11, BookingSpecifications.BY_END_DESC)).forEach(BookingMapper::toBookingDto)));
+        assertEquals(1, countStatements(() -> bookingRepository.findSlice(BookingSpecifications.bookerIs(1L),
+                pageRequest.withSort(BookingSpecifications.BY_END_DESC)).forEach(BookingMapper::toBookingDto)));
+        assertEquals(1, countStatements(() -> BookingMapper.toBookingDto(bookingRepository.findById(1L)
+                .orElseThrow())));
+    }
+
+    @Test
+    public void findSliceAfterCursorTest() {
+        Specification<Booking> owner = BookingSpecifications.ownerIs(2L)
+                .and(BookingSpecifications.inState(State.ALL, date));
+        List<Booking> first = bookingRepository.findSlice(owner.and(BookingSpecifications.endAfterCursor(null)),
+                PageRequest.of(0, 1, BookingSpecifications.BY_END_DESC)).getContent();
+        assertEquals(1, first.size());
+        assertEquals(3L, first.get(0).getId());
+        List<Booking> next = bookingRepository.findSlice(owner.and(BookingSpecifications.endAfterCursor(
+                Cursor.of(first.get(0).getEnd(), first.get(0).getId()))), pageRequest.withSort(
+                BookingSpecifications.BY_END_DESC)).getContent();
+        assertEquals(1, next.size());
+        assertEquals(2L, next.get(0).getId());
+    }
+
+    @Test
+    public void insertAllShouldSetGeneratedIds() {
+        Item item = entityManager.find(Item.class, 3L);
+        User booker = entityManager.find(User.class, 1L);
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 12, 0);
+        List<Booking> bookings = bookingRepository.insertAll(List.of(
+                new Booking(null, start, start.plusDays(1), item, booker, Status.WAITING, null),
+                new Booking(null, start.plusDays(2), start.plusDays(3), item, booker, Status.WAITING, null)));
+        assertEquals(List.of(100L, 101L), bookings.stream().map(Booking::getId).collect(Collectors.toList()));
+        entityManager.clear();
+        Booking saved = bookingRepository.findById(101L).orElseThrow();
+        assertEquals(start.plusDays(2), saved.getStart());
+        assertEquals(3L, saved.getItem().getId());
+        assertEquals(0L, saved.getVersion());
+    }
+
+    @Test
+    public void updateStatusForOwnerShouldChangeOnlyOwnWaitingBookings() {
+        List<Booking> found = bookingRepository.findAllWithItemAndBookerByIdIn(List.of(1L, 2L, 3L, 99L));
+        assertEquals(3, found.size());
+        assertEquals(Set.of(2L, 3L), bookingRepository.updateStatusForOwner(List.of(1L, 2L, 3L), 2L,
+                Status.WAITING, Status.APPROVED));
+        assertEquals(Set.of(), bookingRepository.updateStatusForOwner(List.of(2L, 3L), 2L, Status.WAITING,
+                Status.REJECTED));
+        assertEquals(Status.WAITING, bookingRepository.findById(1L).orElseThrow().getStatus());
+        Booking approved = bookingRepository.findById(2L).orElseThrow();
+        assertEquals(Status.APPROVED, approved.getStatus());
+        assertEquals(1L, approved.getVersion());
+    }
+
+    @Test
+    public void findPeriodsShouldReturnOverlappingBookingsInStartOrder() {
+        LocalDateTime from = LocalDateTime.of(2023, 12, 1, 0, 0);
+        List<BookingPeriod> periods = bookingRepository.findPeriods(3L, from, LocalDateTime.of(2024, 1, 15, 0, 0),
+                Status.REJECTED);
+        assertEquals(List.of(LocalDateTime.of(2023, 11, 30, 20, 0), LocalDateTime.of(2023, 12, 30, 20, 0)),
+                periods.stream().map(BookingPeriod::getStart).collect(Collectors.toList()));
+        assertTrue(bookingRepository.findPeriods(3L, LocalDateTime.of(2024, 2, 1, 0, 0),
+                LocalDateTime.of(2024, 3, 1, 0, 0), Status.REJECTED).isEmpty());
+    }
+
+    @Test
+    public void existsOverlappingShouldSkipExcludedAndRejectedBookings() {
+        LocalDateTime start = LocalDateTime.of(2023, 12, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 12, 10, 0, 0);
+        assertTrue(bookingRepository.existsOverlapping(3L, start, end, 0L, Status.REJECTED));
+        assertFalse(bookingRepository.existsOverlapping(3L, start, end, 2L, Status.REJECTED));
+        assertFalse(bookingRepository.existsOverlapping(3L, LocalDateTime.of(2024, 2, 1, 0, 0),
+                LocalDateTime.of(2024, 3, 1, 0, 0), 0L, Status.REJECTED));
+        bookingRepository.updateStatus(2L, Status.WAITING, Status.REJECTED);
+        assertFalse(bookingRepository.existsOverlapping(3L, start, end, 0L, Status.REJECTED));
+    }
+
+    private List<Long> ids(Specification<Booking> user, State state, LocalDateTime date) {
+        return bookingRepository.findSlice(user.and(BookingSpecifications.inState(state, date)),
+                        pageRequest.withSort(BookingSpecifications.BY_END_DESC)).stream()
+                .map(Booking::getId)
+                .collect(Collectors.toList());
+    }
+
+    private long countStatements(Runnable query) {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        query.run();
+        return statistics.getPrepareStatementCount();
     }
 }
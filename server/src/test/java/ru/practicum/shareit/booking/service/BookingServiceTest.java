@@ -3,30 +3,63 @@ package ru.practicum.shareit.booking.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingStatusResultDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
 import ru.practicum.shareit.booking.exception.*;
+import ru.practicum.shareit.booking.export.BookingExportFormat;
+import ru.practicum.shareit.booking.export.BookingExporter;
+import ru.practicum.shareit.booking.index.BookingIntervalIndex;
+import ru.practicum.shareit.booking.index.BookingOccupancyIndex;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.State;
 import ru.practicum.shareit.booking.model.Status;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.repository.BookingSpecifications;
+import ru.practicum.shareit.booking.repository.BookingTimeCount;
+import ru.practicum.shareit.booking.summary.BookingStatusCounters;
+import ru.practicum.shareit.event.publisher.EventPublisher;
 import ru.practicum.shareit.item.exception.IllegalAccessExceptionItem;
 import ru.practicum.shareit.item.exception.ItemNotFoundException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.pagination.CursorPage;
+import ru.practicum.shareit.pagination.exception.InvalidCursorException;
 import ru.practicum.shareit.user.exception.UserNotFoundException;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static ru.practicum.shareit.booking.dto.BookingMapper.toBookingDto;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,6 +70,24 @@ public class BookingServiceTest {
     private ItemRepository mockItemRepository;
     @Mock
     private BookingRepository mockBookingRepository;
+    @Mock
+    private BookingIntervalIndex mockBookingIntervalIndex;
+    @Mock
+    private BookingOccupancyIndex mockBookingOccupancyIndex;
+    @Mock
+    private BookingStatusCounters mockBookingStatusCounters;
+    @Mock
+    private BookingExporter mockBookingExporter;
+    @Mock
+    private EventPublisher mockEventPublisher;
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private Root<Booking> mockRoot;
+    @Mock
+    private CriteriaQuery<?> mockQuery;
+    @Mock
+    private CriteriaBuilder mockCriteriaBuilder;
+    @Captor
+    private ArgumentCaptor<Specification<Booking>> specificationCaptor;
     @InjectMocks
     private BookingServiceImpl bookingService;
     private final User owner = new User(1L, "owner", "owner@email.com");
@@ -46,17 +97,93 @@ public class BookingServiceTest {
 
     @BeforeEach
     public void setFields() {
-        item = new Item(1L, "Item", "item", true, 1L, null);
+        item = new Item(1L, "Item", "item", true, 1L, null, null);
         booking = new Booking(1L, LocalDateTime.now(), LocalDateTime.now().plusHours(1),
-                item, booker, Status.WAITING);
+                item, booker, Status.WAITING, null);
     }
 
     @Test
     public void create_shouldCreateBooking() {
         when(mockUserRepository.findById(2L)).thenReturn(Optional.of(booker));
-        when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(mockItemRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(item));
+        when(mockBookingIntervalIndex.isFree(1L, booking.getStart(), booking.getEnd())).thenReturn(true);
         when(mockBookingRepository.save(booking)).thenReturn(booking);
         assertEquals(toBookingDto(booking), bookingService.create(toBookingDto(booking), 2L));
+        verify(mockBookingOccupancyIndex).occupy(booking);
+        verify(mockBookingStatusCounters).created(booking);
+        verify(mockEventPublisher).publish(1L, EventPublisher.BOOKING_CREATED, toBookingDto(booking));
+    }
+
+    @Test
+    public void create_shouldThrowWhenPeriodIsAlreadyBooked() {
+        when(mockUserRepository.findById(2L)).thenReturn(Optional.of(booker));
+        when(mockItemRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(item));
+        when(mockBookingIntervalIndex.isFree(1L, booking.getStart(), booking.getEnd())).thenReturn(true);
+        when(mockBookingRepository.save(booking)).thenReturn(booking);
+        doThrow(new BookingOverlapException(1L, booking.getStart(), booking.getEnd()))
+                .when(mockBookingIntervalIndex).reserve(booking);
+        BookingOverlapException e = assertThrows(BookingOverlapException.class,
+                () -> bookingService.create(toBookingDto(booking), 2L));
+        assertEquals("Вещь с id=1 уже забронирована на период с " + booking.getStart() + " по "
+                + booking.getEnd(), e.getMessage());
+    }
+
+    @Test
+    public void create_shouldThrowWhenDatabaseHasOverlappingBooking() {
+        when(mockUserRepository.findById(2L)).thenReturn(Optional.of(booker));
+        when(mockItemRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(item));
+        when(mockBookingIntervalIndex.isFree(1L, booking.getStart(), booking.getEnd())).thenReturn(true);
+        when(mockBookingRepository.existsOverlapping(1L, booking.getStart(), booking.getEnd(), 0L, Status.REJECTED))
+                .thenReturn(true);
+        assertThrows(BookingOverlapException.class, () -> bookingService.create(toBookingDto(booking), 2L));
+        verify(mockBookingRepository, never()).save(any());
+    }
+
+    @Test
+    public void createAll_shouldReturnResultForEveryEntry() {
+        Item unavailable = new Item(2L, "Item2", "item2", false, 1L, null, null);
+        BookingDto valid = toBookingDto(booking);
+        valid.setId(null);
+        BookingDto missingItem = new BookingDto(null, booking.getStart(), booking.getEnd(), null, null, 5L, null,
+                Status.WAITING);
+        BookingDto notAvailable = new BookingDto(null, booking.getStart(), booking.getEnd(), null, null, 2L, null,
+                Status.WAITING);
+        BookingDto overlapping = new BookingDto(null, booking.getEnd(), booking.getEnd().plusHours(1), null, null, 1L,
+                null, Status.WAITING);
+        when(mockUserRepository.findById(2L)).thenReturn(Optional.of(booker));
+        when(mockItemRepository.findAllByIdInForUpdate(any())).thenReturn(List.of(item, unavailable));
+        when(mockBookingIntervalIndex.isFree(eq(1L), any(), any())).thenReturn(true, false);
+        when(mockBookingRepository.insertAll(any())).thenAnswer(invocation -> {
+            List<Booking> bookings = invocation.getArgument(0);
+            bookings.forEach(inserted -> inserted.setId(100L));
+            return bookings;
+        });
+        List<BookingBatchResultDto> results = bookingService.createAll(
+                List.of(valid, missingItem, notAvailable, overlapping), 2L);
+        assertEquals(4, results.size());
+        assertEquals(100L, results.get(0).getBooking().getId());
+        assertNull(results.get(0).getError());
+        assertEquals("Вещь с id=5 не найдена", results.get(1).getError());
+        assertEquals("Вещь с id=2 недоступна", results.get(2).getError());
+        assertEquals("Вещь с id=1 уже забронирована на период с " + overlapping.getStart() + " по "
+                + overlapping.getEnd(), results.get(3).getError());
+        verify(mockBookingStatusCounters, times(1)).created(any());
+        verify(mockBookingRepository, times(0)).deleteAllByIdInBatch(any());
+    }
+
+    @Test
+    public void createAll_shouldDeleteBookingsRejectedByIndex() {
+        BookingDto valid = toBookingDto(booking);
+        when(mockUserRepository.findById(2L)).thenReturn(Optional.of(booker));
+        when(mockItemRepository.findAllByIdInForUpdate(any())).thenReturn(List.of(item));
+        when(mockBookingIntervalIndex.isFree(eq(1L), any(), any())).thenReturn(true);
+        when(mockBookingRepository.insertAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        doThrow(new BookingOverlapException(1L, booking.getStart(), booking.getEnd()))
+                .when(mockBookingIntervalIndex).reserve(any());
+        List<BookingBatchResultDto> results = bookingService.createAll(List.of(valid), 2L);
+        assertNull(results.get(0).getBooking());
+        verify(mockBookingRepository).deleteAllByIdInBatch(List.of(1L));
+        verify(mockBookingStatusCounters, times(0)).created(any());
     }
 
     @Test
@@ -70,7 +197,7 @@ public class BookingServiceTest {
     @Test
     public void create_shouldThrowWhenItemNotFound() {
         when(mockUserRepository.findById(2L)).thenReturn(Optional.of(booker));
-        when(mockItemRepository.findById(1L)).thenReturn(Optional.empty());
+        when(mockItemRepository.findByIdForUpdate(1L)).thenReturn(Optional.empty());
         ItemNotFoundException e = assertThrows(ItemNotFoundException.class,
                 () -> bookingService.create(toBookingDto(booking), 2L));
         assertEquals("Вещь с id=1 не найдена", e.getMessage());
@@ -80,7 +207,7 @@ public class BookingServiceTest {
     public void create_shouldThrowWhenItemIsNotAvailable() {
         item.setAvailable(false);
         when(mockUserRepository.findById(2L)).thenReturn(Optional.of(booker));
-        when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(mockItemRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(item));
         ItemNotAvailableException e = assertThrows(ItemNotAvailableException.class,
                 () -> bookingService.create(toBookingDto(booking), 2L));
         assertEquals("Вещь с id=1 недоступна", e.getMessage());
@@ -90,7 +217,7 @@ public class BookingServiceTest {
     public void create_shouldThrowWhenStartIsNotBeforeEnd() {
         booking.setStart(booking.getEnd());
         when(mockUserRepository.findById(2L)).thenReturn(Optional.of(booker));
-        when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(mockItemRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(item));
         InvalidDateTimeException e = assertThrows(InvalidDateTimeException.class,
                 () -> bookingService.create(toBookingDto(booking), 2L));
         assertEquals("Дата и время старта бронирования: " + booking.getStart()
@@ -100,7 +227,7 @@ public class BookingServiceTest {
     @Test
     public void create_shouldThrowWhenBookerIsOwner() {
         when(mockUserRepository.findById(1L)).thenReturn(Optional.of(owner));
-        when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(mockItemRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(item));
         BookerAndOwnerAreTheSameException e = assertThrows(BookerAndOwnerAreTheSameException.class,
                 () -> bookingService.create(toBookingDto(booking), 1L));
         assertEquals("Пользователь с id=1 - владелец вещи с id=1 и не может её забронировать", e.getMessage());
@@ -109,19 +236,112 @@ public class BookingServiceTest {
     @Test
     public void setStatus_shouldSetApproved() {
         Booking approvedBooking = new Booking(1L, booking.getStart(), booking.getEnd(),
-                item, booker, Status.APPROVED);
+                item, booker, Status.APPROVED, null);
         when(mockBookingRepository.findById(1L)).thenReturn(Optional.of(booking));
-        when(mockBookingRepository.save(approvedBooking)).thenReturn(approvedBooking);
+        when(mockBookingRepository.updateStatus(1L, Status.WAITING, Status.APPROVED)).thenReturn(1);
         assertEquals(toBookingDto(approvedBooking), bookingService.setStatus(1L, 1L, true));
+        verify(mockEventPublisher).publish(2L, EventPublisher.BOOKING_STATUS, toBookingDto(approvedBooking));
     }
 
     @Test
     public void setStatus_shouldSetRejected() {
         Booking rejectedBooking = new Booking(1L, booking.getStart(), booking.getEnd(),
-                item, booker, Status.REJECTED);
+                item, booker, Status.REJECTED, null);
         when(mockBookingRepository.findById(1L)).thenReturn(Optional.of(booking));
-        when(mockBookingRepository.save(rejectedBooking)).thenReturn(rejectedBooking);
+        when(mockBookingRepository.updateStatus(1L, Status.WAITING, Status.REJECTED)).thenReturn(1);
         assertEquals(toBookingDto(rejectedBooking), bookingService.setStatus(1L, 1L, false));
+        verify(mockBookingIntervalIndex).release(rejectedBooking);
+        verify(mockBookingOccupancyIndex).vacate(rejectedBooking);
+        verify(mockBookingStatusCounters).changed(rejectedBooking, Status.WAITING);
+    }
+
+    @Test
+    public void setStatus_shouldReservePeriodWhenRejectedBookingIsApproved() {
+        booking.setStatus(Status.REJECTED);
+        Booking approvedBooking = new Booking(1L, booking.getStart(), booking.getEnd(),
+                item, booker, Status.APPROVED, null);
+        when(mockBookingRepository.findById(1L)).thenReturn(Optional.of(booking));
+        when(mockBookingIntervalIndex.isFree(1L, booking.getStart(), booking.getEnd())).thenReturn(true);
+        when(mockBookingRepository.updateStatus(1L, Status.REJECTED, Status.APPROVED)).thenReturn(1);
+        assertEquals(toBookingDto(approvedBooking), bookingService.setStatus(1L, 1L, true));
+        verify(mockBookingIntervalIndex).reserve(approvedBooking);
+    }
+
+    @Test
+    public void setStatus_shouldRereadBookingWhenStatusChangedConcurrently() {
+        Booking approvedBooking = new Booking(1L, booking.getStart(), booking.getEnd(),
+                item, booker, Status.APPROVED, null);
+        when(mockBookingRepository.findById(1L)).thenReturn(Optional.of(booking))
+                .thenReturn(Optional.of(new Booking(1L, booking.getStart(), booking.getEnd(),
+                        item, booker, Status.REJECTED, null)));
+        when(mockBookingRepository.updateStatus(1L, Status.WAITING, Status.APPROVED)).thenReturn(0);
+        when(mockBookingIntervalIndex.isFree(1L, booking.getStart(), booking.getEnd())).thenReturn(true);
+        when(mockBookingRepository.updateStatus(1L, Status.REJECTED, Status.APPROVED)).thenReturn(1);
+        assertEquals(toBookingDto(approvedBooking), bookingService.setStatus(1L, 1L, true));
+        verify(mockBookingIntervalIndex).reserve(approvedBooking);
+    }
+
+    @Test
+    public void setStatus_shouldThrowWhenStatusKeepsChanging() {
+        when(mockBookingRepository.findById(1L)).thenReturn(Optional.of(booking));
+        when(mockBookingRepository.updateStatus(1L, Status.WAITING, Status.REJECTED)).thenReturn(0);
+        BookingStatusConflictException e = assertThrows(BookingStatusConflictException.class,
+                () -> bookingService.setStatus(1L, 1L, false));
+        assertEquals("Статус бронирования с id=1 одновременно меняется другим запросом", e.getMessage());
+        verify(mockBookingRepository, times(3)).updateStatus(1L, Status.WAITING, Status.REJECTED);
+    }
+
+    @Test
+    public void setStatusAll_shouldUpdateWaitingBookingsAndReportOthers() {
+        Item foreign = new Item(3L, "Item3", "item3", true, 2L, null, null);
+        Booking approved = new Booking(2L, booking.getStart(), booking.getEnd(), item, booker, Status.APPROVED, null);
+        Booking rejected = new Booking(3L, booking.getStart(), booking.getEnd(), item, booker, Status.REJECTED, null);
+        Booking notOwn = new Booking(4L, booking.getStart(), booking.getEnd(), foreign, owner, Status.WAITING, null);
+        Booking changed = new Booking(1L, booking.getStart(), booking.getEnd(), item, booker, Status.REJECTED, null);
+        when(mockBookingRepository.updateStatusForOwner(Set.of(1L, 2L, 3L, 4L, 5L), 1L, Status.WAITING,
+                Status.REJECTED)).thenReturn(Set.of(1L));
+        when(mockBookingRepository.findAllWithItemAndBookerByIdIn(any()))
+                .thenReturn(List.of(changed, approved, rejected, notOwn));
+        List<BookingStatusResultDto> results = bookingService.setStatusAll(1L, List.of(1L, 2L, 3L, 4L, 5L, 1L), false);
+        assertEquals(List.of(new BookingStatusResultDto(1L, Status.REJECTED, null),
+                new BookingStatusResultDto(2L, null, "Бронирование с id=2 уже рассмотрено, текущий статус APPROVED"),
+                new BookingStatusResultDto(3L, null, "Статус REJECTED уже установлен"),
+                new BookingStatusResultDto(4L, null, "Пользователь с id=1 не владелец вещи с id=3"),
+                new BookingStatusResultDto(5L, null, "Бронирование с id=5 не найдено")), results);
+        verify(mockBookingIntervalIndex).release(changed);
+        verify(mockBookingStatusCounters).changed(changed, Status.WAITING);
+    }
+
+    @Test
+    public void setStatusAll_shouldApplySideEffectsOnlyToRowsChangedByThisUpdate() {
+        Booking second = new Booking(2L, booking.getStart(), booking.getEnd(), item, booker, Status.WAITING, null);
+        Booking rejected = new Booking(1L, booking.getStart(), booking.getEnd(), item, booker, Status.REJECTED, null);
+        Booking rejectedConcurrently = new Booking(2L, booking.getStart(), booking.getEnd(),
+                item, booker, Status.REJECTED, null);
+        when(mockBookingRepository.updateStatusForOwner(Set.of(1L, 2L), 1L, Status.WAITING, Status.REJECTED))
+                .thenReturn(Set.of(1L));
+        when(mockBookingRepository.findAllWithItemAndBookerByIdIn(any()))
+                .thenReturn(List.of(rejected, rejectedConcurrently));
+        assertEquals(List.of(new BookingStatusResultDto(1L, Status.REJECTED, null),
+                        new BookingStatusResultDto(2L, null, "Статус REJECTED уже установлен")),
+                bookingService.setStatusAll(1L, List.of(1L, 2L), false));
+        verify(mockBookingIntervalIndex).release(rejected);
+        verify(mockBookingIntervalIndex, never()).release(second);
+        verify(mockBookingIntervalIndex, never()).release(rejectedConcurrently);
+        verify(mockBookingStatusCounters, times(1)).changed(any(), any());
+        verify(mockEventPublisher, times(1)).publish(any(), any(), any());
+    }
+
+    @Test
+    public void setStatusAll_shouldReportActualStatusWithoutSideEffectsWhenChangedConcurrently() {
+        Booking changed = new Booking(1L, booking.getStart(), booking.getEnd(), item, booker, Status.APPROVED, null);
+        when(mockBookingRepository.updateStatusForOwner(Set.of(1L), 1L, Status.WAITING, Status.APPROVED))
+                .thenReturn(Set.of());
+        when(mockBookingRepository.findAllWithItemAndBookerByIdIn(any())).thenReturn(List.of(changed));
+        assertEquals(List.of(new BookingStatusResultDto(1L, null, "Статус APPROVED уже установлен")),
+                bookingService.setStatusAll(1L, List.of(1L), true));
+        verify(mockBookingStatusCounters, never()).changed(any(), any());
+        verify(mockEventPublisher, never()).publish(any(), any(), any());
     }
 
     @Test
@@ -172,112 +392,131 @@ public class BookingServiceTest {
     }
 
     @Test
-    public void getAllBookingsByUser_shouldReturnBookingsWhenStateIsAll() {
-        when(mockUserRepository.existsById(1L)).thenReturn(true);
-        when(mockBookingRepository.findAllByBookerIdOrderByEndDesc(any(), any())).thenReturn(List.of(booking));
-        assertEquals(List.of(toBookingDto(booking)), bookingService.getAllBookingsByUser(1L, State.ALL, 1, 1));
+    public void getAllBookingsByUser_shouldSelectBookerBookingsInState() {
+        when(mockUserRepository.existsById(2L)).thenReturn(true);
+        when(mockBookingRepository.findSlice(any(), eq(PageRequest.of(1, 1, BookingSpecifications.BY_END_DESC))))
+                .thenReturn(new SliceImpl<>(List.of(booking)));
+        assertEquals(List.of(toBookingDto(booking)), bookingService.getAllBookingsByUser(2L, State.WAITING, 1, 1));
+        verify(mockBookingRepository).findSlice(specificationCaptor.capture(), any());
+        specificationCaptor.getValue().toPredicate(mockRoot, mockQuery, mockCriteriaBuilder);
+        verify(mockCriteriaBuilder).equal(mockRoot.get("booker").get("id"), 2L);
+        verify(mockCriteriaBuilder).equal(mockRoot.get("status"), Status.WAITING);
     }
 
     @Test
-    public void getAllBookingsByUser_shouldReturnBookingsWhenStateIsCurrent() {
-        when(mockUserRepository.existsById(1L)).thenReturn(true);
-        when(mockBookingRepository.findAllByBookerIdAndStartIsBeforeAndEndIsAfterOrderByEndDesc(any(), any(), any(), any()))
-                .thenReturn(List.of(booking));
-        assertEquals(List.of(toBookingDto(booking)), bookingService.getAllBookingsByUser(1L, State.CURRENT, 1, 1));
+    public void getAllBookingsByUser_shouldThrowWhenUserNotFound() {
+        when(mockUserRepository.existsById(2L)).thenReturn(false);
+        UserNotFoundException e = assertThrows(UserNotFoundException.class,
+                () -> bookingService.getAllBookingsByUser(2L, State.ALL, 1, 1));
+        assertEquals("Пользователь с id=2 не найден", e.getMessage());
     }
 
     @Test
-    public void getAllBookingsByUser_shouldReturnBookingsWhenStateIsPast() {
+    public void getAllBookingsForItemsBelongToUser_shouldSelectOwnerBookingsInState() {
         when(mockUserRepository.existsById(1L)).thenReturn(true);
-        when(mockBookingRepository.findAllByBookerIdAndEndIsBeforeOrderByEndDesc(any(), any(), any()))
-                .thenReturn(List.of(booking));
-        assertEquals(List.of(toBookingDto(booking)), bookingService.getAllBookingsByUser(1L, State.PAST, 1, 1));
+        when(mockBookingRepository.findSlice(any(), eq(PageRequest.of(1, 1, BookingSpecifications.BY_END_DESC))))
+                .thenReturn(new SliceImpl<>(List.of(booking)));
+        assertEquals(List.of(toBookingDto(booking)), bookingService.getAllBookingsForItemsBelongToUser(1L, State.WAITING, 1, 1));
+        verify(mockBookingRepository).findSlice(specificationCaptor.capture(), any());
+        specificationCaptor.getValue().toPredicate(mockRoot, mockQuery, mockCriteriaBuilder);
+        verify(mockCriteriaBuilder).equal(mockRoot.get("item").get("owner"), 1L);
+        verify(mockCriteriaBuilder).equal(mockRoot.get("status"), Status.WAITING);
     }
 
     @Test
-    public void getAllBookingsByUser_shouldReturnBookingsWhenStateIsFuture() {
-        when(mockUserRepository.existsById(1L)).thenReturn(true);
-        when(mockBookingRepository.findAllByBookerIdAndStartIsAfterOrderByEndDesc(any(), any(), any()))
-                .thenReturn(List.of(booking));
-        assertEquals(List.of(toBookingDto(booking)), bookingService.getAllBookingsByUser(1L, State.FUTURE, 1, 1));
+    public void getAllBookingsForItemsBelongToUser_shouldThrowWhenUserNotFound() {
+        when(mockUserRepository.existsById(2L)).thenReturn(false);
+        UserNotFoundException e = assertThrows(UserNotFoundException.class,
+                () -> bookingService.getAllBookingsForItemsBelongToUser(2L, State.ALL, 1, 1));
+        assertEquals("Пользователь с id=2 не найден", e.getMessage());
     }
 
     @Test
-    public void getAllBookingsByUser_shouldReturnBookingsWhenStateIsWaiting() {
-        when(mockUserRepository.existsById(1L)).thenReturn(true);
-        when(mockBookingRepository.findAllByBookerIdAndStatusOrderByEndDesc(any(), any(), any()))
-                .thenReturn(List.of(booking));
-        assertEquals(List.of(toBookingDto(booking)), bookingService.getAllBookingsByUser(1L, State.WAITING, 1, 1));
+    public void getAllBookingsByUser_shouldReturnPageWithNextCursor() {
+        when(mockUserRepository.existsById(2L)).thenReturn(true);
+        when(mockBookingRepository.findSlice(any(), eq(PageRequest.of(0, 1, BookingSpecifications.BY_END_DESC))))
+                .thenReturn(new SliceImpl<>(List.of(booking)));
+        CursorPage<BookingDto> page = bookingService.getAllBookingsByUser(2L, State.ALL, "", 1);
+        assertEquals(List.of(toBookingDto(booking)), page.getItems());
+        assertEquals(Cursor.of(booking.getEnd(), 1L).encode(), page.getNext());
     }
 
     @Test
-    public void getAllBookingsByUser_shouldReturnBookingsWhenStateIsRejected() {
+    public void getAllBookingsForItemsBelongToUser_shouldReturnLastPageWithoutCursor() {
         when(mockUserRepository.existsById(1L)).thenReturn(true);
-        when(mockBookingRepository.findAllByBookerIdAndStatusOrderByEndDesc(any(), any(), any()))
-                .thenReturn(List.of(booking));
-        assertEquals(List.of(toBookingDto(booking)), bookingService.getAllBookingsByUser(1L, State.REJECTED, 1, 1));
+        when(mockBookingRepository.findSlice(any(), eq(PageRequest.of(0, 2, BookingSpecifications.BY_END_DESC))))
+                .thenReturn(new SliceImpl<>(List.of(booking)));
+        CursorPage<BookingDto> page = bookingService.getAllBookingsForItemsBelongToUser(1L, State.ALL,
+                Cursor.of(booking.getEnd().plusDays(1), 5L).encode(), 2);
+        assertEquals(List.of(toBookingDto(booking)), page.getItems());
+        assertNull(page.getNext());
     }
 
     @Test
-    public void getAllBookingsByUser_shouldThrowWhenUserNotFound() {
-        when(mockUserRepository.existsById(2L)).thenReturn(false);
-        UserNotFoundException e = assertThrows(UserNotFoundException.class,
-                () -> bookingService.getAllBookingsByUser(2L, State.ALL, 1, 1));
-        assertEquals("Пользователь с id=2 не найден", e.getMessage());
+    public void getAllBookingsByUser_shouldThrowWhenCursorIsInvalid() {
+        when(mockUserRepository.existsById(2L)).thenReturn(true);
+        assertThrows(InvalidCursorException.class,
+                () -> bookingService.getAllBookingsByUser(2L, State.ALL, "bad cursor", 1));
     }
 
     @Test
-    public void getAllBookingsForItemsBelongToUser_shouldReturnBookingsWhenStateIsAll() {
-        when(mockUserRepository.existsById(1L)).thenReturn(true);
-        when(mockBookingRepository.findAllByItemOwnerOrderByEndDesc(any(), any())).thenReturn(List.of(booking));
-        assertEquals(List.of(toBookingDto(booking)), bookingService.getAllBookingsForItemsBelongToUser(1L, State.ALL, 1, 1));
+    public void getSummaryByUser_shouldCombineCountersAndTimeCounts() {
+        when(mockUserRepository.existsById(2L)).thenReturn(true);
+        when(mockBookingRepository.countByBookerAndTime(eq(2L), any())).thenReturn(timeCount(1, 3, 4));
+        when(mockBookingStatusCounters.totalForBooker(2L)).thenReturn(6L);
+        when(mockBookingStatusCounters.countForBooker(2L, Status.WAITING)).thenReturn(4L);
+        when(mockBookingStatusCounters.countForBooker(2L, Status.REJECTED)).thenReturn(1L);
+        assertEquals(new BookingSummaryDto(6, 1, 2, 3, 4, 1), bookingService.getSummaryByUser(2L));
     }
 
     @Test
-    public void getAllBookingsForItemsBelongToUser_shouldReturnBookingsWhenStateIsCurrent() {
+    public void getSummaryForItemsBelongToUser_shouldCombineCountersAndTimeCounts() {
         when(mockUserRepository.existsById(1L)).thenReturn(true);
-        when(mockBookingRepository.findAllByItemOwnerAndStartIsBeforeAndEndIsAfterOrderByEndDesc(any(), any(), any(), any()))
-                .thenReturn(List.of(booking));
-        assertEquals(List.of(toBookingDto(booking)), bookingService.getAllBookingsForItemsBelongToUser(1L, State.CURRENT, 1, 1));
+        when(mockBookingRepository.countByOwnerAndTime(eq(1L), any())).thenReturn(timeCount(0, 0, 0));
+        when(mockBookingStatusCounters.totalForOwner(1L)).thenReturn(1L);
+        when(mockBookingStatusCounters.countForOwner(1L, Status.WAITING)).thenReturn(1L);
+        assertEquals(new BookingSummaryDto(1, 0, 1, 0, 1, 0), bookingService.getSummaryForItemsBelongToUser(1L));
     }
 
     @Test
-    public void getAllBookingsForItemsBelongToUser_shouldReturnBookingsWhenStateIsPast() {
-        when(mockUserRepository.existsById(1L)).thenReturn(true);
-        when(mockBookingRepository.findAllByItemOwnerAndEndIsBeforeOrderByEndDesc(any(), any(), any()))
-                .thenReturn(List.of(booking));
-        assertEquals(List.of(toBookingDto(booking)), bookingService.getAllBookingsForItemsBelongToUser(1L, State.PAST, 1, 1));
-    }
-
-    @Test
-    public void getAllBookingsForItemsBelongToUser_shouldReturnBookingsWhenStateIsFuture() {
-        when(mockUserRepository.existsById(1L)).thenReturn(true);
-        when(mockBookingRepository.findAllByItemOwnerAndStartIsAfterOrderByEndDesc(any(), any(), any()))
-                .thenReturn(List.of(booking));
-        assertEquals(List.of(toBookingDto(booking)), bookingService.getAllBookingsForItemsBelongToUser(1L, State.FUTURE, 1, 1));
+    public void getSummaryByUser_shouldThrowWhenUserNotFound() {
+        when(mockUserRepository.existsById(2L)).thenReturn(false);
+        assertThrows(UserNotFoundException.class, () -> bookingService.getSummaryByUser(2L));
     }
 
     @Test
-    public void getAllBookingsForItemsBelongToUser_shouldReturnBookingsWhenStateIsWaiting() {
+    public void exportForItemsBelongToUser_shouldWriteBookingsOnlyWhenBodyIsWritten() throws Exception {
         when(mockUserRepository.existsById(1L)).thenReturn(true);
-        when(mockBookingRepository.findAllByItemOwnerAndStatusOrderByEndDesc(any(), any(), any()))
-                .thenReturn(List.of(booking));
-        assertEquals(List.of(toBookingDto(booking)), bookingService.getAllBookingsForItemsBelongToUser(1L, State.WAITING, 1, 1));
+        OutputStream out = new ByteArrayOutputStream();
+        var body = bookingService.exportForItemsBelongToUser(1L, BookingExportFormat.CSV);
+        verify(mockBookingExporter, never()).exportByOwner(any(), any(), any());
+        body.writeTo(out);
+        verify(mockBookingExporter).exportByOwner(1L, BookingExportFormat.CSV, out);
     }
 
     @Test
-    public void getAllBookingsForItemsBelongToUser_shouldReturnBookingsWhenStateIsRejected() {
-        when(mockUserRepository.existsById(1L)).thenReturn(true);
-        when(mockBookingRepository.findAllByItemOwnerAndStatusOrderByEndDesc(any(), any(), any()))
-                .thenReturn(List.of(booking));
-        assertEquals(List.of(toBookingDto(booking)), bookingService.getAllBookingsForItemsBelongToUser(1L, State.REJECTED, 1, 1));
+    public void exportByUser_shouldThrowBeforeStreamingWhenUserNotFound() throws Exception {
+        when(mockUserRepository.existsById(2L)).thenReturn(false);
+        assertThrows(UserNotFoundException.class, () -> bookingService.exportByUser(2L, BookingExportFormat.NDJSON));
+        verify(mockBookingExporter, never()).exportByBooker(any(), any(), any());
     }
 
-    @Test
-    public void getAllBookingsForItemsBelongToUser_shouldThrowWhenUserNotFound() {
-        when(mockUserRepository.existsById(2L)).thenReturn(false);
-        UserNotFoundException e = assertThrows(UserNotFoundException.class,
-                () -> bookingService.getAllBookingsForItemsBelongToUser(2L, State.ALL, 1, 1));
-        assertEquals("Пользователь с id=2 не найден", e.getMessage());
+    private BookingTimeCount timeCount(long current, long future, long unfinished) {
+        return new BookingTimeCount() {
+            @Override
+            public Long getCurrentCount() {
+                return current;
+            }
+
+            @Override
+            public Long getFutureCount() {
+                return future;
+            }
+
+            @Override
+            public Long getUnfinishedCount() {
+                return unfinished;
+            }
+        };
     }
 }
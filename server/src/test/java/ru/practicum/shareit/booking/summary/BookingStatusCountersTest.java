@@ -0,0 +1,80 @@
+package ru.practicum.shareit.booking.summary;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.repository.BookingStatusCount;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingStatusCountersTest {
+    @Mock
+    private BookingRepository mockBookingRepository;
+    @InjectMocks
+    private BookingStatusCounters bookingStatusCounters;
+    private final Item item = new Item(1L, "Дрель", "Простая дрель", true, 1L, null, null);
+    private final User booker = new User(2L, "booker", "booker@email.com");
+
+    @BeforeEach
+    public void fillCounters() {
+        when(mockBookingRepository.countByBookerAndStatus()).thenReturn(List.of(
+                count(2L, Status.WAITING, 2), count(2L, Status.APPROVED, 1)));
+        when(mockBookingRepository.countByOwnerAndStatus()).thenReturn(List.of(count(1L, Status.WAITING, 2)));
+        bookingStatusCounters.rebuild();
+    }
+
+    @Test
+    public void rebuild_shouldLoadCountsPerUserAndStatus() {
+        assertEquals(2, bookingStatusCounters.countForBooker(2L, Status.WAITING));
+        assertEquals(3, bookingStatusCounters.totalForBooker(2L));
+        assertEquals(2, bookingStatusCounters.totalForOwner(1L));
+        assertEquals(0, bookingStatusCounters.totalForOwner(2L));
+    }
+
+    @Test
+    public void createdAndChanged_shouldKeepCountsUpToDate() {
+        Booking booking = new Booking(5L, LocalDateTime.now(), LocalDateTime.now().plusDays(1), item, booker,
+                Status.WAITING, null);
+        bookingStatusCounters.created(booking);
+        assertEquals(3, bookingStatusCounters.countForBooker(2L, Status.WAITING));
+        assertEquals(3, bookingStatusCounters.countForOwner(1L, Status.WAITING));
+        booking.setStatus(Status.REJECTED);
+        bookingStatusCounters.changed(booking, Status.WAITING);
+        assertEquals(2, bookingStatusCounters.countForBooker(2L, Status.WAITING));
+        assertEquals(1, bookingStatusCounters.countForOwner(1L, Status.REJECTED));
+        assertEquals(4, bookingStatusCounters.totalForBooker(2L));
+        assertEquals(3, bookingStatusCounters.totalForOwner(1L));
+    }
+
+    private BookingStatusCount count(Long userId, Status status, long count) {
+        return new BookingStatusCount() {
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+
+            @Override
+            public Status getStatus() {
+                return status;
+            }
+
+            @Override
+            public Long getCount() {
+                return count;
+            }
+        };
+    }
+}
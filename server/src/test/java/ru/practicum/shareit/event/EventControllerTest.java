@@ -0,0 +1,71 @@
+package ru.practicum.shareit.event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.shareit.event.controller.EventController;
+import ru.practicum.shareit.event.publisher.EventPublisher;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = EventController.class, properties = "shareit.events.buffer-size=3")
+@Import({EventPublisher.class, SimpleMeterRegistry.class})
+public class EventControllerTest {
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private EventPublisher eventPublisher;
+    @MockBean
+    private UserRepository userRepository;
+
+    @Test
+    public void subscribe_shouldReceiveEventsOfOwnTopicOnly() throws Exception {
+        MockHttpServletResponse owner = subscribe(1L);
+        MockHttpServletResponse other = subscribe(2L);
+        eventPublisher.publish(1L, EventPublisher.BOOKING_CREATED, Map.of("id", 5));
+        eventPublisher.publishToOthers(2L, EventPublisher.REQUEST_CREATED, Map.of("id", 7));
+        awaitContent(owner, "\"id\":7");
+        String content = owner.getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(content.startsWith(":connected\n\n"));
+        assertTrue(content.contains("event:booking.created\ndata:{\"id\":5}\n\n"));
+        assertTrue(content.contains("event:request.created\ndata:{\"id\":7}\n\n"));
+        assertEquals(":connected\n\n", other.getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void subscribe_shouldReturnNotFoundForUnknownUser() throws Exception {
+        when(userRepository.existsById(3L)).thenReturn(false);
+        mvc.perform(get("/events").header("X-Sharer-User-Id", 3L))
+                .andExpect(status().isNotFound());
+    }
+
+    private MockHttpServletResponse subscribe(Long userId) throws Exception {
+        when(userRepository.existsById(userId)).thenReturn(true);
+        MvcResult result = mvc.perform(get("/events").header("X-Sharer-User-Id", userId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitContent(result.getResponse(), ":connected");
+        assertEquals("text/event-stream", result.getResponse().getContentType());
+        return result.getResponse();
+    }
+
+    private void awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        for (int i = 0; i < 100 && !response.getContentAsString(StandardCharsets.UTF_8).contains(expected); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(response.getContentAsString(StandardCharsets.UTF_8).contains(expected));
+    }
+}
@@ -0,0 +1,102 @@
+package ru.practicum.shareit.event.publisher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+public class EventPublisherTest {
+    @Mock
+    private UserRepository mockUserRepository;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private EventPublisher eventPublisher;
+
+    @AfterEach
+    public void shutdown() {
+        eventPublisher.shutdown();
+    }
+
+    @Test
+    public void publish_shouldDeliverEventsWhileAnotherSubscriberIsStalled() throws InterruptedException {
+        createPublisher(Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        TestEmitter stalled = new TestEmitter(1, release);
+        TestEmitter healthy = new TestEmitter(2, null);
+        eventPublisher.subscribe(1L, stalled);
+        eventPublisher.subscribe(2L, healthy);
+        eventPublisher.publish(2L, EventPublisher.BOOKING_CREATED, "booking");
+
+        assertTrue(healthy.sent.await(5, TimeUnit.SECONDS));
+        assertEquals(1.0, meterRegistry.counter("shareit.events.stalls").count());
+        assertEquals(1.0, meterRegistry.get("shareit.events.subscribers").gauge().value());
+
+        release.countDown();
+        assertTrue(stalled.completed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void publish_shouldDisconnectSubscriberWhenBufferOverflows() throws InterruptedException {
+        createPublisher(Duration.ofHours(1));
+        CountDownLatch release = new CountDownLatch(1);
+        TestEmitter slow = new TestEmitter(1, release);
+        eventPublisher.subscribe(1L, slow);
+        for (int i = 0; i < 4; i++) {
+            eventPublisher.publish(1L, EventPublisher.BOOKING_STATUS, i);
+        }
+
+        assertEquals(1.0, meterRegistry.counter("shareit.events.overflows").count());
+        assertEquals(0.0, meterRegistry.get("shareit.events.subscribers").gauge().value());
+        release.countDown();
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(0.0, meterRegistry.counter("shareit.events.stalls").count());
+    }
+
+    private void createPublisher(Duration writeTimeout) {
+        eventPublisher = new EventPublisher(mockUserRepository, 3, Duration.ofMinutes(1), Duration.ofHours(1),
+                writeTimeout, 1, meterRegistry);
+    }
+
+    /**
+     * Соединение без обработчика ответа: отправки считаются, а при заданном release - ждут его
+     */
+    private static class TestEmitter extends SseEmitter {
+        private final CountDownLatch sent;
+        private final CountDownLatch release;
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        private TestEmitter(int expectedSends, CountDownLatch release) {
+            sent = new CountDownLatch(expectedSends);
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sent.countDown();
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.practicum.shareit.item.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ItemSearchCacheTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ItemSearchCache cache = new ItemSearchCache(3, meterRegistry);
+    private final ItemDto drill = new ItemDto(1L, "Дрель", "Простая дрель", true, null);
+    private final ItemDto saw = new ItemDto(2L, "Пила", "Ручная пила", true, null);
+
+    @Test
+    public void get_shouldReturnPutItemsForNormalizedKey() {
+        cache.put("дрель", 0, 10, List.of(drill), cache.generation());
+        assertEquals(List.of(drill), cache.get("ДРЕЛЬ", 5, 10));
+        assertNull(cache.get("дрель", 10, 10));
+        assertEquals(1.0, meterRegistry.get("shareit.item.search.cache.requests").tag("result", "hit")
+                .counter().count());
+        assertEquals(1.0, meterRegistry.get("shareit.item.search.cache.requests").tag("result", "miss")
+                .counter().count());
+    }
+
+    @Test
+    public void put_shouldEvictLeastRecentlyUsedEntriesBySize() {
+        cache.put("дрель", 0, 10, List.of(drill), cache.generation());
+        cache.put("пила", 0, 10, List.of(saw), cache.generation());
+        cache.get("дрель", 0, 10);
+        cache.put("а", 0, 10, List.of(drill, saw), cache.generation());
+        assertNotNull(cache.get("дрель", 0, 10));
+        assertNull(cache.get("пила", 0, 10));
+        assertEquals(1.0, meterRegistry.get("shareit.item.search.cache.evictions").counter().count());
+        assertEquals(3.0, meterRegistry.get("shareit.item.search.cache.weight").gauge().value());
+    }
+
+    @Test
+    public void invalidate_shouldRemoveOnlyAffectedEntries() {
+        cache.put("дрель", 0, 10, List.of(drill), cache.generation());
+        cache.put("пила", 0, 10, List.of(saw), cache.generation());
+        cache.invalidate(new ItemDto(3L, "Дрель ударная", "", true, null));
+        assertNull(cache.get("дрель", 0, 10));
+        assertNotNull(cache.get("пила", 0, 10));
+    }
+
+    @Test
+    public void invalidate_shouldIgnoreUnavailableItems() {
+        cache.put("дрель", 0, 10, List.of(drill), cache.generation());
+        cache.invalidate(new ItemDto(3L, "Дрель", "", false, null));
+        assertNotNull(cache.get("дрель", 0, 10));
+    }
+
+    @Test
+    public void put_shouldSkipResultsComputedBeforeInvalidation() {
+        long generation = cache.generation();
+        cache.invalidate(saw);
+        cache.put("дрель", 0, 10, List.of(drill), generation);
+        assertNull(cache.get("дрель", 0, 10));
+    }
+
+    @Test
+    public void invalidateAll_shouldRemoveAllEntriesAndSkipEarlierResults() {
+        cache.put("дрель", 0, 10, List.of(drill), cache.generation());
+        long generation = cache.generation();
+        cache.invalidateAll();
+        cache.put("пила", 0, 10, List.of(saw), generation);
+        assertNull(cache.get("дрель", 0, 10));
+        assertNull(cache.get("пила", 0, 10));
+        assertEquals(0.0, meterRegistry.get("shareit.item.search.cache.weight").gauge().value());
+    }
+}
@@ -8,18 +8,22 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.FreePeriodDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemMapper;
 import ru.practicum.shareit.item.dto.ItemWithBookingDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.pagination.CursorPage;
 
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = ItemController.class)
@@ -33,7 +37,7 @@ public class ItemControllerTest {
 
     @Test
     public void createTest() throws Exception {
-        Item item = new Item(null, "item", "desc", true, 1L, null);
+        Item item = new Item(null, "item", "desc", true, 1L, null, null);
         when(itemService.create(item, 1L)).thenReturn(ItemMapper.toItemDto(item));
         mvc.perform(post("/items")
                         .content(mapper.writeValueAsString(item))
@@ -94,6 +98,47 @@ public class ItemControllerTest {
                 .andExpect(content().json(mapper.writeValueAsString(List.of(itemDto))));
     }
 
+    @Test
+    public void searchWithCursorTest() throws Exception {
+        ItemDto itemDto = new ItemDto(1L, "name", "desc", true, 1L);
+        when(itemService.search("text", "", 1)).thenReturn(new CursorPage<>(List.of(itemDto), "next"));
+        mvc.perform(get("/items/search")
+                        .queryParam("text", "text")
+                        .queryParam("after", "")
+                        .queryParam("size", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, "next"))
+                .andExpect(content().json(mapper.writeValueAsString(List.of(itemDto))));
+    }
+
+    @Test
+    public void searchInPeriodTest() throws Exception {
+        ItemDto itemDto = new ItemDto(1L, "name", "desc", true, 1L);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(itemService.search("text", start, start.plusDays(1), 0, 20)).thenReturn(List.of(itemDto));
+        mvc.perform(get("/items/search")
+                        .queryParam("text", "text")
+                        .queryParam("start", "2024-01-01T00:00:00")
+                        .queryParam("end", "2024-01-02T00:00:00")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(List.of(itemDto))));
+    }
+
+    @Test
+    public void getAvailabilityTest() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<FreePeriodDto> free = List.of(new FreePeriodDto(from, from.plusDays(1)));
+        when(itemService.getAvailability(1L, from, from.plusDays(2))).thenReturn(free);
+        mvc.perform(get("/items/{id}/availability", 1L)
+                        .queryParam("from", "2024-01-01T00:00:00")
+                        .queryParam("to", "2024-01-03T00:00:00")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(free)));
+    }
+
     @Test
     public void postCommentTest() throws Exception {
         CommentDto commentDto = new CommentDto(1L, "comment", null, null, null, null);
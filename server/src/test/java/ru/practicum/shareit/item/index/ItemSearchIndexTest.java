@@ -0,0 +1,100 @@
+package ru.practicum.shareit.item.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ItemSearchIndexTest {
+    @Mock
+    private ItemRepository mockItemRepository;
+    @InjectMocks
+    private ItemSearchIndex itemSearchIndex;
+
+    @BeforeEach
+    public void fillIndex() {
+        when(mockItemRepository.findAllByAvailableTrue()).thenReturn(List.of(
+                new Item(1L, "Дрель", "Простая дрель", true, 1L, null, null),
+                new Item(2L, "Отвертка", "Аккумуляторная отвертка", true, 1L, null, null),
+                new Item(3L, "Пила", "Ручная пила", true, 2L, null, null)));
+        itemSearchIndex.rebuild();
+    }
+
+    @Test
+    public void search_shouldFindByNameAndDescriptionIgnoringCase() {
+        assertEquals(List.of(1L), itemSearchIndex.search("дРеЛь", 10));
+        assertEquals(List.of(2L), itemSearchIndex.search("аккумулятор", 10));
+        assertEquals(3, itemSearchIndex.search("л", 10).size());
+    }
+
+    @Test
+    public void search_shouldNotMatchAcrossNameAndDescription() {
+        assertEquals(List.of(), itemSearchIndex.search("пилаРучная", 10));
+        assertEquals(List.of(), itemSearchIndex.search("молоток", 10));
+    }
+
+    @Test
+    public void index_shouldUpdateAndRemoveItems() {
+        itemSearchIndex.index(new Item(4L, "Молоток", "Большой молоток", true, 1L, null, null));
+        assertEquals(List.of(4L), itemSearchIndex.search("молот", 10));
+        itemSearchIndex.index(new Item(1L, "Перфоратор", "Мощный", true, 1L, null, null));
+        assertEquals(List.of(), itemSearchIndex.search("дрель", 10));
+        assertEquals(List.of(1L), itemSearchIndex.search("перфо", 10));
+        itemSearchIndex.index(new Item(3L, "Пила", "Ручная пила", false, 2L, null, null));
+        assertEquals(List.of(), itemSearchIndex.search("пила", 10));
+    }
+
+    @Test
+    public void rebuild_shouldReplaceWholeIndex() {
+        itemSearchIndex.index(new Item(4L, "Молоток", "Большой молоток", true, 1L, null, null));
+        when(mockItemRepository.findAllByAvailableTrue()).thenReturn(List.of(
+                new Item(5L, "Дрель ударная", "Дрель", true, 1L, null, null)));
+        itemSearchIndex.rebuild();
+        assertEquals(List.of(5L), itemSearchIndex.search("дрель", 10));
+        assertEquals(List.of(), itemSearchIndex.search("молот", 10));
+    }
+
+    @Test
+    public void search_shouldRankNameMatchesAboveDescriptionMatches() {
+        itemSearchIndex.index(new Item(4L, "Набор", "Набор отверток разного размера", true, 1L, null, null));
+        assertEquals(List.of(2L, 4L), itemSearchIndex.search("отверт", 10));
+        itemSearchIndex.index(new Item(5L, "Отвертка", "Отвертка и еще отвертка", true, 1L, null, null));
+        assertEquals(List.of(5L, 2L), itemSearchIndex.search("отверт", 2));
+        assertEquals(List.of(5L), itemSearchIndex.search("отверт", 1));
+    }
+
+    @Test
+    public void ranked_shouldReturnAllMatchesInSearchOrder() {
+        itemSearchIndex.index(new Item(4L, "Набор", "Набор отверток разного размера", true, 1L, null, null));
+        itemSearchIndex.index(new Item(5L, "Отвертка", "Отвертка и еще отвертка", true, 1L, null, null));
+        List<Long> ids = new ArrayList<>();
+        itemSearchIndex.ranked("отверт").forEachRemaining(ids::add);
+        assertEquals(List.of(5L, 2L, 4L), ids);
+        assertEquals(itemSearchIndex.search("отверт", 10), ids);
+        assertFalse(itemSearchIndex.ranked("молоток").hasNext());
+    }
+
+    @Test
+    public void idsAfter_shouldReturnMatchesAfterIdInIdOrder() {
+        itemSearchIndex.index(new Item(4L, "Набор", "Набор отверток разного размера", true, 1L, null, null));
+        itemSearchIndex.index(new Item(5L, "Отвертка", "Отвертка и еще отвертка", true, 1L, null, null));
+        List<Long> ids = new ArrayList<>();
+        itemSearchIndex.idsAfter("отверт", 0).forEachRemaining(ids::add);
+        assertEquals(List.of(2L, 4L, 5L), ids);
+        ids.clear();
+        itemSearchIndex.idsAfter("отверт", 2).forEachRemaining(ids::add);
+        assertEquals(List.of(4L, 5L), ids);
+    }
+}
@@ -23,4 +23,13 @@ public class CommentRepositoryTest {
         assertEquals(1, comments.size());
         assertEquals(3L, comments.get(0).getItem().getId());
     }
+
+    @Test
+    public void findAllByItemIdInTest() {
+        List<Comment> comments = commentRepository.findAllByItemIdIn(List.of(1L, 3L));
+        assertEquals(2, comments.size());
+        assertEquals("user2", comments.stream()
+                .filter(comment -> comment.getItem().getId() == 1L)
+                .findFirst().orElseThrow().getAuthor().getName());
+    }
 }
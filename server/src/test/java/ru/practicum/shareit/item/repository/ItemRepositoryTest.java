@@ -5,8 +5,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.jdbc.Sql;
+import ru.practicum.shareit.booking.model.Status;
 import ru.practicum.shareit.item.model.Item;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -31,10 +33,61 @@ public class ItemRepositoryTest {
         assertEquals(1, result.size());
     }
 
+    @Test
+    public void searchShouldReturnPagesInIdOrder() {
+        assertEquals(1L, itemRepository.search("item", PageRequest.of(0, 1)).get(0).getId());
+        assertEquals(3L, itemRepository.search("item", PageRequest.of(1, 1)).get(0).getId());
+    }
+
     @Test
     public void findAllByRequestIdInTest() {
         List<Item> result = itemRepository.findAllByRequestIdIn(List.of(1L));
         assertEquals(1, result.size());
         assertEquals(2L, result.get(0).getId());
     }
+
+    @Test
+    public void findAllByRequestorIdShouldReturnItemsForAllRequestsOfUser() {
+        List<Item> result = itemRepository.findAllByRequestorId(2L);
+        assertEquals(1, result.size());
+        assertEquals(1L, result.get(0).getRequestId());
+        assertTrue(itemRepository.findAllByRequestorId(3L).isEmpty());
+    }
+
+    @Test
+    public void findAllByAvailableTrueTest() {
+        List<Item> result = itemRepository.findAllByAvailableTrue();
+        assertEquals(2, result.size());
+        assertTrue(result.stream().allMatch(Item::getAvailable));
+    }
+
+    @Test
+    public void findAllByOwnerAndIdGreaterThanOrderByIdAscTest() {
+        List<Item> result = itemRepository.findAllByOwnerAndIdGreaterThanOrderByIdAsc(1L, 1L, pageRequest);
+        assertEquals(1, result.size());
+        assertEquals(2L, result.get(0).getId());
+    }
+
+    @Test
+    public void searchAfterTest() {
+        assertEquals(2, itemRepository.searchAfter("item", 0L, pageRequest).size());
+        List<Item> result = itemRepository.searchAfter("item", 1L, pageRequest);
+        assertEquals(1, result.size());
+        assertEquals(3L, result.get(0).getId());
+    }
+
+    @Test
+    public void searchAvailableTest() {
+        LocalDateTime start = LocalDateTime.of(2024, 2, 1, 0, 0);
+        List<Item> result = itemRepository.searchAvailable("item", start, start.plusMonths(1), 0L, Status.REJECTED,
+                pageRequest);
+        assertEquals(1, result.size());
+        assertEquals(3L, result.get(0).getId());
+        assertEquals(2, itemRepository.searchAvailable("item", start.plusYears(1), start.plusYears(1).plusDays(1),
+                0L, Status.REJECTED, pageRequest).size());
+        assertTrue(itemRepository.searchAvailable("item", start.minusDays(10), start.plusMonths(1), 0L,
+                Status.REJECTED, pageRequest).isEmpty());
+        assertEquals(List.of(), itemRepository.searchAvailable("item", start, start.plusMonths(1), 3L,
+                Status.REJECTED, pageRequest));
+    }
 }
@@ -7,20 +7,34 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
 import ru.practicum.shareit.booking.dto.BookingMapper;
+import ru.practicum.shareit.booking.index.BookingIntervalIndex;
+import ru.practicum.shareit.booking.index.BookingOccupancyIndex;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.repository.BookingPeriod;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.cache.ItemSearchCache;
 import ru.practicum.shareit.item.dto.CommentMapper;
+import ru.practicum.shareit.item.dto.FreePeriodDto;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemWithBookingDto;
 import ru.practicum.shareit.item.exception.IllegalAccessExceptionItem;
 import ru.practicum.shareit.item.exception.IllegalTryToPostCommentException;
+import ru.practicum.shareit.item.exception.IncompletePeriodException;
+import ru.practicum.shareit.item.exception.InvalidPeriodException;
 import ru.practicum.shareit.item.exception.ItemNotFoundException;
+import ru.practicum.shareit.item.index.ItemSearchIndex;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.CommentRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.request.exception.ItemRequestNotFoundException;
+import ru.practicum.shareit.request.feed.RecentRequestsFeed;
+import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.exception.UserNotFoundException;
 import ru.practicum.shareit.user.model.User;
@@ -32,7 +46,10 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -50,17 +67,27 @@ public class ItemServiceTest {
     private UserRepository mockUserRepository;
     @Mock
     private ItemRequestRepository mockItemRequestRepository;
+    @Mock
+    private ItemSearchIndex mockItemSearchIndex;
+    @Mock
+    private ItemSearchCache mockItemSearchCache;
+    @Mock
+    private BookingIntervalIndex mockBookingIntervalIndex;
+    @Mock
+    private BookingOccupancyIndex mockBookingOccupancyIndex;
+    @Mock
+    private RecentRequestsFeed mockRecentRequestsFeed;
     @InjectMocks
     private ItemServiceImpl itemService;
-    private Item item = new Item(1L, "Item", "item", true, 1L, null);
+    private Item item = new Item(1L, "Item", "item", true, 1L, null, null);
     private User user = new User(1L, "owner", "owner@email.com");
     private Booking booking = new Booking(1L, LocalDateTime.now(), LocalDateTime.now().plusHours(1),
-            item, user, Status.WAITING);
+            item, user, Status.WAITING, null);
     private Comment comment = new Comment(1L, "comment", item, user, LocalDateTime.now());
 
     @BeforeEach
     public void setFields() {
-        item = new Item(1L, "Item", "item", true, 1L, null);
+        item = new Item(1L, "Item", "item", true, 1L, null, null);
     }
 
     @Test
@@ -70,6 +97,16 @@ public class ItemServiceTest {
         assertEquals(toItemDto(item), itemService.create(item, 1L));
     }
 
+    @Test
+    public void create_shouldAddItemToRecentRequest() {
+        item.setRequestId(1L);
+        when(mockUserRepository.existsById(1L)).thenReturn(true);
+        when(mockItemRequestRepository.findById(1L)).thenReturn(Optional.of(new ItemRequest()));
+        when(mockItemRepository.save(item)).thenReturn(item);
+        itemService.create(item, 1L);
+        verify(mockRecentRequestsFeed).answered(1L, item.getId());
+    }
+
     @Test
     public void create_shouldThrowWhenOwnerNotFound() {
         when(mockUserRepository.existsById(1L)).thenReturn(false);
@@ -90,10 +127,23 @@ public class ItemServiceTest {
     @Test
     public void update_shouldUpdateItem() {
         when(mockUserRepository.existsById(1L)).thenReturn(true);
-        Item updatedItem = new Item(1L, "ItemUpdated", "item", true, 1L, null);
+        Item updatedItem = new Item(1L, "ItemUpdated", "item", true, 1L, null, null);
         when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
         when(mockItemRepository.save(any())).thenReturn(updatedItem);
         assertEquals(toItemDto(updatedItem), itemService.update(toItemDto(item), 1L));
+        verify(mockItemSearchCache).invalidateAll();
+    }
+
+    @Test
+    public void update_shouldInvalidateOnlyAffectedSearchesInLikeMode() {
+        ReflectionTestUtils.setField(itemService, "searchMode", ItemSearchMode.LIKE);
+        when(mockUserRepository.existsById(1L)).thenReturn(true);
+        Item updatedItem = new Item(1L, "ItemUpdated", "item", true, 1L, null, null);
+        when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(mockItemRepository.save(any())).thenReturn(updatedItem);
+        itemService.update(toItemDto(item), 1L);
+        verify(mockItemSearchCache).invalidate(toItemDto(item), toItemDto(updatedItem));
+        verify(mockItemSearchCache, never()).invalidateAll();
     }
 
     @Test
@@ -124,17 +174,25 @@ public class ItemServiceTest {
 
     @Test
     public void get_shouldReturnItems() {
+        Booking nextBooking = new Booking(2L, LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2),
+                item, user, Status.WAITING, null);
         when(mockUserRepository.existsById(1L)).thenReturn(true);
         when(mockItemRepository.findAllByOwnerOrderByIdAsc(1L, PageRequest.of(1, 1))).thenReturn(List.of(item));
-        when(mockBookingRepository.findFirst1ByItemIdAndStartIsAfterAndStatusIsNotOrderByStartAsc(any(), any(), any())).thenReturn(Optional.of(booking));
-        when(mockBookingRepository.findFirst1ByItemIdAndStartIsBeforeAndStatusIsNotOrderByEndDesc(any(), any(), any())).thenReturn(Optional.of(booking));
-        when(mockCommentRepository.findAllByItemId(1L)).thenReturn(List.of(comment));
+        when(mockBookingRepository.findLastAndNextByItemIdIn(any(), any(), any())).thenReturn(List.of(booking, nextBooking));
+        when(mockCommentRepository.findAllByItemIdIn(List.of(1L))).thenReturn(List.of(comment));
         List<ItemWithBookingDto> result = List.of(new ItemWithBookingDto(1L, item.getName(), item.getDescription(),
                 item.getAvailable(), item.getRequestId(), BookingMapper.toBookingDto(booking),
-                BookingMapper.toBookingDto(booking), List.of(CommentMapper.toCommentDto(comment))));
+                BookingMapper.toBookingDto(nextBooking), List.of(CommentMapper.toCommentDto(comment))));
         assertEquals(result, itemService.get(1L, 1, 1));
     }
 
+    @Test
+    public void get_shouldReturnEmptyListWhenOwnerHasNoItems() {
+        when(mockUserRepository.existsById(1L)).thenReturn(true);
+        when(mockItemRepository.findAllByOwnerOrderByIdAsc(1L, PageRequest.of(0, 10))).thenReturn(List.of());
+        assertEquals(Collections.EMPTY_LIST, itemService.get(1L, 0, 10));
+    }
+
     @Test
     public void getItemById_shouldReturnItemWhenUserIsOwner() {
         when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
@@ -165,7 +223,109 @@ public class ItemServiceTest {
 
     @Test
     public void search_shouldReturnItems() {
-        when(mockItemRepository.search(anyString(), any())).thenReturn(List.of(item));
+        when(mockItemSearchCache.get("text", 1, 1)).thenReturn(null);
+        when(mockItemSearchIndex.search("text", 2)).thenReturn(List.of(2L, 1L));
+        when(mockItemRepository.findAllById(List.of(1L))).thenReturn(List.of(item));
+        assertEquals(List.of(toItemDto(item)), itemService.search("text", 1, 1));
+    }
+
+    @Test
+    public void search_shouldReturnEmptyListWhenPageIsOutOfRange() {
+        when(mockItemSearchCache.get("text", 1, 1)).thenReturn(null);
+        when(mockItemSearchIndex.search("text", 2)).thenReturn(List.of(1L));
+        assertEquals(Collections.EMPTY_LIST, itemService.search("text", 1, 1));
+    }
+
+    @Test
+    public void search_shouldReturnCachedItems() {
+        when(mockItemSearchCache.get("text", 1, 1)).thenReturn(List.of(toItemDto(item)));
+        assertEquals(List.of(toItemDto(item)), itemService.search("text", 1, 1));
+        verifyNoInteractions(mockItemSearchIndex, mockItemRepository);
+    }
+
+    @Test
+    public void search_shouldUseLikeQueryInLikeMode() {
+        ReflectionTestUtils.setField(itemService, "searchMode", ItemSearchMode.LIKE);
+        when(mockItemSearchCache.get("text", 1, 1)).thenReturn(null);
+        when(mockItemRepository.search("text", PageRequest.of(1, 1))).thenReturn(List.of(item));
+        assertEquals(List.of(toItemDto(item)), itemService.search("text", 1, 1));
+    }
+
+    @Test
+    public void searchInPeriod_shouldQueryAvailableItemsInLikeMode() {
+        ReflectionTestUtils.setField(itemService, "searchMode", ItemSearchMode.LIKE);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(mockItemRepository.searchAvailable("text", start, start.plusDays(1), 0L, Status.REJECTED,
+                PageRequest.of(1, 1))).thenReturn(List.of(item));
+        assertEquals(List.of(toItemDto(item)), itemService.search("text", start, start.plusDays(1), 1, 1));
+        verifyNoInteractions(mockItemSearchIndex, mockItemSearchCache);
+    }
+
+    @Test
+    public void searchInPeriod_shouldFilterIndexHitsByOccupancy() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        LocalDateTime end = start.plusDays(1);
+        when(mockItemSearchIndex.ranked("text")).thenReturn(List.of(3L, 2L, 1L).iterator());
+        when(mockBookingOccupancyIndex.isFree(3L, start, end)).thenReturn(false);
+        when(mockBookingIntervalIndex.isFree(3L, start, end)).thenReturn(false);
+        when(mockBookingOccupancyIndex.isFree(2L, start, end)).thenReturn(false);
+        when(mockBookingIntervalIndex.isFree(2L, start, end)).thenReturn(true);
+        when(mockBookingOccupancyIndex.isFree(1L, start, end)).thenReturn(true);
+        when(mockItemRepository.findAllById(List.of(1L))).thenReturn(List.of(item));
+        assertEquals(List.of(toItemDto(item)), itemService.search("text", start, end, 1, 1));
+        verifyNoInteractions(mockItemSearchCache);
+    }
+
+    @Test
+    public void searchInPeriod_shouldPageFreeIndexHitsById() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        LocalDateTime end = start.plusDays(1);
+        when(mockItemSearchIndex.idsAfter("text", 1L)).thenReturn(List.of(2L, 3L, 4L).iterator());
+        when(mockBookingOccupancyIndex.isFree(2L, start, end)).thenReturn(false);
+        when(mockBookingIntervalIndex.isFree(2L, start, end)).thenReturn(false);
+        when(mockBookingOccupancyIndex.isFree(3L, start, end)).thenReturn(true);
+        Item free = new Item(3L, "Item3", "item3", true, 2L, null, null);
+        when(mockItemRepository.findAllById(List.of(3L))).thenReturn(List.of(free));
+        CursorPage<ItemDto> page = itemService.search("text", start, end, Cursor.of(1L).encode(), 1);
+        assertEquals(List.of(toItemDto(free)), page.getItems());
+        assertEquals(Cursor.of(3L).encode(), page.getNext());
+    }
+
+    @Test
+    public void searchInPeriod_shouldQueryDatabaseForPastPeriodInIndexMode() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(mockItemRepository.searchAvailable("text", start, start.plusDays(1), 0L, Status.REJECTED,
+                PageRequest.of(0, 10))).thenReturn(List.of(item));
+        assertEquals(List.of(toItemDto(item)), itemService.search("text", start, start.plusDays(1), 0, 10));
+        verifyNoInteractions(mockItemSearchIndex, mockBookingOccupancyIndex, mockBookingIntervalIndex);
+    }
+
+    @Test
+    public void searchInPeriod_shouldContinueAfterCursorInPostgresMode() {
+        ReflectionTestUtils.setField(itemService, "searchMode", ItemSearchMode.POSTGRES);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(mockItemRepository.searchPostgresAvailable("text", start, start.plusDays(1), 0L, "REJECTED",
+                PageRequest.of(0, 1))).thenReturn(List.of(item));
+        CursorPage<ItemDto> page = itemService.search("text", start, start.plusDays(1), "", 1);
+        assertEquals(List.of(toItemDto(item)), page.getItems());
+        assertEquals(Cursor.of(1L).encode(), page.getNext());
+    }
+
+    @Test
+    public void searchInPeriod_shouldThrowWhenPeriodIsIncomplete() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        IncompletePeriodException e = assertThrows(IncompletePeriodException.class,
+                () -> itemService.search("text", start, null, 0, 10));
+        assertEquals("Период задается началом и концом вместе, передано начало 2024-01-01T00:00 и конец null",
+                e.getMessage());
+        assertThrows(IncompletePeriodException.class, () -> itemService.search("text", null, start, "", 10));
+    }
+
+    @Test
+    public void search_shouldUsePostgresQueryInPostgresMode() {
+        ReflectionTestUtils.setField(itemService, "searchMode", ItemSearchMode.POSTGRES);
+        when(mockItemSearchCache.get("text", 1, 1)).thenReturn(null);
+        when(mockItemRepository.searchPostgres("text", PageRequest.of(1, 1))).thenReturn(List.of(item));
         assertEquals(List.of(toItemDto(item)), itemService.search("text", 1, 1));
     }
 
@@ -178,7 +338,8 @@ public class ItemServiceTest {
     public void postComment_shouldPostComment() {
         when(mockUserRepository.findById(1L)).thenReturn(Optional.of(user));
         when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
-        when(mockBookingRepository.findAllByBookerIdAndEndIsBeforeOrderByEndDesc(any(), any())).thenReturn(List.of(booking));
+        when(mockBookingRepository.existsByBookerIdAndItemIdAndEndIsBeforeAndStatus(eq(1L), eq(1L), any(),
+                eq(Status.APPROVED))).thenReturn(true);
         when(mockCommentRepository.save(comment)).thenReturn(comment);
         assertEquals(CommentMapper.toCommentDto(comment), itemService.postComment(CommentMapper.toCommentDto(comment), 1L, 1L));
     }
@@ -204,9 +365,54 @@ public class ItemServiceTest {
     public void postComment_shouldThrowWhenUserIsNotBooker() {
         when(mockUserRepository.findById(2L)).thenReturn(Optional.of(user));
         when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
-        when(mockBookingRepository.findAllByBookerIdAndEndIsBeforeOrderByEndDesc(any(), any())).thenReturn(List.of(booking));
+        when(mockBookingRepository.existsByBookerIdAndItemIdAndEndIsBeforeAndStatus(eq(2L), eq(1L), any(),
+                eq(Status.APPROVED))).thenReturn(false);
         IllegalTryToPostCommentException e = assertThrows(IllegalTryToPostCommentException.class,
                 () -> itemService.postComment(CommentMapper.toCommentDto(comment), 2L, 1L));
         assertEquals("Пользователь с id=2 не брал вещь с id=1 в аренду", e.getMessage());
     }
+
+    @Test
+    public void getAvailability_shouldReturnGapsBetweenMergedBookings() {
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(mockBookingRepository.findPeriods(1L, from, from.plusDays(10), Status.REJECTED)).thenReturn(List.of(
+                period(from.minusDays(1), from.plusDays(1)),
+                period(from.plusDays(3), from.plusDays(5)),
+                period(from.plusDays(4), from.plusDays(6)),
+                period(from.plusDays(4), from.plusDays(5)),
+                period(from.plusDays(6), from.plusDays(7))));
+        assertEquals(List.of(new FreePeriodDto(from.plusDays(1), from.plusDays(3)),
+                        new FreePeriodDto(from.plusDays(7), from.plusDays(10))),
+                itemService.getAvailability(1L, from, from.plusDays(10)));
+    }
+
+    @Test
+    public void getAvailability_shouldReturnNothingForUnavailableItem() {
+        item.setAvailable(false);
+        LocalDateTime from = LocalDateTime.now();
+        when(mockItemRepository.findById(1L)).thenReturn(Optional.of(item));
+        assertEquals(List.of(), itemService.getAvailability(1L, from, from.plusDays(1)));
+        verifyNoInteractions(mockBookingRepository);
+    }
+
+    @Test
+    public void getAvailability_shouldThrowWhenPeriodIsEmpty() {
+        LocalDateTime from = LocalDateTime.now();
+        assertThrows(InvalidPeriodException.class, () -> itemService.getAvailability(1L, from, from));
+    }
+
+    private BookingPeriod period(LocalDateTime start, LocalDateTime end) {
+        return new BookingPeriod() {
+            @Override
+            public LocalDateTime getStart() {
+                return start;
+            }
+
+            @Override
+            public LocalDateTime getEnd() {
+                return end;
+            }
+        };
+    }
 }
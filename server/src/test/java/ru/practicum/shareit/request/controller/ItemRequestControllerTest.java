@@ -7,6 +7,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.service.ItemRequestService;
 
@@ -16,6 +17,7 @@ import java.util.List;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = ItemRequestController.class)
@@ -29,7 +31,7 @@ public class ItemRequestControllerTest {
 
     @Test
     public void createTest() throws Exception {
-        ItemRequestDto itemRequestDto = new ItemRequestDto(1L, "request", 1L, null, null);
+        ItemRequestDto itemRequestDto = new ItemRequestDto(1L, "request", 1L, null, null, null);
         when(itemRequestService.create(itemRequestDto, 1L)).thenReturn(itemRequestDto);
         mvc.perform(post("/requests")
                         .content(mapper.writeValueAsString(itemRequestDto))
@@ -43,7 +45,7 @@ public class ItemRequestControllerTest {
 
     @Test
     public void getUserRequestsTest() throws Exception {
-        ItemRequestDto itemRequestDto = new ItemRequestDto(1L, "request", 1L, null, null);
+        ItemRequestDto itemRequestDto = new ItemRequestDto(1L, "request", 1L, null, null, null);
         when(itemRequestService.getUserRequests(1L)).thenReturn(List.of(itemRequestDto));
         mvc.perform(get("/requests")
                         .header("X-Sharer-User-Id", 1L)
@@ -54,7 +56,7 @@ public class ItemRequestControllerTest {
 
     @Test
     public void getAllUsersRequestsTest() throws Exception {
-        ItemRequestDto itemRequestDto = new ItemRequestDto(1L, "request", 1L, null, null);
+        ItemRequestDto itemRequestDto = new ItemRequestDto(1L, "request", 1L, null, null, null);
         when(itemRequestService.getAllUsersRequests(1L, 0, 20)).thenReturn(List.of(itemRequestDto));
         mvc.perform(get("/requests/all")
                         .header("X-Sharer-User-Id", 1L)
@@ -63,9 +65,24 @@ public class ItemRequestControllerTest {
                 .andExpect(content().json(mapper.writeValueAsString(List.of(itemRequestDto))));
     }
 
+    @Test
+    public void searchTest() throws Exception {
+        ItemRequestDto itemRequestDto = new ItemRequestDto(1L, "request", 1L, null, null, null);
+        when(itemRequestService.search(1L, "дрель", null, 1))
+                .thenReturn(new CursorPage<>(List.of(itemRequestDto), "next"));
+        mvc.perform(get("/requests/search")
+                        .param("text", "дрель")
+                        .param("size", "1")
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, "next"))
+                .andExpect(content().json(mapper.writeValueAsString(List.of(itemRequestDto))));
+    }
+
     @Test
     public void getRequestByIdTest() throws Exception {
-        ItemRequestDto itemRequestDto = new ItemRequestDto(1L, "request", 1L, null, null);
+        ItemRequestDto itemRequestDto = new ItemRequestDto(1L, "request", 1L, null, null, null);
         when(itemRequestService.getRequestById(1L, 1L)).thenReturn(itemRequestDto);
         mvc.perform(get("/requests/{requestId}", 1L)
                         .header("X-Sharer-User-Id", 1L)
@@ -0,0 +1,85 @@
+package ru.practicum.shareit.request.feed;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.request.feed.RecentRequestsFeed.RecentRequest;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RecentRequestsFeedTest {
+    @Mock
+    private ItemRequestRepository mockItemRequestRepository;
+    @Mock
+    private ItemRepository mockItemRepository;
+    private final User requestor = new User(1L, "requestor", "requestor@email.com");
+    private final User other = new User(2L, "other", "other@email.com");
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @Test
+    public void page_shouldSkipRequestsOfRequestorAndAttachItemIds() {
+        RecentRequestsFeed feed = feed(10, List.of(request(3L, other, 1), request(2L, requestor, 2),
+                request(1L, other, 3)));
+        when(mockItemRepository.findAllByRequestIdIn(any())).thenReturn(List.of(
+                new Item(7L, "Дрель", "Простая дрель", true, 1L, 1L, null)));
+        feed.rebuild();
+        List<RecentRequest> page = feed.page(1L, 0, 10).orElseThrow();
+        assertEquals(List.of(3L, 1L), ids(page));
+        assertEquals(List.of(7L), page.get(1).getItemIds());
+        assertEquals(List.of(1L), ids(feed.page(1L, 1, 1).orElseThrow()));
+        assertEquals(List.of(), feed.page(1L, Cursor.of(now.minusHours(3), 1L), 10).orElseThrow());
+    }
+
+    @Test
+    public void page_shouldReturnNullWhenPageLeavesRetainedWindow() {
+        RecentRequestsFeed feed = feed(2, List.of(request(3L, other, 1), request(2L, other, 2)));
+        feed.rebuild();
+        assertEquals(List.of(3L, 2L), ids(feed.page(1L, 0, 2).orElseThrow()));
+        assertTrue(feed.page(1L, 0, 3).isEmpty());
+        assertTrue(feed.page(1L, Cursor.of(now.minusHours(2), 2L), 1).isEmpty());
+    }
+
+    @Test
+    public void addedAndAnswered_shouldKeepNewestRequestsAndEvictOldest() {
+        RecentRequestsFeed feed = feed(2, List.of(request(1L, other, 2)));
+        feed.rebuild();
+        feed.added(request(2L, other, 1));
+        feed.answered(2L, 8L);
+        assertEquals(List.of(2L, 1L), ids(feed.page(1L, 0, 5).orElseThrow()));
+        feed.added(request(3L, other, 0));
+        assertEquals(List.of(3L, 2L), ids(feed.page(1L, 0, 2).orElseThrow()));
+        assertTrue(feed.page(1L, 0, 3).isEmpty());
+        assertEquals(List.of(8L), feed.page(1L, 1, 1).orElseThrow().get(0).getItemIds());
+        feed.unanswered(2L, 8L);
+        assertEquals(List.of(), feed.page(1L, 1, 1).orElseThrow().get(0).getItemIds());
+    }
+
+    private RecentRequestsFeed feed(int capacity, List<ItemRequest> newest) {
+        when(mockItemRequestRepository.findNewest(any())).thenReturn(newest);
+        return new RecentRequestsFeed(capacity, mockItemRequestRepository, mockItemRepository,
+                new SimpleMeterRegistry());
+    }
+
+    private ItemRequest request(Long id, User user, int hoursAgo) {
+        return new ItemRequest(id, "request" + id, user, now.minusHours(hoursAgo));
+    }
+
+    private List<Long> ids(List<RecentRequest> page) {
+        return page.stream().map(RecentRequest::getId).collect(Collectors.toList());
+    }
+}
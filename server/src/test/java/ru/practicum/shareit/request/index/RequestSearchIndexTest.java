@@ -0,0 +1,79 @@
+package ru.practicum.shareit.request.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RequestSearchIndexTest {
+    @Mock
+    private ItemRequestRepository mockItemRequestRepository;
+    @InjectMocks
+    private RequestSearchIndex requestSearchIndex;
+    private final User owner = new User(1L, "owner", "owner@email.com");
+    private final User other = new User(2L, "other", "other@email.com");
+    private final LocalDateTime day = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @BeforeEach
+    public void fillIndex() {
+        when(mockItemRequestRepository.findAllWithRequestor()).thenReturn(List.of(
+                new ItemRequest(1L, "Нужна дрель", other, day),
+                new ItemRequest(2L, "Ищу дрели и пилу", other, day.plusDays(1)),
+                new ItemRequest(3L, "Пила для дачи", other, day.plusDays(2)),
+                new ItemRequest(4L, "Дрелью поработать", owner, day.plusDays(3))));
+        requestSearchIndex.rebuild();
+    }
+
+    @Test
+    public void search_shouldFindWordFormsNewestFirstWithoutOwnRequests() {
+        assertEquals(List.of(2L, 1L), requestSearchIndex.search("ДРЕЛЬ", 1L, null, 0, 10));
+        assertEquals(List.of(4L), requestSearchIndex.search("дрелью", 2L, null, 0, 10));
+    }
+
+    @Test
+    public void search_shouldRequireAllWords() {
+        assertEquals(List.of(2L), requestSearchIndex.search("пила дрель", 1L, null, 0, 10));
+        assertEquals(List.of(), requestSearchIndex.search("дрель молоток", 1L, null, 0, 10));
+        assertEquals(List.of(), requestSearchIndex.search("и", 1L, null, 0, 10));
+    }
+
+    @Test
+    public void search_shouldPageAfterCursor() {
+        assertEquals(List.of(3L), requestSearchIndex.search("пила", 1L, null, 0, 1));
+        assertEquals(List.of(2L), requestSearchIndex.search("пила", 1L, day.plusDays(2), 3L, 1));
+        assertEquals(List.of(), requestSearchIndex.search("пила", 1L, day.plusDays(1), 2L, 1));
+    }
+
+    @Test
+    public void queryTerms_shouldDropEndingsButKeepThreeLetters() {
+        assertEquals(List.of("ДРЕ", "ПИЛ", "ДЛЯ", "БЕТО"),
+                List.copyOf(RequestSearchIndex.queryTerms("Дрель, пилу для Ж/Д бетону")));
+    }
+
+    @Test
+    public void index_shouldAddNewRequest() {
+        requestSearchIndex.index(new ItemRequest(5L, "Пилу на выходные", other, day.plusDays(4)));
+        assertEquals(List.of(5L, 3L, 2L), requestSearchIndex.search("пила", 1L, null, 0, 10));
+    }
+
+    @Test
+    public void rebuild_shouldReplaceWholeIndex() {
+        requestSearchIndex.index(new ItemRequest(5L, "Пилу на выходные", other, day.plusDays(4)));
+        when(mockItemRequestRepository.findAllWithRequestor()).thenReturn(List.of(
+                new ItemRequest(6L, "Пила по металлу", other, day.plusDays(5))));
+        requestSearchIndex.rebuild();
+        assertEquals(List.of(6L), requestSearchIndex.search("пила", 1L, null, 0, 10));
+    }
+}
@@ -31,4 +31,15 @@ public class ItemRequestRepositoryTest {
         assertEquals(1, requests.size());
         assertEquals(3L, requests.get(0).getId());
     }
+
+    @Test
+    public void findAllByRequestorIdIsNotAfterTest() {
+        List<ItemRequest> first = itemRequestRepository.findAllByRequestorIdIsNotFirst(3L, PageRequest.of(0, 1));
+        assertEquals(1, first.size());
+        ItemRequest last = first.get(0);
+        List<ItemRequest> next = itemRequestRepository.findAllByRequestorIdIsNotAfter(3L, last.getCreated(),
+                last.getId(), PageRequest.of(0, 10));
+        assertEquals(1, next.size());
+        assertNotEquals(last.getId(), next.get(0).getId());
+    }
 }
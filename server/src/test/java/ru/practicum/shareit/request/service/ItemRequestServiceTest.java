@@ -1,17 +1,26 @@
 package ru.practicum.shareit.request.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.event.publisher.EventPublisher;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.Cursor;
+import ru.practicum.shareit.pagination.CursorPage;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.exception.ItemRequestNotFoundException;
+import ru.practicum.shareit.request.feed.RecentRequestsFeed;
+import ru.practicum.shareit.request.index.RequestSearchIndex;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.repository.RequestSuggestionRepository;
+import ru.practicum.shareit.request.suggestion.RequestMatcher;
 import ru.practicum.shareit.user.exception.UserNotFoundException;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
@@ -19,8 +28,12 @@ import ru.practicum.shareit.user.repository.UserRepository;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -34,10 +47,20 @@ public class ItemRequestServiceTest {
     private UserRepository mockUserRepository;
     @Mock
     private ItemRepository mockItemRepository;
+    @Mock
+    private RecentRequestsFeed mockRecentRequestsFeed;
+    @Mock
+    private EventPublisher mockEventPublisher;
+    @Mock
+    private RequestMatcher mockRequestMatcher;
+    @Mock
+    private RequestSuggestionRepository mockRequestSuggestionRepository;
+    @Mock
+    private RequestSearchIndex mockRequestSearchIndex;
     @InjectMocks
     private ItemRequestServiceImpl itemRequestService;
     private User user = new User(1L, "owner", "owner@email.com");
-    private Item item = new Item(1L, "Item", "item", true, 1L, 1L);
+    private Item item = new Item(1L, "Item", "item", true, 1L, 1L, null);
     private ItemRequest itemRequest = new ItemRequest(1L, "request", user, LocalDateTime.now());
 
     @Test
@@ -45,6 +68,10 @@ public class ItemRequestServiceTest {
         when(mockUserRepository.findById(1L)).thenReturn(Optional.of(user));
         when(mockItemRequestRepository.save(itemRequest)).thenReturn(itemRequest);
         assertEquals(toItemRequestDto(itemRequest), itemRequestService.create(toItemRequestDto(itemRequest), 1L));
+        verify(mockRecentRequestsFeed).added(itemRequest);
+        verify(mockRequestMatcher).match(itemRequest);
+        verify(mockRequestSearchIndex).index(itemRequest);
+        verify(mockEventPublisher).publishToOthers(1L, EventPublisher.REQUEST_CREATED, toItemRequestDto(itemRequest));
     }
 
     @Test
@@ -59,7 +86,7 @@ public class ItemRequestServiceTest {
     public void getUserRequests_shouldReturnRequests() {
         when(mockUserRepository.existsById(1L)).thenReturn(true);
         when(mockItemRequestRepository.findAllByRequestorIdOrderByCreatedDesc(1L)).thenReturn(List.of(itemRequest));
-        when(mockItemRepository.findAllByRequestIdIn(any())).thenReturn(List.of(item));
+        when(mockItemRepository.findAllByRequestorId(1L)).thenReturn(List.of(item));
         ItemRequestDto result = toItemRequestDto(itemRequest);
         result.setItems(List.of(ItemMapper.toItemDto(item)));
         assertEquals(List.of(result), itemRequestService.getUserRequests(1L));
@@ -83,6 +110,50 @@ public class ItemRequestServiceTest {
         assertEquals(List.of(result), itemRequestService.getAllUsersRequests(2L, 1, 1));
     }
 
+    @Test
+    public void getAllUsersRequests_shouldGroupItemsByRequest() {
+        ItemRequest other = new ItemRequest(2L, "other", user, LocalDateTime.now().minusDays(1));
+        ItemRequest empty = new ItemRequest(3L, "empty", user, LocalDateTime.now().minusDays(2));
+        Item answer = new Item(2L, "Answer", "answer", true, 1L, 2L, null);
+        Item secondAnswer = new Item(3L, "Second", "second", true, 1L, 1L, null);
+        when(mockUserRepository.existsById(2L)).thenReturn(true);
+        when(mockItemRequestRepository.findAllByRequestorIdIsNotOrderByCreatedDesc(any(), any()))
+                .thenReturn(List.of(itemRequest, other, empty));
+        when(mockItemRepository.findAllByRequestIdIn(List.of(1L, 2L, 3L)))
+                .thenReturn(List.of(item, answer, secondAnswer));
+        List<ItemRequestDto> result = itemRequestService.getAllUsersRequests(2L, 0, 3);
+        assertEquals(List.of(ItemMapper.toItemDto(item), ItemMapper.toItemDto(secondAnswer)), result.get(0).getItems());
+        assertEquals(List.of(ItemMapper.toItemDto(answer)), result.get(1).getItems());
+        assertEquals(List.of(), result.get(2).getItems());
+    }
+
+    @Test
+    public void getUserRequests_shouldNotQueryItemsWhenThereAreNoRequests() {
+        when(mockUserRepository.existsById(1L)).thenReturn(true);
+        when(mockItemRequestRepository.findAllByRequestorIdOrderByCreatedDesc(1L)).thenReturn(List.of());
+        assertEquals(List.of(), itemRequestService.getUserRequests(1L));
+        verifyNoInteractions(mockItemRepository);
+    }
+
+    @Test
+    public void getAllUsersRequests_shouldServeRecentPageWithoutRequestQuery() {
+        ItemRequest recentRequest = new ItemRequest(2L, "recent", user, LocalDateTime.now());
+        when(mockUserRepository.existsById(2L)).thenReturn(true);
+        when(mockItemRequestRepository.findNewest(any())).thenReturn(List.of(recentRequest));
+        when(mockItemRepository.findAllByRequestIdIn(any())).thenReturn(List.of(
+                new Item(1L, "Item", "item", true, 1L, 2L, null)));
+        RecentRequestsFeed feed = new RecentRequestsFeed(10, mockItemRequestRepository, mockItemRepository,
+                new SimpleMeterRegistry());
+        feed.rebuild();
+        when(mockRecentRequestsFeed.page(2L, 0, 10)).thenReturn(feed.page(2L, 0, 10));
+        when(mockItemRepository.findAllById(List.of(1L))).thenReturn(List.of(
+                new Item(1L, "Item", "item", true, 1L, 2L, null)));
+        ItemRequestDto result = toItemRequestDto(recentRequest);
+        result.setItems(List.of(new ItemDto(1L, "Item", "item", true, 2L)));
+        assertEquals(List.of(result), itemRequestService.getAllUsersRequests(2L, 0, 10));
+        verify(mockItemRequestRepository, never()).findAllByRequestorIdIsNotOrderByCreatedDesc(any(), any());
+    }
+
     @Test
     public void getAllUsersRequests_shouldThrowWhenUserNotFound() {
         when(mockUserRepository.existsById(1L)).thenReturn(false);
@@ -91,16 +162,64 @@ public class ItemRequestServiceTest {
         assertEquals("Пользователь с id=1 не найден", e.getMessage());
     }
 
+    @Test
+    public void search_shouldReturnRequestsInIndexOrderWithItems() {
+        User other = new User(2L, "other", "other@email.com");
+        ItemRequest newer = new ItemRequest(2L, "Нужна дрель", other, LocalDateTime.of(2024, 1, 2, 10, 0));
+        ItemRequest older = new ItemRequest(3L, "Дрель на день", other, LocalDateTime.of(2024, 1, 1, 10, 0));
+        Item answer = new Item(5L, "Дрель", "Ударная", true, 1L, 3L, null);
+        when(mockUserRepository.existsById(1L)).thenReturn(true);
+        when(mockRequestSearchIndex.search("дрель", 1L, null, 0, 2)).thenReturn(List.of(2L, 3L));
+        when(mockItemRequestRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(older, newer));
+        when(mockItemRepository.findAllByRequestIdIn(List.of(2L, 3L))).thenReturn(List.of(answer));
+
+        CursorPage<ItemRequestDto> page = itemRequestService.search(1L, "дрель", "", 2);
+        assertEquals(List.of(2L, 3L), page.getItems().stream().map(ItemRequestDto::getId).collect(Collectors.toList()));
+        assertEquals(List.of(), page.getItems().get(0).getItems());
+        assertEquals(List.of(ItemMapper.toItemDto(answer)), page.getItems().get(1).getItems());
+        assertEquals(Cursor.of(older.getCreated(), 3L).encode(), page.getNext());
+    }
+
+    @Test
+    public void search_shouldContinueAfterCursor() {
+        LocalDateTime created = LocalDateTime.of(2024, 1, 1, 10, 0);
+        when(mockUserRepository.existsById(1L)).thenReturn(true);
+        itemRequestService.search(1L, "дрель", Cursor.of(created, 3L).encode(), 2);
+        verify(mockRequestSearchIndex).search("дрель", 1L, created, 3L, 2);
+        verify(mockItemRequestRepository, never()).findAllById(any());
+    }
+
+    @Test
+    public void search_shouldReturnEmptyPageForBlankText() {
+        when(mockUserRepository.existsById(1L)).thenReturn(true);
+        CursorPage<ItemRequestDto> page = itemRequestService.search(1L, " ", null, 2);
+        assertEquals(List.of(), page.getItems());
+        verifyNoInteractions(mockRequestSearchIndex);
+    }
+
     @Test
     public void getRequestById_shouldReturnRequest() {
         when(mockUserRepository.existsById(1L)).thenReturn(true);
         when(mockItemRequestRepository.findById(1L)).thenReturn(Optional.of(itemRequest));
-        when(mockItemRepository.findAllByRequestIdIn(any())).thenReturn(List.of(item));
+        when(mockItemRepository.findAllByRequestId(1L)).thenReturn(List.of(item));
         ItemRequestDto result = toItemRequestDto(itemRequest);
         result.setItems(List.of(ItemMapper.toItemDto(item)));
+        result.setSuggestions(List.of());
         assertEquals(result, itemRequestService.getRequestById(1L, 1L));
     }
 
+    @Test
+    public void getRequestById_shouldReturnSuggestionsNotAlreadyAttached() {
+        Item suggested = new Item(2L, "Дрель", "Ударная дрель", true, 2L, null, null);
+        when(mockUserRepository.existsById(1L)).thenReturn(true);
+        when(mockItemRequestRepository.findById(1L)).thenReturn(Optional.of(itemRequest));
+        when(mockItemRepository.findAllByRequestId(1L)).thenReturn(List.of(item));
+        when(mockRequestSuggestionRepository.findAvailableItemsByRequestId(1L)).thenReturn(List.of(suggested, item));
+        ItemRequestDto result = itemRequestService.getRequestById(1L, 1L);
+        assertEquals(List.of(ItemMapper.toItemDto(item)), result.getItems());
+        assertEquals(List.of(ItemMapper.toItemDto(suggested)), result.getSuggestions());
+    }
+
     @Test
     public void getRequestById_shouldThrowWhenUserNotFound() {
         when(mockUserRepository.existsById(1L)).thenReturn(false);
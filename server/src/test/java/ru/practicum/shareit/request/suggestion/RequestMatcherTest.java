@@ -0,0 +1,85 @@
+package ru.practicum.shareit.request.suggestion;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.item.index.ItemSearchIndex;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.model.RequestSuggestion;
+import ru.practicum.shareit.request.repository.RequestSuggestionRepository;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RequestMatcherTest {
+    @Mock
+    private ItemRepository mockItemRepository;
+    @Mock
+    private RequestSuggestionRepository mockRequestSuggestionRepository;
+    private RequestMatcher requestMatcher;
+    private final User requestor = new User(1L, "requestor", "requestor@email.com");
+    private final Item ownDrill = new Item(1L, "Дрель", "Дрель автора реквеста", true, 1L, null, null);
+    private final Item drill = new Item(2L, "Дрель", "Ударная дрель для бетона", true, 2L, null, null);
+    private final Item saw = new Item(3L, "Пила", "Ручная пила", true, 2L, null, null);
+    private final Item hammer = new Item(4L, "Молоток", "Молоток для бетона", true, 3L, null, null);
+
+    @BeforeEach
+    public void createMatcher() {
+        when(mockItemRepository.findAllByAvailableTrue()).thenReturn(List.of(ownDrill, drill, saw, hammer));
+        ItemSearchIndex itemSearchIndex = new ItemSearchIndex(mockItemRepository);
+        itemSearchIndex.rebuild();
+        requestMatcher = new RequestMatcher(itemSearchIndex, mockItemRepository, mockRequestSuggestionRepository,
+                2, 1, 10, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void match_shouldSuggestBestItemsOfOtherUsers() throws Exception {
+        when(mockItemRepository.findAllById(anyList())).thenAnswer(invocation -> Stream.of(ownDrill, drill, saw, hammer)
+                .filter(item -> invocation.<List<Long>>getArgument(0).contains(item.getId()))
+                .collect(Collectors.toList()));
+        requestMatcher.match(new ItemRequest(5L, "Нужна дрель по бетону", requestor, LocalDateTime.now()));
+        requestMatcher.shutdown();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<RequestSuggestion>> captor = ArgumentCaptor.forClass(List.class);
+        verify(mockRequestSuggestionRepository).saveAll(captor.capture());
+        List<RequestSuggestion> suggestions = captor.getValue();
+        assertEquals(List.of(2L, 4L), suggestions.stream()
+                .map(suggestion -> suggestion.getItem().getId())
+                .collect(Collectors.toList()));
+        assertEquals(Set.of(5L), suggestions.stream()
+                .map(RequestSuggestion::getRequestId)
+                .collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void match_shouldNotSaveAnythingWhenNothingMatches() throws Exception {
+        requestMatcher.match(new ItemRequest(5L, "Нужен велосипед", requestor, LocalDateTime.now()));
+        requestMatcher.shutdown();
+        verify(mockItemRepository, never()).findAllById(anyList());
+        verify(mockRequestSuggestionRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    public void words_shouldSplitDescriptionIntoDistinctStems() {
+        assertEquals(List.of("НУЖН", "ДРЕЛ", "ДЛЯ", "БЕТО"),
+                List.copyOf(RequestMatcher.words("Нужна дрель, дрели для Ж/Д бетону")));
+    }
+}
@@ -1,3 +1,4 @@
+delete from request_suggestions cascade;
 delete from comments cascade;
 delete from bookings cascade;
 delete from items cascade;
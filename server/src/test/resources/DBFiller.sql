@@ -22,3 +22,8 @@ insert into bookings(id, start_date, end_date, item_id, booker_id, status) value
 insert into comments(id, text, item_id, author_id, creation_date) values
 (1, 'comment1', 1, 2, '2023-11-30 20.00.00'),
 (2, 'comment2', 3, 3, '2024-10-30 20.00.00');
+alter table users alter column id restart with 100;
+alter table requests alter column id restart with 100;
+alter table items alter column id restart with 100;
+alter table bookings alter column id restart with 100;
+alter table comments alter column id restart with 100;